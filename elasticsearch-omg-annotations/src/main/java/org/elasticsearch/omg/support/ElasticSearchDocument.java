@@ -30,4 +30,49 @@ public @interface ElasticSearchDocument {
      * @return 
      */
     String typeName() default "";
+
+    /**
+     * Whether elastic search stores the <code>_source</code> of documents of this type compressed with LZF.  This
+     * trades CPU on indexing and fetching for disk, cache and the bytes of search responses, worth it for larger
+     * documents.  The default is false.
+     */
+    boolean compressSource() default false;
+
+    /**
+     * The size from which a <code>_source</code> is compressed when {@link #compressSource()} is set, e.g.
+     * <code>500b</code> or <code>1kb</code>; smaller documents gain little from compressing.  The default is an
+     * empty string, every document is compressed.
+     */
+    String compressThreshold() default "";
+
+    /**
+     * The format the sources of documents of this type are written in.  {@link SourceEncoding#SMILE} is smaller on
+     * the wire and cheaper to produce and parse; sources of either format are read back.  The default is
+     * {@link SourceEncoding#JSON}.
+     */
+    SourceEncoding sourceEncoding() default SourceEncoding.JSON;
+
+    /**
+     * Whether fields of documents of this type that aren't in the mapping are mapped and indexed as they show up.
+     * When false they are kept in the <code>_source</code> only.  The default is true.
+     */
+    boolean dynamic() default true;
+
+    /**
+     * Whether the <code>_all</code> field, every field of a document indexed once more as one, is kept for documents
+     * of this type.  Disabling it shrinks the index when searches always name their fields.  The default is true.
+     */
+    boolean allEnabled() default true;
+
+    /**
+     * The fields kept in the <code>_source</code> of documents of this type, wildcards allowed.  The default is
+     * empty, every field is kept.
+     */
+    String[] sourceIncludes() default {};
+
+    /**
+     * The fields left out of the <code>_source</code> of documents of this type, wildcards allowed.  Fields that
+     * aren't kept come back unset when documents are read.  The default is empty, no field is left out.
+     */
+    String[] sourceExcludes() default {};
 }
@@ -25,4 +25,13 @@ public @interface ElasticSearchIndex {
      * {@link org.elasticsearch.omg.support.index.AnnotatedIndexNameStrategy}.
      */
     String strategy() default "org.elasticsearch.omg.support.index.AnnotatedIndexNameStrategy";
+
+    /**
+     * The name of the property holding the timestamp of a document, used by time partitioned strategies such as
+     * {@link org.elasticsearch.omg.support.index.DailyIndexNameStrategy} to pick the index a document is written
+     * to, and to prune the indexes searched when a query has a time range.  The property may be a
+     * {@link java.util.Date}, a {@link java.util.Calendar} or a number of milliseconds since the epoch.  The
+     * default is an empty string, documents aren't partitioned by time.
+     */
+    String timestampProperty() default "";
 }
@@ -32,5 +32,46 @@ public @interface ElasticSearchProperty {
      * @return the type of elastic search property
      */
     ElasticSearchPropertyType type();
+
+    /**
+     * If this field is marked as false, the field is kept in the <code>_source</code> but not indexed at all, it
+     * can't be searched or filtered on and takes no room in the index.  {@see freeTextSearchable} and
+     * {@see filterable} are ignored then.
+     * @return true if the field is indexed
+     */
+    boolean indexed() default true;
+
+    /**
+     * If this field is marked as true, the value is stored apart from the <code>_source</code> and can be fetched
+     * on its own.
+     * @return true if the field is stored
+     */
+    boolean store() default false;
+
+    /**
+     * If this field is marked as false, the field is left out of the <code>_all</code> field.
+     * @return true if the field is included in <code>_all</code>
+     */
+    boolean includeInAll() default true;
+
+    /**
+     * If this field is marked as true, no norms are kept for the field, saving a byte per document.  Fields only
+     * filtered on don't need them.
+     * @return true if norms are omitted
+     */
+    boolean omitNorms() default false;
+
+    /**
+     * If this field is marked as true, only which documents hold a term is indexed, without the frequencies and
+     * positions.  Phrase queries on the field won't work then.
+     * @return true if term frequencies and positions are omitted
+     */
+    boolean omitTermFreqAndPositions() default false;
+
+    /**
+     * Define the term vectors stored for the field.
+     * @return the term vectors, none by default
+     */
+    ElasticSearchTermVector termVector() default ElasticSearchTermVector.NO;
 }
 
@@ -0,0 +1,29 @@
+package org.elasticsearch.omg.support;
+
+/**
+ * Defines the term vectors stored for a field in an elastic search property mapping, used by highlighting and
+ * more-like-this.
+ * {@link http://www.elasticsearch.org/guide/reference/mapping/core-types.html}.
+ */
+public enum ElasticSearchTermVector {
+
+    NO("no"),
+
+    YES("yes"),
+
+    WITH_OFFSETS("with_offsets"),
+
+    WITH_POSITIONS("with_positions"),
+
+    WITH_POSITIONS_OFFSETS("with_positions_offsets");
+
+    private String elasticSearchTermVector;
+
+    ElasticSearchTermVector(String elasticSearchTermVector) {
+        this.elasticSearchTermVector = elasticSearchTermVector;
+    }
+
+    public String getElasticSearchTermVector() {
+        return elasticSearchTermVector;
+    }
+}
@@ -0,0 +1,15 @@
+package org.elasticsearch.omg.support;
+
+/**
+ * The format the source of a document is sent to elastic search in, and stored as.
+ *
+ * @author jereanon
+ */
+public enum SourceEncoding {
+
+    /* text JSON, readable by any client */
+    JSON,
+
+    /* binary SMILE, smaller and cheaper to write and parse; sources are returned as stored, in SMILE */
+    SMILE
+}
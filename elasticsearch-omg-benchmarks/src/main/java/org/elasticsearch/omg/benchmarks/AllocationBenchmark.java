@@ -0,0 +1,146 @@
+package org.elasticsearch.omg.benchmarks;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.omg.samples.Tweet;
+import org.elasticsearch.omg.support.SourceEncoding;
+import org.elasticsearch.omg.util.JSONUtil;
+import org.elasticsearch.omg.util.SerializationBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The garbage made per document by serialization. The <code>stream</code> benchmarks serialize to a stream and
+ * generator of their own, the way every source was serialized before {@link SerializationBuffer}; the
+ * <code>bytes</code> ones go through the buffer of the thread and copy the source out once; the <code>buffer</code>
+ * ones leave the source in the buffer. The bulk benchmarks build bulk requests the way the repository does, where
+ * the one copy of each source is the one the bulk holds. {@link Tweet} and {@link Article} are written by their
+ * generated codecs, {@link Comment} by the ObjectMapper. Run with the GC profiler, <code>-prof gc</code>, where
+ * <code>gc.alloc.rate.norm</code> is the bytes allocated per document.
+ *
+ * @author jereanon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+
+    private static final int BULK_SIZE = 500;
+
+    private Tweet tweet;
+    private Article article;
+    private Comment comment;
+    private List<Tweet> tweets;
+
+    @Setup
+    public void setUp() throws Exception {
+        tweets = Documents.tweets(BULK_SIZE);
+        tweet = tweets.get(0);
+        article = Documents.articles(1).get(0);
+        comment = Documents.comments(1).get(0);
+    }
+
+    @Benchmark
+    public byte[] serializeTweetStream() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        JSONUtil.serialize(tweet, SourceEncoding.JSON, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeTweetBytes() {
+        return JSONUtil.serializeToBytes(tweet, SourceEncoding.JSON);
+    }
+
+    @Benchmark
+    public int serializeTweetBuffer() {
+        SerializationBuffer buffer = SerializationBuffer.acquire();
+        try {
+            return JSONUtil.serialize(tweet, SourceEncoding.JSON, buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeArticleStream() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        JSONUtil.serialize(article, SourceEncoding.JSON, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeArticleBytes() {
+        return JSONUtil.serializeToBytes(article, SourceEncoding.JSON);
+    }
+
+    @Benchmark
+    public int serializeArticleBuffer() {
+        SerializationBuffer buffer = SerializationBuffer.acquire();
+        try {
+            return JSONUtil.serialize(article, SourceEncoding.JSON, buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeCommentStream() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        JSONUtil.serialize(comment, SourceEncoding.JSON, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeCommentBytes() {
+        return JSONUtil.serializeToBytes(comment, SourceEncoding.JSON);
+    }
+
+    @Benchmark
+    public int serializeCommentBuffer() {
+        SerializationBuffer buffer = SerializationBuffer.acquire();
+        try {
+            return JSONUtil.serialize(comment, SourceEncoding.JSON, buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public BulkRequest bulkTweetsStream() {
+        BulkRequest bulk = new BulkRequest();
+        for (Tweet each : tweets) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            JSONUtil.serialize(each, SourceEncoding.JSON, out);
+            bulk.add(new IndexRequest("tweets").type("tweet").source(out.toByteArray()));
+        }
+        return bulk;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public BulkRequest bulkTweetsBytes() {
+        BulkRequest bulk = new BulkRequest();
+        for (Tweet each : tweets) {
+            bulk.add(new IndexRequest("tweets").type("tweet").source(JSONUtil.serializeToBytes(each, SourceEncoding.JSON)));
+        }
+        return bulk;
+    }
+}
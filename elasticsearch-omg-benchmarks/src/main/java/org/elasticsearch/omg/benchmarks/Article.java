@@ -0,0 +1,100 @@
+package org.elasticsearch.omg.benchmarks;
+
+import org.elasticsearch.omg.support.ElasticSearchDocument;
+import org.elasticsearch.omg.support.ElasticSearchDocumentId;
+import org.elasticsearch.omg.support.ElasticSearchIndex;
+import org.elasticsearch.omg.support.ElasticSearchProperty;
+import org.elasticsearch.omg.support.ElasticSearchPropertyType;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A document shaped like a typical content document: an assigned id, free text, tags, a nested author and a few
+ * numbers. It has a generated codec like {@link org.elasticsearch.omg.samples.Tweet}, which hands its tags and
+ * author to Jackson; {@link Comment} is the document without a codec.
+ *
+ * @author jereanon
+ */
+@ElasticSearchIndex(name = "benchmark-articles")
+@ElasticSearchDocument(typeName = "article")
+public class Article {
+
+    private String id;
+    private String title;
+    private String body;
+    private List<String> tags;
+    private Author author;
+    private Date published;
+    private long views;
+    private double rating;
+
+    @ElasticSearchDocumentId
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    @ElasticSearchProperty(freeTextSearchable = true, type = ElasticSearchPropertyType.STRING)
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @ElasticSearchProperty(freeTextSearchable = true, filterable = false, type = ElasticSearchPropertyType.STRING)
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public Author getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(Author author) {
+        this.author = author;
+    }
+
+    @ElasticSearchProperty(filterable = true, freeTextSearchable = false, type = ElasticSearchPropertyType.DATE)
+    public Date getPublished() {
+        return published;
+    }
+
+    public void setPublished(Date published) {
+        this.published = published;
+    }
+
+    @ElasticSearchProperty(filterable = true, freeTextSearchable = false, type = ElasticSearchPropertyType.LONG)
+    public long getViews() {
+        return views;
+    }
+
+    public void setViews(long views) {
+        this.views = views;
+    }
+
+    public double getRating() {
+        return rating;
+    }
+
+    public void setRating(double rating) {
+        this.rating = rating;
+    }
+}
@@ -0,0 +1,37 @@
+package org.elasticsearch.omg.benchmarks;
+
+/**
+ * The author of an {@link Article}, mapped as an object inside it.
+ *
+ * @author jereanon
+ */
+public class Author {
+
+    private String name;
+    private String email;
+    private int followers;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public int getFollowers() {
+        return followers;
+    }
+
+    public void setFollowers(int followers) {
+        this.followers = followers;
+    }
+}
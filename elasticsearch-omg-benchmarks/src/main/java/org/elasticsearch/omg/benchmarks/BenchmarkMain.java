@@ -0,0 +1,35 @@
+package org.elasticsearch.omg.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks through the JMH command line, writing the results as JSON to
+ * <code>target/jmh-result.json</code> unless a result format or file is given, so runs of different releases can
+ * be compared.
+ *
+ * @author jereanon
+ */
+public final class BenchmarkMain {
+
+    private static final File DEFAULT_RESULT_FILE = new File("target", "jmh-result.json");
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<String>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            options.add("-rff");
+            options.add(DEFAULT_RESULT_FILE.getPath());
+            DEFAULT_RESULT_FILE.getParentFile().mkdirs();
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+    }
+}
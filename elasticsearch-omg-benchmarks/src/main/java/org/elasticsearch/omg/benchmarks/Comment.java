@@ -0,0 +1,82 @@
+package org.elasticsearch.omg.benchmarks;
+
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.elasticsearch.omg.support.ElasticSearchDocument;
+import org.elasticsearch.omg.support.ElasticSearchDocumentId;
+import org.elasticsearch.omg.support.ElasticSearchIndex;
+import org.elasticsearch.omg.support.ElasticSearchProperty;
+import org.elasticsearch.omg.support.ElasticSearchPropertyType;
+
+import java.util.Date;
+
+/**
+ * A comment on an {@link Article}, about the size of a {@link org.elasticsearch.omg.samples.Tweet}. It carries a
+ * Jackson annotation, so the annotation processor generates no codec for it and it goes through the ObjectMapper,
+ * the way documents without generated metadata do.
+ *
+ * @author jereanon
+ */
+@ElasticSearchIndex(name = "benchmark-comments")
+@ElasticSearchDocument(typeName = "comment")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Comment {
+
+    private String id;
+    private String articleId;
+    private String user;
+    private String text;
+    private Date posted;
+    private int likes;
+
+    @ElasticSearchDocumentId
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    @ElasticSearchProperty(filterable = true, freeTextSearchable = false, type = ElasticSearchPropertyType.STRING)
+    public String getArticleId() {
+        return articleId;
+    }
+
+    public void setArticleId(String articleId) {
+        this.articleId = articleId;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    @ElasticSearchProperty(freeTextSearchable = true, filterable = false, type = ElasticSearchPropertyType.STRING)
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    @ElasticSearchProperty(filterable = true, freeTextSearchable = false, type = ElasticSearchPropertyType.DATE)
+    public Date getPosted() {
+        return posted;
+    }
+
+    public void setPosted(Date posted) {
+        this.posted = posted;
+    }
+
+    public int getLikes() {
+        return likes;
+    }
+
+    public void setLikes(int likes) {
+        this.likes = likes;
+    }
+}
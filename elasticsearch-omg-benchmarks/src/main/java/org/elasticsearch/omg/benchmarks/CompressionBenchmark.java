@@ -0,0 +1,140 @@
+package org.elasticsearch.omg.benchmarks;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.compress.lzf.LZFDecoder;
+import org.elasticsearch.common.compress.lzf.LZFEncoder;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.omg.samples.Tweet;
+import org.elasticsearch.omg.util.JSONUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU and bytes of LZF compression, the codec of <code>transport.tcp.compress</code> and of compressed
+ * <code>_source</code>, on bulk requests as they go over the wire and on single document sources. Next to the time
+ * of each operation the <code>rawBytes</code> and <code>compressedBytes</code> counters give the sizes, their ratio
+ * is what compression saves on the link.
+ *
+ * @author jereanon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int BULK_SIZE = 500;
+
+    private byte[] tweetBulk;
+    private byte[] articleBulk;
+    private byte[] tweetSource;
+    private byte[] articleSource;
+    private byte[] compressedArticleBulk;
+    private byte[] compressedArticleSource;
+
+    /**
+     * The bytes handled by each benchmark, summed over an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Bytes {
+        public long rawBytes;
+        public long compressedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rawBytes = 0;
+            compressedBytes = 0;
+        }
+
+        byte[] count(byte[] raw, byte[] compressed) {
+            rawBytes += raw.length;
+            compressedBytes += compressed.length;
+            return compressed;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        List<Tweet> tweets = Documents.tweets(BULK_SIZE);
+        List<Article> articles = Documents.articles(BULK_SIZE);
+
+        BulkRequest bulk = new BulkRequest();
+        for (Tweet each : tweets) {
+            bulk.add(new IndexRequest("tweets").type("tweet").source(JSONUtil.serializeToString(each)));
+        }
+        tweetBulk = serialize(bulk);
+        bulk = new BulkRequest();
+        for (Article each : articles) {
+            bulk.add(new IndexRequest("benchmark-articles", "article", each.getId())
+                    .source(JSONUtil.serializeToString(each)));
+        }
+        articleBulk = serialize(bulk);
+
+        tweetSource = JSONUtil.serializeToString(tweets.get(0)).getBytes(UTF8);
+        articleSource = JSONUtil.serializeToString(articles.get(0)).getBytes(UTF8);
+        compressedArticleBulk = LZFEncoder.encode(articleBulk);
+        compressedArticleSource = LZFEncoder.encode(articleSource);
+    }
+
+    /**
+     * The bytes of a bulk request as the transport writes them.
+     */
+    private static byte[] serialize(BulkRequest bulk) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        bulk.writeTo(out);
+        return out.copiedByteArray();
+    }
+
+    @Benchmark
+    public byte[] compressTweetBulk(Bytes bytes) throws Exception {
+        return bytes.count(tweetBulk, LZFEncoder.encode(tweetBulk));
+    }
+
+    @Benchmark
+    public byte[] compressArticleBulk(Bytes bytes) throws Exception {
+        return bytes.count(articleBulk, LZFEncoder.encode(articleBulk));
+    }
+
+    @Benchmark
+    public byte[] decompressArticleBulk() throws Exception {
+        return LZFDecoder.decode(compressedArticleBulk);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] compressTweetSource(Bytes bytes) throws Exception {
+        return bytes.count(tweetSource, LZFEncoder.encode(tweetSource));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] compressArticleSource(Bytes bytes) throws Exception {
+        return bytes.count(articleSource, LZFEncoder.encode(articleSource));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] decompressArticleSource() throws Exception {
+        return LZFDecoder.decode(compressedArticleSource);
+    }
+}
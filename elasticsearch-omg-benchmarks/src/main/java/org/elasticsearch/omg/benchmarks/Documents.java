@@ -0,0 +1,92 @@
+package org.elasticsearch.omg.benchmarks;
+
+import org.elasticsearch.omg.samples.Tweet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the documents the benchmarks work on, from a fixed seed so every run sees the same data.
+ *
+ * @author jereanon
+ */
+final class Documents {
+
+    private static final String[] WORDS = {
+            "elastic", "search", "index", "shard", "replica", "mapping", "query", "filter", "facet", "cluster",
+            "node", "bulk", "scroll", "analyzer", "token", "document", "field", "score", "refresh", "segment"
+    };
+
+    private Documents() {
+    }
+
+    static List<Tweet> tweets(int count) {
+        Random random = new Random(42);
+        List<Tweet> tweets = new ArrayList<Tweet>(count);
+        for (int i = 0; i < count; i++) {
+            Tweet tweet = new Tweet();
+            tweet.setUser("user" + random.nextInt(1000));
+            tweet.setPostDate(new Date(1330000000000L + random.nextInt(1000000000)));
+            tweet.setMessage(sentence(random, 8 + random.nextInt(12)));
+            tweets.add(tweet);
+        }
+        return tweets;
+    }
+
+    static List<Article> articles(int count) {
+        Random random = new Random(42);
+        List<Article> articles = new ArrayList<Article>(count);
+        for (int i = 0; i < count; i++) {
+            Author author = new Author();
+            author.setName("author" + random.nextInt(100));
+            author.setEmail(author.getName() + "@example.com");
+            author.setFollowers(random.nextInt(100000));
+
+            Article article = new Article();
+            article.setId("article-" + i);
+            article.setTitle(sentence(random, 4 + random.nextInt(6)));
+            article.setBody(sentence(random, 150 + random.nextInt(150)));
+            article.setTags(Arrays.asList(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]));
+            article.setAuthor(author);
+            article.setPublished(new Date(1330000000000L + random.nextInt(1000000000)));
+            article.setViews(random.nextInt(1000000));
+            article.setRating(random.nextDouble() * 5);
+            articles.add(article);
+        }
+        return articles;
+    }
+
+    static List<Comment> comments(int count) {
+        Random random = new Random(42);
+        List<Comment> comments = new ArrayList<Comment>(count);
+        for (int i = 0; i < count; i++) {
+            Comment comment = new Comment();
+            comment.setId("comment-" + i);
+            comment.setArticleId("article-" + random.nextInt(count));
+            comment.setUser("user" + random.nextInt(1000));
+            comment.setText(sentence(random, 8 + random.nextInt(12)));
+            comment.setPosted(new Date(1330000000000L + random.nextInt(1000000000)));
+            comment.setLikes(random.nextInt(100));
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
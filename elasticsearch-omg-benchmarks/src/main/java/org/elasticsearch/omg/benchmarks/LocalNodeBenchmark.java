@@ -0,0 +1,111 @@
+package org.elasticsearch.omg.benchmarks;
+
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.omg.support.bulk.BulkLoadCallback;
+import org.elasticsearch.omg.support.model.query.ComplexQuery;
+import org.elasticsearch.omg.support.model.result.ElasticSearchResults;
+import org.elasticsearch.omg.support.repository.ElasticSearchRepository;
+import org.elasticsearch.omg.support.springframework.ElasticSearchLocalClientFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end index and search through an {@link ElasticSearchRepository} on the embedded local node of
+ * {@link ElasticSearchLocalClientFactory}, so transport costs are left out and the client side shows.
+ *
+ * @author jereanon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalNodeBenchmark {
+
+    private static final int DOCUMENTS = 10000;
+
+    private static final int BULK_SIZE = 100;
+
+    private ElasticSearchLocalClientFactory factory;
+    private ElasticSearchRepository<Article> repository;
+    private List<Article> articles;
+    private List<List<Article>> bulks;
+    private final Random random = new Random(42);
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        factory = new ElasticSearchLocalClientFactory();
+        factory.afterPropertiesSet();
+        repository = new ElasticSearchRepository<Article>(Article.class, factory.getObject(), BULK_SIZE);
+        if (repository.indexExists()) {
+            repository.deleteIndex();
+        }
+        repository.createIndex();
+
+        articles = Documents.articles(DOCUMENTS);
+        repository.bulkLoad(new BulkLoadCallback<Article, Void>() {
+            public Void doInBulkLoad(ElasticSearchRepository<Article> repository) {
+                repository.indexObjects(articles);
+                return null;
+            }
+        });
+        bulks = new ArrayList<List<Article>>();
+        for (int i = 0; i < DOCUMENTS; i += BULK_SIZE) {
+            bulks.add(articles.subList(i, i + BULK_SIZE));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        repository.deleteIndex();
+        factory.destroy();
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % DOCUMENTS;
+        return next;
+    }
+
+    /**
+     * Indexes one document, with the refresh the repository asks for.
+     */
+    @Benchmark
+    public void indexObject() {
+        repository.indexObject(articles.get(nextIndex()));
+    }
+
+    @Benchmark
+    public void indexObjects() {
+        repository.indexObjects(bulks.get(nextIndex() % bulks.size()));
+    }
+
+    @Benchmark
+    public Article getObject() {
+        return repository.getObject(articles.get(nextIndex()).getId());
+    }
+
+    @Benchmark
+    public ElasticSearchResults<Article> search() {
+        ComplexQuery query = new ComplexQuery();
+        query.setBoolQueryBuilder(QueryBuilders.boolQuery()
+                .must(QueryBuilders.termQuery("title.queryable", Documents.word(random))));
+        return repository.executeSearch(query);
+    }
+}
@@ -0,0 +1,88 @@
+package org.elasticsearch.omg.benchmarks;
+
+import org.elasticsearch.omg.samples.Tweet;
+import org.elasticsearch.omg.support.model.mapping.Mapping;
+import org.elasticsearch.omg.support.model.mapping.MappingProperty;
+import org.elasticsearch.omg.util.ElasticSearchMappingUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping generation and id extraction. The <code>reflective</code> benchmarks build the mapping and read the id
+ * through reflection on every call, as happens for a class the first time it is seen; the others go through the
+ * metadata cached per class.
+ *
+ * @author jereanon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private Article article;
+    private Tweet tweet;
+    private Method articleIdMethod;
+
+    @Setup
+    public void setUp() throws Exception {
+        article = Documents.articles(1).get(0);
+        tweet = Documents.tweets(1).get(0);
+        articleIdMethod = Article.class.getMethod("getId");
+    }
+
+    @Benchmark
+    public String mappingTweet() throws Exception {
+        return ElasticSearchMappingUtil.createJSONStringForType(Tweet.class);
+    }
+
+    @Benchmark
+    public String mappingArticle() throws Exception {
+        return ElasticSearchMappingUtil.createJSONStringForType(Article.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String mappingArticleReflective() throws Exception {
+        // the bean info cache would hide the cost of introspecting a class for the first time
+        Introspector.flushFromCaches(Article.class);
+        Mapping mapping = new Mapping();
+        mapping.setMappingName("article");
+        PropertyDescriptor[] descriptors = BeanUtils.getPropertyDescriptors(Article.class);
+        List<MappingProperty> properties = ElasticSearchMappingUtil.createMappingPropertiesFromPropertyDescriptors(descriptors);
+        mapping.getProperties().addAll(properties);
+        return ElasticSearchMappingUtil.getJSONStringFromMapping(mapping);
+    }
+
+    @Benchmark
+    public String idArticle() {
+        return ElasticSearchMappingUtil.getId(article);
+    }
+
+    @Benchmark
+    public String idTweet() {
+        return ElasticSearchMappingUtil.getId(tweet);
+    }
+
+    @Benchmark
+    public Object idArticleReflective() throws Exception {
+        return articleIdMethod.invoke(article);
+    }
+}
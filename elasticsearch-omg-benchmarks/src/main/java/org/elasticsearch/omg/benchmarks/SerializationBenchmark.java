@@ -0,0 +1,162 @@
+package org.elasticsearch.omg.benchmarks;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.omg.samples.Tweet;
+import org.elasticsearch.omg.util.JSONUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of single documents and bulks, and deserialization of search hit sources, through
+ * {@link JSONUtil}. {@link Tweet} and {@link Article} go through their generated codecs, the article handing its
+ * tags and author to Jackson; {@link Comment} has no codec and goes through the ObjectMapper of {@link JSONUtil}. The
+ * <code>jackson</code> benchmarks are the plain ObjectMapper baseline.
+ *
+ * @author jereanon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int BULK_SIZE = 500;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private Tweet tweet;
+    private Article article;
+    private Comment comment;
+    private List<Tweet> tweets;
+    private List<Article> articles;
+    private List<Comment> comments;
+    private String tweetJSON;
+    private String articleJSON;
+    private String commentJSON;
+    private List<byte[]> articleHits;
+
+    @Setup
+    public void setUp() throws Exception {
+        tweets = Documents.tweets(BULK_SIZE);
+        articles = Documents.articles(BULK_SIZE);
+        tweet = tweets.get(0);
+        article = articles.get(0);
+        comments = Documents.comments(BULK_SIZE);
+        comment = comments.get(0);
+        tweetJSON = JSONUtil.serializeToString(tweet);
+        articleJSON = JSONUtil.serializeToString(article);
+        commentJSON = JSONUtil.serializeToString(comment);
+        articleHits = new ArrayList<byte[]>(BULK_SIZE);
+        for (Article each : articles) {
+            articleHits.add(JSONUtil.serializeToString(each).getBytes(UTF8));
+        }
+    }
+
+    @Benchmark
+    public String serializeTweet() {
+        return JSONUtil.serializeToString(tweet);
+    }
+
+    @Benchmark
+    public String serializeTweetJackson() throws Exception {
+        return mapper.writeValueAsString(tweet);
+    }
+
+    @Benchmark
+    public String serializeArticle() {
+        return JSONUtil.serializeToString(article);
+    }
+
+    @Benchmark
+    public String serializeComment() {
+        return JSONUtil.serializeToString(comment);
+    }
+
+    @Benchmark
+    public Tweet deserializeTweet() {
+        return JSONUtil.deserializeToObject(tweetJSON, Tweet.class);
+    }
+
+    @Benchmark
+    public Tweet deserializeTweetJackson() throws Exception {
+        return mapper.readValue(tweetJSON, Tweet.class);
+    }
+
+    @Benchmark
+    public Article deserializeArticle() {
+        return JSONUtil.deserializeToObject(articleJSON, Article.class);
+    }
+
+    @Benchmark
+    public Comment deserializeComment() {
+        return JSONUtil.deserializeToObject(commentJSON, Comment.class);
+    }
+
+    /**
+     * Builds a bulk request the way {@link org.elasticsearch.omg.support.repository.ElasticSearchRepository}
+     * does, without sending it.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BulkRequest bulkTweets() {
+        BulkRequest bulk = new BulkRequest();
+        for (Tweet each : tweets) {
+            bulk.add(new IndexRequest("tweets").type("tweet").source(JSONUtil.serializeToString(each)));
+        }
+        return bulk;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BulkRequest bulkArticles() {
+        BulkRequest bulk = new BulkRequest();
+        for (Article each : articles) {
+            bulk.add(new IndexRequest("benchmark-articles", "article", each.getId())
+                    .source(JSONUtil.serializeToString(each)));
+        }
+        return bulk;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BulkRequest bulkComments() {
+        BulkRequest bulk = new BulkRequest();
+        for (Comment each : comments) {
+            bulk.add(new IndexRequest("benchmark-comments", "comment", each.getId())
+                    .source(JSONUtil.serializeToString(each)));
+        }
+        return bulk;
+    }
+
+    /**
+     * Deserializes a page of hits the way search results are, from the source bytes elastic search returns.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Article> deserializeArticleHits() {
+        List<Article> results = new ArrayList<Article>(articleHits.size());
+        for (byte[] source : articleHits) {
+            results.add(JSONUtil.deserializeToObject(new String(source, UTF8), Article.class));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,190 @@
+package org.elasticsearch.omg.processor;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Discovers java bean properties on source elements the way {@link java.beans.Introspector} discovers them on
+ * compiled classes.
+ *
+ * @author jereanon
+ */
+class BeanIntrospector {
+
+    private final Elements elements;
+    private final Types types;
+
+    BeanIntrospector(Elements elements, Types types) {
+        this.elements = elements;
+        this.types = types;
+    }
+
+    /**
+     * Get the bean properties of a type, sorted by name. Properties declared by {@link Object} are left out.
+     *
+     * @param type the type
+     * @return the properties
+     */
+    public List<BeanProperty> getProperties(TypeElement type) {
+        Map<String, BeanProperty> properties = new TreeMap<String, BeanProperty>();
+        for (ExecutableElement method : getPublicMethods(type)) {
+            String methodName = method.getSimpleName().toString();
+            List<? extends Element> parameters = method.getParameters();
+            TypeMirror returnType = method.getReturnType();
+
+            if (parameters.isEmpty() && returnType.getKind() != TypeKind.VOID) {
+                String propertyName = null;
+                if (methodName.startsWith("get") && methodName.length() > 3) {
+                    propertyName = decapitalize(methodName.substring(3));
+                } else if (methodName.startsWith("is") && methodName.length() > 2 && returnType.getKind() == TypeKind.BOOLEAN) {
+                    propertyName = decapitalize(methodName.substring(2));
+                }
+                if (propertyName != null) {
+                    BeanProperty property = getOrCreate(properties, propertyName);
+                    if (property.getReadMethod() == null) {
+                        property.setReadMethod(method);
+                    }
+                }
+            } else if (parameters.size() == 1 && returnType.getKind() == TypeKind.VOID
+                    && methodName.startsWith("set") && methodName.length() > 3) {
+                BeanProperty property = getOrCreate(properties, decapitalize(methodName.substring(3)));
+                if (property.getWriteMethod() == null) {
+                    property.setWriteMethod(method);
+                }
+            }
+        }
+
+        // a write method only belongs to the property if it accepts what the read method returns
+        List<BeanProperty> retList = new ArrayList<BeanProperty>(properties.size());
+        for (BeanProperty property : properties.values()) {
+            if (property.getReadMethod() != null && property.getWriteMethod() != null) {
+                TypeMirror readType = types.erasure(property.getReadMethod().getReturnType());
+                TypeMirror writeType = types.erasure(property.getWriteMethod().getParameters().get(0).asType());
+                if (!types.isSameType(readType, writeType)) {
+                    property.setWriteMethod(null);
+                }
+            }
+            if (property.getReadMethod() != null || property.getWriteMethod() != null) {
+                retList.add(property);
+            }
+        }
+        return retList;
+    }
+
+    /**
+     * Get the properties of a type with an annotation on their read or write method.
+     *
+     * @param type       the type
+     * @param annotation the annotation
+     * @return the annotated properties
+     */
+    public List<BeanProperty> getPropertiesForAnnotatedMethods(TypeElement type, Class<? extends java.lang.annotation.Annotation> annotation) {
+        List<BeanProperty> retList = new ArrayList<BeanProperty>();
+        for (BeanProperty property : getProperties(type)) {
+            if (property.getAnnotation(annotation) != null) {
+                retList.add(property);
+            }
+        }
+        return retList;
+    }
+
+    /**
+     * Get the public instance methods of a type and its supertypes, the most specific declaration of each
+     * method first. Methods declared by {@link Object} are left out.
+     *
+     * @param type the type
+     * @return the methods
+     */
+    public List<ExecutableElement> getPublicMethods(TypeElement type) {
+        List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        Set<String> signatures = new HashSet<String>();
+        collectPublicMethods(type, methods, signatures, new HashSet<TypeElement>());
+        return methods;
+    }
+
+    private void collectPublicMethods(TypeElement type, List<ExecutableElement> methods, Set<String> signatures, Set<TypeElement> visited) {
+        if (type == null || !visited.add(type) || type.getQualifiedName().contentEquals(Object.class.getName())) {
+            return;
+        }
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            StringBuilder signature = new StringBuilder(method.getSimpleName());
+            for (Element parameter : method.getParameters()) {
+                signature.append(',').append(types.erasure(parameter.asType()));
+            }
+            if (signatures.add(signature.toString())) {
+                methods.add(method);
+            }
+        }
+        collectPublicMethods(asTypeElement(type.getSuperclass()), methods, signatures, visited);
+        for (TypeMirror iface : type.getInterfaces()) {
+            collectPublicMethods(asTypeElement(iface), methods, signatures, visited);
+        }
+    }
+
+    /**
+     * Get the element of a declared type.
+     *
+     * @param type the type
+     * @return the element, or <code>null</code> if the type isn't a declared type
+     */
+    public TypeElement asTypeElement(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        Element element = ((DeclaredType) type).asElement();
+        return element.getKind() == ElementKind.CLASS || element.getKind() == ElementKind.INTERFACE || element.getKind() == ElementKind.ENUM
+                ? (TypeElement) element
+                : null;
+    }
+
+    /**
+     * @return the elements utility this introspector works with
+     */
+    public Elements getElements() {
+        return elements;
+    }
+
+    /**
+     * @return the types utility this introspector works with
+     */
+    public Types getTypes() {
+        return types;
+    }
+
+    private static BeanProperty getOrCreate(Map<String, BeanProperty> properties, String name) {
+        BeanProperty property = properties.get(name);
+        if (property == null) {
+            property = new BeanProperty(name);
+            properties.put(name, property);
+        }
+        return property;
+    }
+
+    /**
+     * Same as {@link java.beans.Introspector#decapitalize(String)}.
+     */
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
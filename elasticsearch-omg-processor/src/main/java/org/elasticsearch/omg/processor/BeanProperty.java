@@ -0,0 +1,90 @@
+package org.elasticsearch.omg.processor;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeMirror;
+import java.lang.annotation.Annotation;
+
+/**
+ * A java bean property discovered on a class being processed, the compile time counterpart of a
+ * {@link java.beans.PropertyDescriptor}.
+ *
+ * @author jereanon
+ */
+class BeanProperty {
+
+    private final String name;
+    private ExecutableElement readMethod;
+    private ExecutableElement writeMethod;
+
+    BeanProperty(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The property name as {@link java.beans.Introspector} would report it, used for mappings.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The property name as Jackson would write it, leading upper case characters are lower cased.
+     *
+     * @return the JSON field name
+     */
+    public String getJsonName() {
+        StringBuilder jsonName = new StringBuilder(name);
+        for (int i = 0; i < jsonName.length(); i++) {
+            char c = jsonName.charAt(i);
+            char lower = Character.toLowerCase(c);
+            if (c == lower) {
+                break;
+            }
+            jsonName.setCharAt(i, lower);
+        }
+        return jsonName.toString();
+    }
+
+    public ExecutableElement getReadMethod() {
+        return readMethod;
+    }
+
+    public void setReadMethod(ExecutableElement readMethod) {
+        this.readMethod = readMethod;
+    }
+
+    public ExecutableElement getWriteMethod() {
+        return writeMethod;
+    }
+
+    public void setWriteMethod(ExecutableElement writeMethod) {
+        this.writeMethod = writeMethod;
+    }
+
+    /**
+     * @return the type of the property
+     */
+    public TypeMirror getType() {
+        return readMethod != null
+                ? readMethod.getReturnType()
+                : writeMethod.getParameters().get(0).asType();
+    }
+
+    /**
+     * Get an annotation from the read method, or the write method if the read method doesn't have it.
+     *
+     * @param annotation the annotation type
+     * @return the annotation, or <code>null</code>
+     */
+    public <A extends Annotation> A getAnnotation(Class<A> annotation) {
+        if (readMethod != null && readMethod.getAnnotation(annotation) != null) {
+            return readMethod.getAnnotation(annotation);
+        }
+        if (writeMethod != null && writeMethod.getAnnotation(annotation) != null) {
+            return writeMethod.getAnnotation(annotation);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+package org.elasticsearch.omg.processor;
+
+import org.elasticsearch.omg.support.ElasticSearchDocument;
+import org.elasticsearch.omg.support.ElasticSearchDocumentId;
+import org.elasticsearch.omg.support.ElasticSearchIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Annotation processor that generates a <code>GeneratedDocumentMetadata</code> implementation for every class
+ * annotated with {@link ElasticSearchDocument} or {@link ElasticSearchIndex}. The generated class carries the
+ * object type, the index name, the mapping JSON, an id accessor and a reflection-free JSON codec, which the
+ * runtime uses instead of inspecting the class through reflection.
+ *
+ * The processor is picked up by javac automatically when this jar is on the compile classpath.
+ *
+ * @author jereanon
+ */
+public class ElasticSearchDocumentProcessor extends AbstractProcessor {
+
+    private static final String DEFAULT_INDEX_NAME_STRATEGY = "org.elasticsearch.omg.support.index.AnnotatedIndexNameStrategy";
+
+    private BeanIntrospector introspector;
+    private MappingGenerator mappingGenerator;
+    private MetadataSourceWriter sourceWriter;
+    private final Set<String> processed = new HashSet<String>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        introspector = new BeanIntrospector(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+        mappingGenerator = new MappingGenerator(introspector);
+        sourceWriter = new MetadataSourceWriter(introspector);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<String>(Arrays.asList(
+                ElasticSearchDocument.class.getName(),
+                ElasticSearchIndex.class.getName()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> documents = new LinkedHashSet<TypeElement>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(ElasticSearchDocument.class)) {
+            documents.add((TypeElement) element);
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(ElasticSearchIndex.class)) {
+            documents.add((TypeElement) element);
+        }
+
+        for (TypeElement document : documents) {
+            if (!processed.add(document.getQualifiedName().toString())) {
+                continue;
+            }
+            if (document.getModifiers().contains(Modifier.PRIVATE) || document.getKind() == ElementKind.ANNOTATION_TYPE) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "Not generating elastic search metadata for inaccessible type", document);
+                continue;
+            }
+            try {
+                generateMetadata(document);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to write elastic search metadata: " + e.getMessage(), document);
+            }
+        }
+        return false;
+    }
+
+    private void generateMetadata(TypeElement document) throws IOException {
+        String objectType = getObjectType(document);
+        String mappingJSON = mappingGenerator.createJSONStringForType(document, objectType);
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(document).getQualifiedName().toString();
+        String className = sourceWriter.getMetadataSimpleName(document);
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                packageName.length() > 0 ? packageName + "." + className : className, document);
+        PrintWriter out = new PrintWriter(file.openWriter());
+        try {
+            ElasticSearchDocumentId docId = getIdAnnotation(document);
+            sourceWriter.write(out, document, objectType, getIndexName(document), mappingJSON, getIdMethod(document),
+                    docId != null, docId != null && docId.autoGenerate());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * The object type, as in <code>ElasticSearchMappingUtil.getObjectType</code>.
+     */
+    private String getObjectType(TypeElement document) {
+        ElasticSearchDocument doc = document.getAnnotation(ElasticSearchDocument.class);
+        return doc != null && doc.typeName().length() > 0
+                ? doc.typeName()
+                : document.getSimpleName().toString();
+    }
+
+    /**
+     * The index name, if the document uses the default strategy. Other strategies are resolved at runtime.
+     */
+    private String getIndexName(TypeElement document) {
+        ElasticSearchIndex index = document.getAnnotation(ElasticSearchIndex.class);
+        if (index == null || !DEFAULT_INDEX_NAME_STRATEGY.equals(index.strategy()) || index.name().length() == 0) {
+            return null;
+        }
+        return index.name();
+    }
+
+    /**
+     * The {@link ElasticSearchDocumentId} annotation of the first annotated accessor, as found through reflection.
+     */
+    private ElasticSearchDocumentId getIdAnnotation(TypeElement document) {
+        for (ExecutableElement method : introspector.getPublicMethods(document)) {
+            ElasticSearchDocumentId docId = method.getAnnotation(ElasticSearchDocumentId.class);
+            if (docId != null) {
+                return docId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The {@link ElasticSearchDocumentId} annotated accessor, unless ids are generated by elastic search.
+     */
+    private ExecutableElement getIdMethod(TypeElement document) {
+        for (ExecutableElement method : introspector.getPublicMethods(document)) {
+            ElasticSearchDocumentId docId = method.getAnnotation(ElasticSearchDocumentId.class);
+            if (docId != null) {
+                if (docId.autoGenerate() || !method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID) {
+                    return null;
+                }
+                return method;
+            }
+        }
+        return null;
+    }
+}
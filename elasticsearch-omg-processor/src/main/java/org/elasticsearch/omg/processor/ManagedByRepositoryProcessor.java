@@ -0,0 +1,140 @@
+package org.elasticsearch.omg.processor;
+
+import org.elasticsearch.omg.support.springframework.ManagedByRepository;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Annotation processor that writes an index of the classes annotated with {@link ManagedByRepository} to
+ * <code>META-INF/elasticsearch-omg/managed-repositories</code>, one <code>beanName=className</code> line per class.
+ * <code>ElasticSearchRepositoryBeanRegistry</code> reads the index instead of scanning the classpath.
+ *
+ * Entries from an earlier compilation are kept as long as their class still exists and is still annotated, so
+ * incremental builds that only recompile some classes leave a complete index.
+ *
+ * @author jereanon
+ */
+public class ManagedByRepositoryProcessor extends AbstractProcessor {
+
+    /**
+     * Must match <code>ElasticSearchRepositoryBeanRegistry.INDEX_RESOURCE</code>.
+     */
+    static final String INDEX_RESOURCE = "META-INF/elasticsearch-omg/managed-repositories";
+
+    private final Map<String, String> managed = new TreeMap<String, String>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ManagedByRepository.class.getName());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(ManagedByRepository.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            managed.put(type.getAnnotation(ManagedByRepository.class).beanName(),
+                    processingEnv.getElementUtils().getBinaryName(type).toString());
+        }
+
+        if (roundEnv.processingOver() && !managed.isEmpty()) {
+            try {
+                readExistingIndex();
+                writeIndex();
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to write " + INDEX_RESOURCE + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private void readExistingIndex() {
+        Reader reader;
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            reader = existing.openReader(true);
+        } catch (IOException e) {
+            // first compilation, nothing to merge
+            return;
+        }
+        try {
+            BufferedReader lines = new BufferedReader(reader);
+            String line;
+            while ((line = lines.readLine()) != null) {
+                int separator = line.indexOf('=');
+                if (line.startsWith("#") || separator < 0) {
+                    continue;
+                }
+                String beanName = line.substring(0, separator).trim();
+                String className = line.substring(separator + 1).trim();
+                if (!managed.containsKey(beanName) && isStillManaged(beanName, className)) {
+                    managed.put(beanName, className);
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Ignoring unreadable " + INDEX_RESOURCE + ": " + e.getMessage());
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+                // nothing left to read
+            }
+        }
+    }
+
+    private boolean isStillManaged(String beanName, String className) {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+        if (type == null) {
+            return false;
+        }
+        ManagedByRepository annotation = type.getAnnotation(ManagedByRepository.class);
+        return annotation != null && annotation.beanName().equals(beanName);
+    }
+
+    private void writeIndex() throws IOException {
+        FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+        PrintWriter out = new PrintWriter(file.openWriter());
+        try {
+            out.println("# classes annotated with @ManagedByRepository, generated by " + getClass().getName());
+            for (Map.Entry<String, String> entry : managed.entrySet()) {
+                out.println(entry.getKey() + "=" + entry.getValue());
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
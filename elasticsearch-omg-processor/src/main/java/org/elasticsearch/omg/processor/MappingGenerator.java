@@ -0,0 +1,213 @@
+package org.elasticsearch.omg.processor;
+
+import org.elasticsearch.omg.support.ElasticSearchDocument;
+import org.elasticsearch.omg.support.ElasticSearchProperty;
+import org.elasticsearch.omg.support.ElasticSearchPropertyType;
+import org.elasticsearch.omg.support.ElasticSearchTermVector;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the mapping JSON of a document at compile time. This follows the rules of
+ * <code>ElasticSearchMappingUtil.createMappingForType</code> and <code>getJSONStringFromMapping</code> and must be
+ * kept in line with them.
+ *
+ * @author jereanon
+ */
+class MappingGenerator {
+
+    private final BeanIntrospector introspector;
+
+    MappingGenerator(BeanIntrospector introspector) {
+        this.introspector = introspector;
+    }
+
+    /**
+     * Create the mapping JSON for a type.
+     *
+     * @param type       the type
+     * @param objectType the elastic search object type
+     * @return the JSON string
+     */
+    public String createJSONStringForType(TypeElement type, String objectType) {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        for (BeanProperty property : introspector.getProperties(type)) {
+            Map<String, Object> node = createMappingProperty(property);
+            if (node != null) {
+                properties.put(property.getName(), node);
+            }
+        }
+
+        Map<String, Object> mapping = new LinkedHashMap<String, Object>();
+        ElasticSearchDocument doc = type.getAnnotation(ElasticSearchDocument.class);
+        if (doc != null && !doc.dynamic()) {
+            mapping.put("dynamic", false);
+        }
+        if (doc != null && !doc.allEnabled()) {
+            Map<String, Object> all = new LinkedHashMap<String, Object>();
+            all.put("enabled", false);
+            mapping.put("_all", all);
+        }
+        Map<String, Object> source = new LinkedHashMap<String, Object>();
+        if (doc != null && doc.compressSource()) {
+            source.put("compress", true);
+            if (doc.compressThreshold().length() > 0) {
+                source.put("compress_threshold", doc.compressThreshold());
+            }
+        }
+        if (doc != null && doc.sourceIncludes().length > 0) {
+            source.put("includes", Arrays.asList(doc.sourceIncludes()));
+        }
+        if (doc != null && doc.sourceExcludes().length > 0) {
+            source.put("excludes", Arrays.asList(doc.sourceExcludes()));
+        }
+        if (!source.isEmpty()) {
+            mapping.put("_source", source);
+        }
+        if (!properties.isEmpty()) {
+            mapping.put("properties", properties);
+        }
+        Map<String, Object> root = new LinkedHashMap<String, Object>();
+        root.put(objectType, mapping);
+
+        StringBuilder json = new StringBuilder();
+        appendJSON(json, root);
+        return json.toString();
+    }
+
+    /**
+     * Create the mapping of a single property, or <code>null</code> if the property isn't mapped.
+     */
+    private Map<String, Object> createMappingProperty(BeanProperty property) {
+        ElasticSearchProperty esProp = property.getAnnotation(ElasticSearchProperty.class);
+        if (esProp == null) {
+            // exit if there is no read method to use for property inspection
+            if (property.getReadMethod() == null) {
+                return null;
+            }
+            TypeMirror type = property.getReadMethod().getReturnType();
+            if (!(type instanceof DeclaredType) || ((DeclaredType) type).getTypeArguments().isEmpty()) {
+                return null;
+            }
+            Map<String, Object> fields = new LinkedHashMap<String, Object>();
+            for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+                TypeElement argumentElement = introspector.asTypeElement(typeArgument);
+                if (argumentElement == null || !((DeclaredType) typeArgument).getTypeArguments().isEmpty()) {
+                    continue;
+                }
+                for (BeanProperty subProperty : introspector.getPropertiesForAnnotatedMethods(argumentElement, ElasticSearchProperty.class)) {
+                    Map<String, Object> node = createMappingProperty(subProperty);
+                    if (node != null) {
+                        fields.put(subProperty.getName(), node);
+                    }
+                }
+            }
+            if (fields.isEmpty()) {
+                return null;
+            }
+            Map<String, Object> node = new LinkedHashMap<String, Object>();
+            node.put("properties", fields);
+            return node;
+        }
+
+        String type = esProp.type().getElasticSearchMappingPropertyType();
+        Map<String, Object> node = new LinkedHashMap<String, Object>();
+        if (!esProp.indexed()) {
+            return createField("no", type, esProp, true);
+        } else if (esProp.filterable() && esProp.freeTextSearchable()) {
+            Map<String, Object> fields = new LinkedHashMap<String, Object>();
+            fields.put(property.getName(), createField("not_analyzed", type, esProp, true));
+            fields.put("queryable", createField("analyzed", type, esProp, false));
+            node.put("type", ElasticSearchPropertyType.MULTI_FIELD.getElasticSearchMappingPropertyType());
+            node.put("fields", fields);
+            return node;
+        } else if (esProp.freeTextSearchable()) {
+            return createField("analyzed", type, esProp, true);
+        }
+        return createField("not_analyzed", type, esProp, true);
+    }
+
+    private static Map<String, Object> createField(String index, String type, ElasticSearchProperty esProp, boolean store) {
+        Map<String, Object> node = new LinkedHashMap<String, Object>();
+        node.put("index", index);
+        node.put("type", type);
+        if (store && esProp.store()) {
+            node.put("store", true);
+        }
+        if (!esProp.includeInAll()) {
+            node.put("include_in_all", false);
+        }
+        if (esProp.omitNorms()) {
+            node.put("omit_norms", true);
+        }
+        if (esProp.omitTermFreqAndPositions()) {
+            node.put("omit_term_freq_and_positions", true);
+        }
+        if (esProp.termVector() != ElasticSearchTermVector.NO) {
+            node.put("term_vector", esProp.termVector().getElasticSearchTermVector());
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendJSON(StringBuilder json, Object value) {
+        if (value instanceof Map) {
+            json.append('{');
+            Iterator<Map.Entry<String, Object>> entries = ((Map<String, Object>) value).entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Object> entry = entries.next();
+                appendJSONString(json, entry.getKey());
+                json.append(':');
+                appendJSON(json, entry.getValue());
+                if (entries.hasNext()) {
+                    json.append(',');
+                }
+            }
+            json.append('}');
+        } else if (value instanceof List) {
+            json.append('[');
+            List<Object> list = new ArrayList<Object>((List<Object>) value);
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                appendJSON(json, list.get(i));
+            }
+            json.append(']');
+        } else if (value instanceof Boolean || value instanceof Number) {
+            json.append(value);
+        } else {
+            appendJSONString(json, String.valueOf(value));
+        }
+    }
+
+    private static void appendJSONString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
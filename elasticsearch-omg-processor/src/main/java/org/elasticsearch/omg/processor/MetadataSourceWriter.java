@@ -0,0 +1,339 @@
+package org.elasticsearch.omg.processor;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the source of a <code>GeneratedDocumentMetadata</code> implementation for a document class.
+ *
+ * The generated serializer and deserializer replace Jackson's bean introspection, so they are only generated
+ * when Jackson's default bean handling is known to give the same result: a public no-arg constructor, no public
+ * fields, no Jackson annotations on the class or its accessors, and a write method for every read method.
+ * They are written as a nested <code>GeneratedDocumentCodec</code>, otherwise none is written, the metadata returns
+ * no codec and the runtime keeps using the ObjectMapper.
+ *
+ * @author jereanon
+ */
+class MetadataSourceWriter {
+
+    static final String METADATA_INTERFACE = "org.elasticsearch.omg.support.metadata.GeneratedDocumentMetadata";
+    static final String CODEC_INTERFACE = "org.elasticsearch.omg.support.metadata.GeneratedDocumentCodec";
+    static final String CLASS_NAME_SUFFIX = "_ElasticSearchMetadata";
+
+    private static final String JACKSON_PACKAGE = "org.codehaus.jackson.";
+
+    /**
+     * Scalars written and read directly, keyed by type: the write call, the token to read directly and the read
+     * call. Any other type goes through the generator's and parser's ObjectCodec.
+     */
+    private static final Map<String, String[]> SCALARS = new HashMap<String, String[]>();
+    static {
+        SCALARS.put("java.lang.String", new String[] {"generator.writeString(%s)", "token == JsonToken.VALUE_STRING", "parser.getText()"});
+        SCALARS.put("int", new String[] {"generator.writeNumber(%s)", "token == JsonToken.VALUE_NUMBER_INT", "parser.getIntValue()"});
+        SCALARS.put("long", new String[] {"generator.writeNumber(%s)", "token == JsonToken.VALUE_NUMBER_INT", "parser.getLongValue()"});
+        SCALARS.put("short", new String[] {"generator.writeNumber(%s)", "token == JsonToken.VALUE_NUMBER_INT", "parser.getShortValue()"});
+        SCALARS.put("double", new String[] {"generator.writeNumber(%s)", "token == JsonToken.VALUE_NUMBER_FLOAT", "parser.getDoubleValue()"});
+        SCALARS.put("float", new String[] {"generator.writeNumber(%s)", "token == JsonToken.VALUE_NUMBER_FLOAT", "parser.getFloatValue()"});
+        SCALARS.put("boolean", new String[] {"generator.writeBoolean(%s)", "(token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE)", "token == JsonToken.VALUE_TRUE"});
+        SCALARS.put("java.lang.Integer", SCALARS.get("int"));
+        SCALARS.put("java.lang.Long", SCALARS.get("long"));
+        SCALARS.put("java.lang.Short", SCALARS.get("short"));
+        SCALARS.put("java.lang.Double", SCALARS.get("double"));
+        SCALARS.put("java.lang.Float", SCALARS.get("float"));
+        SCALARS.put("java.lang.Boolean", SCALARS.get("boolean"));
+        SCALARS.put("java.util.Date", new String[] {"generator.writeNumber(%s.getTime())", "token == JsonToken.VALUE_NUMBER_INT", "new java.util.Date(parser.getLongValue())"});
+    }
+
+    private final BeanIntrospector introspector;
+
+    MetadataSourceWriter(BeanIntrospector introspector) {
+        this.introspector = introspector;
+    }
+
+    /**
+     * Write the metadata class.
+     *
+     * @param out             where to write the source
+     * @param type            the document class
+     * @param objectType      the elastic search object type
+     * @param indexName       the index name, or <code>null</code> if it is resolved at runtime
+     * @param mappingJSON     the rendered mapping
+     * @param idMethod        the id accessor, or <code>null</code> if there is none or ids are generated
+     * @param idAccessor      whether an accessor is annotated as the id
+     * @param idAutoGenerated whether ids are generated by elastic search
+     */
+    public void write(PrintWriter out, TypeElement type, String objectType, String indexName, String mappingJSON,
+                      ExecutableElement idMethod, boolean idAccessor, boolean idAutoGenerated) {
+        String packageName = introspector.getElements().getPackageOf(type).getQualifiedName().toString();
+        String documentName = type.getQualifiedName().toString();
+        String className = getMetadataSimpleName(type);
+        List<BeanProperty> properties = getCodecProperties(type);
+
+        if (packageName.length() > 0) {
+            out.println("package " + packageName + ";");
+            out.println();
+        }
+        if (properties != null) {
+            out.println("import org.codehaus.jackson.JsonGenerator;");
+            out.println("import org.codehaus.jackson.JsonParser;");
+            out.println("import org.codehaus.jackson.JsonToken;");
+            out.println("import org.codehaus.jackson.map.JsonMappingException;");
+            out.println();
+            out.println("import java.io.IOException;");
+            out.println();
+        }
+        out.println("/**");
+        out.println(" * Generated by the elasticsearch-omg annotation processor for {@link " + documentName + "}, do not edit.");
+        out.println(" */");
+        out.println("public final class " + className + " implements " + METADATA_INTERFACE + "<" + documentName + "> {");
+        out.println();
+        out.println("    private static final String MAPPING_JSON = " + javaString(mappingJSON) + ";");
+        out.println();
+        if (properties != null) {
+            out.println("    private static final ElasticSearchCodec CODEC = new ElasticSearchCodec();");
+            out.println();
+        }
+        out.println("    public Class<" + documentName + "> getDocumentClass() {");
+        out.println("        return " + documentName + ".class;");
+        out.println("    }");
+        out.println();
+        out.println("    public String getObjectType() {");
+        out.println("        return " + javaString(objectType) + ";");
+        out.println("    }");
+        out.println();
+        out.println("    public String getIndexName() {");
+        out.println("        return " + (indexName == null ? "null" : javaString(indexName)) + ";");
+        out.println("    }");
+        out.println();
+        out.println("    public String getMappingJSON() {");
+        out.println("        return MAPPING_JSON;");
+        out.println("    }");
+        out.println();
+        out.println("    public String getId(" + documentName + " object) {");
+        if (idMethod == null) {
+            out.println("        return null;");
+        } else if (idMethod.getReturnType().getKind().isPrimitive()) {
+            out.println("        return String.valueOf(object." + idMethod.getSimpleName() + "());");
+        } else {
+            out.println("        Object id = object." + idMethod.getSimpleName() + "();");
+            out.println("        return id == null ? null : id.toString();");
+        }
+        out.println("    }");
+        out.println();
+        out.println("    public boolean hasIdAccessor() {");
+        out.println("        return " + idAccessor + ";");
+        out.println("    }");
+        out.println();
+        out.println("    public boolean isIdAutoGenerated() {");
+        out.println("        return " + idAutoGenerated + ";");
+        out.println("    }");
+        out.println();
+        out.println("    public " + CODEC_INTERFACE + "<" + documentName + "> getCodec() {");
+        out.println("        return " + (properties != null ? "CODEC" : "null") + ";");
+        out.println("    }");
+        if (properties != null) {
+            out.println();
+            out.println("    private static final class ElasticSearchCodec implements " + CODEC_INTERFACE + "<" + documentName + "> {");
+            out.println();
+            writeSerialize(out, documentName, properties);
+            out.println();
+            writeDeserialize(out, documentName, properties);
+            out.println("    }");
+        }
+        out.println("}");
+    }
+
+    private void writeSerialize(PrintWriter out, String documentName, List<BeanProperty> properties) {
+        out.println("        public void serialize(" + documentName + " object, JsonGenerator generator) throws IOException {");
+        out.println("            if (object == null) {");
+        out.println("                generator.writeNull();");
+        out.println("                return;");
+        out.println("            }");
+        out.println("            generator.writeStartObject();");
+        for (BeanProperty property : properties) {
+            if (property.getReadMethod() == null) {
+                continue;
+            }
+            String typeName = typeName(property.getType());
+            String[] scalar = SCALARS.get(typeName);
+            String getter = "object." + property.getReadMethod().getSimpleName() + "()";
+            out.println("            generator.writeFieldName(" + javaString(property.getJsonName()) + ");");
+            if (scalar == null) {
+                out.println("            generator.writeObject(" + getter + ");");
+            } else if (property.getType().getKind().isPrimitive()) {
+                out.println("            " + String.format(scalar[0], getter) + ";");
+            } else {
+                String variable = "_" + property.getName();
+                out.println("            " + typeName + " " + variable + " = " + getter + ";");
+                out.println("            if (" + variable + " == null) {");
+                out.println("                generator.writeNull();");
+                out.println("            } else {");
+                out.println("                " + String.format(scalar[0], variable) + ";");
+                out.println("            }");
+            }
+        }
+        out.println("            generator.writeEndObject();");
+        out.println("        }");
+    }
+
+    private void writeDeserialize(PrintWriter out, String documentName, List<BeanProperty> properties) {
+        out.println("        public " + documentName + " deserialize(JsonParser parser) throws IOException {");
+        out.println("            JsonToken token = parser.getCurrentToken();");
+        out.println("            if (token == null) {");
+        out.println("                token = parser.nextToken();");
+        out.println("            }");
+        out.println("            if (token == JsonToken.VALUE_NULL) {");
+        out.println("                return null;");
+        out.println("            }");
+        out.println("            if (token != JsonToken.START_OBJECT) {");
+        out.println("                throw new JsonMappingException(\"Can not deserialize instance of " + documentName + " out of \" + token + \" token\", parser.getCurrentLocation());");
+        out.println("            }");
+        out.println("            " + documentName + " object = new " + documentName + "();");
+        out.println("            while (parser.nextToken() == JsonToken.FIELD_NAME) {");
+        out.println("                String field = parser.getCurrentName();");
+        out.println("                token = parser.nextToken();");
+        String keyword = "if";
+        for (BeanProperty property : properties) {
+            if (property.getWriteMethod() == null) {
+                continue;
+            }
+            TypeMirror type = property.getType();
+            String typeName = typeName(type);
+            String[] scalar = SCALARS.get(typeName);
+            String setter = "object." + property.getWriteMethod().getSimpleName();
+            out.println("                " + keyword + " (" + javaString(property.getJsonName()) + ".equals(field)) {");
+            if (type.getKind().isPrimitive()) {
+                String boxed = introspector.getTypes().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+                out.println("                    if (token != JsonToken.VALUE_NULL) {");
+                out.println("                        " + setter + "(" + scalar[1] + " ? " + scalar[2] + " : parser.readValueAs(" + boxed + ".class)." + typeName + "Value());");
+                out.println("                    }");
+            } else if (scalar != null) {
+                // box the direct read so a null from the codec isn't unboxed by the conditional
+                String read = typeName.startsWith("java.lang.") && !typeName.equals("java.lang.String")
+                        ? typeName + ".valueOf(" + scalar[2] + ")"
+                        : scalar[2];
+                out.println("                    " + setter + "(" + scalar[1] + " ? " + read + " : parser.readValueAs(" + typeName + ".class));");
+            } else if (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+                out.println("                    " + setter + "(parser.<" + type + ">readValueAs(new org.codehaus.jackson.type.TypeReference<" + type + ">() {}));");
+            } else {
+                out.println("                    " + setter + "(parser.readValueAs(" + typeName + ".class));");
+            }
+            keyword = "} else if";
+        }
+        if (keyword.equals("if")) {
+            out.println("                {");
+        } else {
+            out.println("                } else {");
+        }
+        out.println("                    throw new JsonMappingException(\"Unrecognized field \\\"\" + field + \"\\\" (Class " + documentName + "), not marked as ignorable\", parser.getCurrentLocation());");
+        out.println("                }");
+        out.println("            }");
+        out.println("            return object;");
+        out.println("        }");
+    }
+
+    /**
+     * Get the properties handled by the generated codec, or <code>null</code> if no codec can be generated for
+     * the type.
+     */
+    private List<BeanProperty> getCodecProperties(TypeElement type) {
+        if (!type.getModifiers().contains(Modifier.PUBLIC) || type.getModifiers().contains(Modifier.ABSTRACT)
+                || type.getKind() != ElementKind.CLASS || !type.getTypeParameters().isEmpty()
+                || (type.getNestingKind() != NestingKind.TOP_LEVEL && !type.getModifiers().contains(Modifier.STATIC))
+                || hasJacksonAnnotation(type.getAnnotationMirrors())) {
+            return null;
+        }
+
+        boolean hasDefaultConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                hasDefaultConstructor = true;
+            }
+        }
+        if (!hasDefaultConstructor) {
+            return null;
+        }
+
+        for (TypeElement current = type; current != null; current = introspector.asTypeElement(current.getSuperclass())) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.PUBLIC) && !field.getModifiers().contains(Modifier.STATIC)) {
+                    return null;
+                }
+            }
+        }
+
+        List<BeanProperty> properties = new ArrayList<BeanProperty>();
+        for (BeanProperty property : introspector.getProperties(type)) {
+            if (property.getReadMethod() != null && property.getWriteMethod() == null) {
+                return null;
+            }
+            if ((property.getReadMethod() != null && hasJacksonAnnotation(property.getReadMethod().getAnnotationMirrors()))
+                    || (property.getWriteMethod() != null && hasJacksonAnnotation(property.getWriteMethod().getAnnotationMirrors()))) {
+                return null;
+            }
+            TypeMirror propertyType = property.getType();
+            if (propertyType.getKind() == TypeKind.TYPEVAR || propertyType.getKind() == TypeKind.WILDCARD
+                    || (propertyType.getKind().isPrimitive() && !SCALARS.containsKey(propertyType.toString()))
+                    || (propertyType.getKind() == TypeKind.ARRAY && ((ArrayType) propertyType).getComponentType().getKind() == TypeKind.TYPEVAR)) {
+                return null;
+            }
+            properties.add(property);
+        }
+        return properties;
+    }
+
+    private String typeName(TypeMirror type) {
+        return introspector.getTypes().erasure(type).toString();
+    }
+
+    private static boolean hasJacksonAnnotation(List<? extends AnnotationMirror> annotations) {
+        for (AnnotationMirror annotation : annotations) {
+            if (annotation.getAnnotationType().toString().startsWith(JACKSON_PACKAGE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the simple name of the metadata class generated for a type. Nested types are flattened into the name.
+     *
+     * @param type the document type
+     * @return the simple name
+     */
+    public String getMetadataSimpleName(TypeElement type) {
+        String binaryName = introspector.getElements().getBinaryName(type).toString();
+        return binaryName.substring(binaryName.lastIndexOf('.') + 1) + CLASS_NAME_SUFFIX;
+    }
+
+    private static String javaString(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
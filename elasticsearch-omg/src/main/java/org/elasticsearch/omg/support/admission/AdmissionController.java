@@ -0,0 +1,268 @@
+package org.elasticsearch.omg.support.admission;
+
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the reads and the writes a repository has in flight at once, so a burst of operations waits, or fails fast,
+ * in the application instead of filling the thread pool queues of the cluster and being rejected there. Reads and
+ * writes have limits of their own so a bulk load doesn't starve searches.
+ *
+ * An operation over the limit waits in a bounded queue for a slot, it is rejected with an
+ * {@link AdmissionRejectedException} when the queue is full or it waited for too long.
+ *
+ * In adaptive mode the limits follow the latency the way TCP follows packet loss: while the average latency is over
+ * the target a limit is cut by the backoff ratio, at most once per target latency, and while it is under the limit
+ * grows by about one per round of requests, up to the configured maximum.
+ *
+ * @author jereanon
+ */
+public class AdmissionController implements AdmissionControllerMBean {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    private final Lane reads = new Lane("read");
+
+    private final Lane writes = new Lane("write");
+
+    private volatile AdmissionOptions options;
+
+    public AdmissionController() {
+        this(new AdmissionOptions());
+    }
+
+    public AdmissionController(AdmissionOptions options) {
+        configure(options);
+    }
+
+    /**
+     * Change the limits, the current adaptive limits start over from the maximums.
+     *
+     * @param options the limits
+     */
+    public void configure(AdmissionOptions options) {
+        this.options = options;
+        reads.configure(options.getMaxConcurrentReads());
+        writes.configure(options.getMaxConcurrentWrites());
+    }
+
+    public AdmissionOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Wait for a slot for a read.
+     *
+     * @throws AdmissionRejectedException if there is no slot in time
+     * @throws ElasticSearchOMGException  if interrupted while waiting
+     */
+    public void acquireRead() throws AdmissionRejectedException {
+        reads.acquire();
+    }
+
+    /**
+     * Give back the slot of a read.
+     *
+     * @param startNanos when the read was sent, from {@link System#nanoTime()}
+     */
+    public void releaseRead(long startNanos) {
+        reads.release(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Wait for a slot for a write.
+     *
+     * @throws AdmissionRejectedException if there is no slot in time
+     * @throws ElasticSearchOMGException  if interrupted while waiting
+     */
+    public void acquireWrite() throws AdmissionRejectedException {
+        writes.acquire();
+    }
+
+    /**
+     * Give back the slot of a write.
+     *
+     * @param startNanos when the write was sent, from {@link System#nanoTime()}
+     */
+    public void releaseWrite(long startNanos) {
+        writes.release(System.nanoTime() - startNanos);
+    }
+
+    public int getReadLimit() {
+        return reads.getLimit();
+    }
+
+    public int getReadsInFlight() {
+        return reads.inFlight;
+    }
+
+    public int getQueuedReads() {
+        return reads.queued;
+    }
+
+    public long getRejectedReads() {
+        return reads.rejected.get();
+    }
+
+    public double getReadLatencyMillis() {
+        return reads.latencyNanos / 1000000d;
+    }
+
+    public int getWriteLimit() {
+        return writes.getLimit();
+    }
+
+    public int getWritesInFlight() {
+        return writes.inFlight;
+    }
+
+    public int getQueuedWrites() {
+        return writes.queued;
+    }
+
+    public long getRejectedWrites() {
+        return writes.rejected.get();
+    }
+
+    public double getWriteLatencyMillis() {
+        return writes.latencyNanos / 1000000d;
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionController[reads="+reads+", writes="+writes+"]";
+    }
+
+    /**
+     * The slots of one kind of operation.
+     */
+    private class Lane {
+
+        private final String name;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition available = lock.newCondition();
+
+        private final AtomicLong rejected = new AtomicLong();
+
+        private int maxLimit;
+
+        private double limit;
+
+        private volatile int inFlight;
+
+        private volatile int queued;
+
+        private volatile double latencyNanos;
+
+        private long lastDecreaseNanos;
+
+        private Lane(String name) {
+            this.name = name;
+        }
+
+        private void configure(int maxLimit) {
+            lock.lock();
+            try {
+                this.maxLimit = maxLimit;
+                limit = maxLimit;
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int getLimit() {
+            lock.lock();
+            try {
+                return maxLimit > 0 ? (int) limit : 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean hasSlot() {
+            return maxLimit <= 0 || inFlight < (int) limit;
+        }
+
+        private void acquire() {
+            lock.lock();
+            try {
+                if (hasSlot()) {
+                    inFlight++;
+                    return;
+                }
+                AdmissionOptions current = options;
+                if (queued >= current.getMaxQueued()) {
+                    rejected.incrementAndGet();
+                    throw new AdmissionRejectedException("Too many "+name+"s in flight: "+inFlight+" and queued: "+queued);
+                }
+                queued++;
+                try {
+                    long remaining = TimeUnit.MILLISECONDS.toNanos(current.getQueueTimeoutMillis());
+                    while (!hasSlot()) {
+                        if (remaining <= 0) {
+                            rejected.incrementAndGet();
+                            throw new AdmissionRejectedException("No "+name+" slot free within "
+                                    +current.getQueueTimeoutMillis()+"ms, in flight: "+inFlight);
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ElasticSearchOMGException("Interrupted waiting for a "+name+" slot", e);
+                } finally {
+                    queued--;
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(long elapsedNanos) {
+            lock.lock();
+            try {
+                inFlight--;
+                latencyNanos = latencyNanos == 0
+                        ? elapsedNanos
+                        : 0.2 * elapsedNanos + 0.8 * latencyNanos;
+                AdmissionOptions current = options;
+                if (current.isAdaptive() && maxLimit > 0) {
+                    adapt(current);
+                }
+                if (hasSlot()) {
+                    available.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void adapt(AdmissionOptions current) {
+            long target = TimeUnit.MILLISECONDS.toNanos(current.getTargetLatencyMillis());
+            long now = System.nanoTime();
+            if (latencyNanos > target) {
+                if (now - lastDecreaseNanos >= target && limit > current.getMinConcurrency()) {
+                    limit = Math.max(current.getMinConcurrency(), limit * current.getBackoffRatio());
+                    lastDecreaseNanos = now;
+                    logger.debug("Latency of "+name+"s: "+latencyNanos / 1000000d+"ms is over the target, limit lowered to: "+(int) limit);
+                }
+            } else if (inFlight + 1 >= (int) limit && limit < maxLimit) {
+                // only grow while the limit is what holds operations back
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "[limit="+getLimit()+", inFlight="+inFlight+", queued="+queued+", rejected="+rejected.get()+"]";
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.elasticsearch.omg.support.admission;
+
+/**
+ * The JMX view of {@link AdmissionController}. Latencies are in milliseconds.
+ *
+ * @author jereanon
+ */
+public interface AdmissionControllerMBean {
+
+    int getReadLimit();
+
+    int getReadsInFlight();
+
+    int getQueuedReads();
+
+    long getRejectedReads();
+
+    double getReadLatencyMillis();
+
+    int getWriteLimit();
+
+    int getWritesInFlight();
+
+    int getQueuedWrites();
+
+    long getRejectedWrites();
+
+    double getWriteLatencyMillis();
+}
@@ -0,0 +1,138 @@
+package org.elasticsearch.omg.support.admission;
+
+/**
+ * Limits of an {@link AdmissionController}, the defaults don't limit anything.
+ *
+ * @author jereanon
+ */
+public class AdmissionOptions {
+
+    private int maxConcurrentReads;
+
+    private int maxConcurrentWrites;
+
+    private int maxQueued = 100;
+
+    private long queueTimeoutMillis = 1000;
+
+    private boolean adaptive;
+
+    private long targetLatencyMillis = 500;
+
+    private int minConcurrency = 1;
+
+    private double backoffRatio = 0.9;
+
+    /**
+     * The most gets and searches in flight at once.
+     *
+     * @return the limit, zero or less for none
+     */
+    public int getMaxConcurrentReads() {
+        return maxConcurrentReads;
+    }
+
+    public AdmissionOptions setMaxConcurrentReads(int maxConcurrentReads) {
+        this.maxConcurrentReads = maxConcurrentReads;
+        return this;
+    }
+
+    /**
+     * The most index, delete and bulk requests in flight at once.
+     *
+     * @return the limit, zero or less for none
+     */
+    public int getMaxConcurrentWrites() {
+        return maxConcurrentWrites;
+    }
+
+    public AdmissionOptions setMaxConcurrentWrites(int maxConcurrentWrites) {
+        this.maxConcurrentWrites = maxConcurrentWrites;
+        return this;
+    }
+
+    /**
+     * The most reads, and the most writes, waiting for a slot. Operations beyond that are rejected at once.
+     *
+     * @return the queue size, zero to never wait
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public AdmissionOptions setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * How long an operation waits for a slot before it is rejected, in milliseconds.
+     *
+     * @return the timeout
+     */
+    public long getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    public AdmissionOptions setQueueTimeoutMillis(long queueTimeoutMillis) {
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Whether the limits are lowered while the latency is over the target, and raised back towards the maximums
+     * while it is under.
+     *
+     * @return true if adaptive
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public AdmissionOptions setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * The latency the adaptive limits aim to stay under, in milliseconds.
+     *
+     * @return the target
+     */
+    public long getTargetLatencyMillis() {
+        return targetLatencyMillis;
+    }
+
+    public AdmissionOptions setTargetLatencyMillis(long targetLatencyMillis) {
+        this.targetLatencyMillis = targetLatencyMillis;
+        return this;
+    }
+
+    /**
+     * The lowest an adaptive limit goes.
+     *
+     * @return the minimum
+     */
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public AdmissionOptions setMinConcurrency(int minConcurrency) {
+        this.minConcurrency = minConcurrency;
+        return this;
+    }
+
+    /**
+     * What an adaptive limit is multiplied by when the latency is over the target.
+     *
+     * @return the ratio, between 0 and 1
+     */
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public AdmissionOptions setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+        return this;
+    }
+}
@@ -0,0 +1,16 @@
+package org.elasticsearch.omg.support.admission;
+
+import org.elasticsearch.omg.ElasticSearchOMGException;
+
+/**
+ * Thrown when a repository operation isn't let through to the cluster, because too many are already in flight and
+ * the queue is full or the operation waited in it for too long. The operation wasn't sent, it can be retried later.
+ *
+ * @author jereanon
+ */
+public class AdmissionRejectedException extends ElasticSearchOMGException {
+
+    public AdmissionRejectedException(String s) {
+        super(s);
+    }
+}
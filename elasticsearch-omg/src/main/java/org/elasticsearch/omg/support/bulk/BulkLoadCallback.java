@@ -0,0 +1,19 @@
+package org.elasticsearch.omg.support.bulk;
+
+import org.elasticsearch.omg.support.repository.ElasticSearchRepository;
+
+/**
+ * The work run inside a bulk-load session of an {@link ElasticSearchRepository}.
+ *
+ * @author jereanon
+ */
+public interface BulkLoadCallback<T, R> {
+
+    /**
+     * Load the documents, typically with {@link ElasticSearchRepository#indexObjects(java.util.List)}.
+     *
+     * @param repository the repository the session was opened on
+     * @return a result handed back to the caller of the session
+     */
+    R doInBulkLoad(ElasticSearchRepository<T> repository);
+}
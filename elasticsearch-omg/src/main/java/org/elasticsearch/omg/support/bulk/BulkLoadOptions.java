@@ -0,0 +1,133 @@
+package org.elasticsearch.omg.support.bulk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How an index is tuned for a bulk-load session. By default refreshing is turned off and replicas are dropped while
+ * loading, and the index is refreshed once the original settings are back.
+ *
+ * @author jereanon
+ */
+public class BulkLoadOptions {
+
+    public static final String REFRESH_INTERVAL = "index.refresh_interval";
+
+    public static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+
+    /**
+     * Values elastic search uses for settings an index doesn't set itself, restored after the session.
+     */
+    private static final Map<String, String> DEFAULTS = new HashMap<String, String>();
+
+    static {
+        DEFAULTS.put(REFRESH_INTERVAL, "1s");
+        DEFAULTS.put("index.merge.policy.segments_per_tier", "10");
+        DEFAULTS.put("index.merge.policy.max_merge_at_once", "10");
+        DEFAULTS.put("index.merge.policy.merge_factor", "10");
+        DEFAULTS.put("index.merge.policy.floor_segment", "2mb");
+    }
+
+    private boolean suspendRefresh = true;
+
+    private boolean suspendReplicas = true;
+
+    private Map<String, String> mergeSettings = new HashMap<String, String>();
+
+    private boolean optimize;
+
+    private int maxNumSegments = -1;
+
+    /**
+     * The value a setting goes back to after the session when the index didn't set it.
+     *
+     * @param key the setting
+     * @return the default value, or <code>null</code> if not known
+     */
+    public static String getDefault(String key) {
+        return DEFAULTS.get(key);
+    }
+
+    /**
+     * Whether <code>index.refresh_interval</code> is set to -1 while loading.
+     *
+     * @return true to turn refreshing off
+     */
+    public boolean isSuspendRefresh() {
+        return suspendRefresh;
+    }
+
+    public BulkLoadOptions setSuspendRefresh(boolean suspendRefresh) {
+        this.suspendRefresh = suspendRefresh;
+        return this;
+    }
+
+    /**
+     * Whether <code>index.number_of_replicas</code> is set to 0 while loading. The replicas are rebuilt from the
+     * primaries afterwards, until then the documents are held by one copy only.
+     *
+     * @return true to drop the replicas
+     */
+    public boolean isSuspendReplicas() {
+        return suspendReplicas;
+    }
+
+    public BulkLoadOptions setSuspendReplicas(boolean suspendReplicas) {
+        this.suspendReplicas = suspendReplicas;
+        return this;
+    }
+
+    /**
+     * Merge policy settings applied while loading, e.g. a larger <code>index.merge.policy.segments_per_tier</code>.
+     *
+     * @return the settings
+     */
+    public Map<String, String> getMergeSettings() {
+        return mergeSettings;
+    }
+
+    public BulkLoadOptions setMergeSettings(Map<String, String> mergeSettings) {
+        this.mergeSettings = mergeSettings != null ? mergeSettings : new HashMap<String, String>();
+        return this;
+    }
+
+    /**
+     * Apply a merge policy setting while loading.
+     *
+     * @param key   the setting
+     * @param value the value
+     * @return these options
+     */
+    public BulkLoadOptions putMergeSetting(String key, String value) {
+        mergeSettings.put(key, value);
+        return this;
+    }
+
+    /**
+     * Whether the index is optimized after a successful load.
+     *
+     * @return true to optimize
+     */
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    public BulkLoadOptions setOptimize(boolean optimize) {
+        this.optimize = optimize;
+        return this;
+    }
+
+    /**
+     * The number of segments to optimize down to, -1 to let elastic search decide.
+     *
+     * @return the segment count
+     */
+    public int getMaxNumSegments() {
+        return maxNumSegments;
+    }
+
+    public BulkLoadOptions setMaxNumSegments(int maxNumSegments) {
+        this.maxNumSegments = maxNumSegments;
+        return this;
+    }
+}
@@ -0,0 +1,94 @@
+package org.elasticsearch.omg.support.bulk;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of a bulk operation streamed through a repository, item by item. Only the failed items are kept, so
+ * the result stays small however many documents went through.
+ *
+ * @author jereanon
+ */
+public class BulkResult {
+
+    private long succeeded;
+
+    private long notFound;
+
+    private final Map<String, String> failures = new LinkedHashMap<String, String>();
+
+    /**
+     * Count an item elastic search applied.
+     */
+    public void onSuccess() {
+        succeeded++;
+    }
+
+    /**
+     * Count a delete of a document that didn't exist.
+     */
+    public void onNotFound() {
+        notFound++;
+    }
+
+    /**
+     * Record an item that failed.
+     *
+     * @param id      the id of the document, may be <code>null</code> for a document without id
+     * @param message why it failed
+     */
+    public void onFailure(String id, String message) {
+        failures.put(id, message);
+    }
+
+    /**
+     * The number of items applied, not found deletes excluded.
+     *
+     * @return the number
+     */
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * The number of deletes of documents that didn't exist.
+     *
+     * @return the number
+     */
+    public long getNotFound() {
+        return notFound;
+    }
+
+    /**
+     * The failed items, in the order they failed.
+     *
+     * @return the failure message by document id
+     */
+    public Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Whether a bulk item failed for lack of capacity in the cluster, sending it again later can succeed: a thread
+     * pool of a node rejected it, a <code>ThreadPoolRejectedException</code> or the
+     * <code>RejectedExecutionException</code> of a bounded queue, or its shard wasn't available.
+     *
+     * @param failureMessage the failure message of the item
+     * @return true if the item can be retried
+     */
+    public static boolean isRetryable(String failureMessage) {
+        return failureMessage != null && (failureMessage.contains("ThreadPoolRejectedException")
+                || failureMessage.contains("RejectedExecutionException")
+                || failureMessage.contains("UnavailableShardsException"));
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult[succeeded="+succeeded+", notFound="+notFound+", failed="+failures.size()+"]";
+    }
+}
@@ -0,0 +1,382 @@
+package org.elasticsearch.omg.support.client;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.AdminClient;
+import org.elasticsearch.client.support.AbstractClient;
+import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.ConnectTransportException;
+import org.elasticsearch.transport.ReceiveTimeoutTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link org.elasticsearch.client.Client} that sends each request to one of the fastest healthy nodes, instead of
+ * going round robin over all of them like a plain {@link TransportClient}.
+ *
+ * Every node gets a {@link TransportClient} of its own, so requests can be sent to it alone. The round trip of every
+ * request and of a periodic ping updates an exponentially weighted moving average of the latency of the node. Bulk
+ * requests take far longer than the rest, they are averaged apart and only rank nodes for other bulk requests. A
+ * request goes to the better of two randomly picked healthy nodes, scored by latency and requests in flight, which
+ * keeps a slow node from dragging down the tail without piling everything onto the single fastest node. A node stops
+ * being healthy after too many connection failures in a row, and is healthy again once it answers a ping.
+ *
+ * A request that fails to connect to its node is sent once more to another healthy node, as a
+ * {@link TransportClient} does, before it fails. A request that times out waiting for its answer isn't, the node may
+ * have applied it already, the timeout only counts against the health of the node.
+ *
+ * With sniffing on, the nodes of the cluster are discovered from the seed addresses and refreshed at every ping.
+ *
+ * @author jereanon
+ */
+public class LatencyAwareClient extends AbstractClient {
+    private static final Logger logger = LoggerFactory.getLogger(LatencyAwareClient.class);
+
+    private final Settings settings;
+
+    private final TransportClient discoveryClient;
+
+    private final boolean sniff;
+
+    private final double alpha;
+
+    private final int failureThreshold;
+
+    private final TimeValue nodeTimeout;
+
+    private final ConcurrentMap<TransportAddress, Node> nodes = new ConcurrentHashMap<TransportAddress, Node>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Random random = new Random();
+
+    /**
+     * @param settings         the settings of the transport clients, e.g. connections per node
+     * @param addresses        the seed addresses
+     * @param sniff            whether to discover the other nodes of the cluster from the seeds
+     * @param pingInterval     how often nodes are pinged and the cluster sniffed
+     * @param nodeTimeout      how long a ping waits for an answer
+     * @param alpha            the weight of the newest sample in the latency average, between 0 and 1
+     * @param failureThreshold the connection failures in a row after which a node isn't healthy
+     */
+    public LatencyAwareClient(Settings settings, Collection<? extends TransportAddress> addresses, boolean sniff,
+                              TimeValue pingInterval, TimeValue nodeTimeout, double alpha, int failureThreshold) {
+        this.settings = ImmutableSettings.settingsBuilder()
+                .put(settings)
+                .put("client.transport.sniff", false)
+                .build();
+        this.sniff = sniff;
+        this.alpha = alpha;
+        this.failureThreshold = failureThreshold;
+        this.nodeTimeout = nodeTimeout;
+
+        // serves the thread pool, and requests when no node is known yet
+        discoveryClient = new TransportClient(ImmutableSettings.settingsBuilder()
+                .put(settings)
+                .put("client.transport.sniff", sniff));
+        for (TransportAddress address : addresses) {
+            discoveryClient.addTransportAddress(address);
+        }
+        refreshNodes(addresses);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("omg-latency-ping"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    if (LatencyAwareClient.this.sniff) {
+                        List<TransportAddress> discovered = new ArrayList<TransportAddress>();
+                        for (DiscoveryNode node : discoveryClient.connectedNodes()) {
+                            discovered.add(node.address());
+                        }
+                        if (!discovered.isEmpty()) {
+                            refreshNodes(discovered);
+                        }
+                    }
+                    pingNodes();
+                } catch (Exception e) {
+                    logger.warn("Error pinging nodes", e);
+                }
+            }
+        }, pingInterval.millis(), pingInterval.millis(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void refreshNodes(Collection<? extends TransportAddress> addresses) {
+        Set<TransportAddress> current = new HashSet<TransportAddress>(addresses);
+        for (TransportAddress address : current) {
+            if (!nodes.containsKey(address)) {
+                logger.info("Adding node: "+address);
+                TransportClient client = new TransportClient(settings);
+                client.addTransportAddress(address);
+                nodes.put(address, new Node(address, client));
+            }
+        }
+        for (Map.Entry<TransportAddress, Node> entry : nodes.entrySet()) {
+            if (!current.contains(entry.getKey())) {
+                logger.info("Removing node: "+entry.getKey());
+                nodes.remove(entry.getKey());
+                entry.getValue().client.close();
+            }
+        }
+    }
+
+    private void pingNodes() {
+        for (Node node : nodes.values()) {
+            long start = System.nanoTime();
+            try {
+                node.client.admin().cluster().prepareNodesInfo("_local")
+                        .clear()
+                        .execute()
+                        .actionGet(nodeTimeout);
+                node.onSuccess(System.nanoTime() - start, false);
+                node.lastPingMillis = System.currentTimeMillis();
+            } catch (Exception e) {
+                logger.debug("Ping of node: "+node.address+" failed", e);
+                node.onConnectionFailure();
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Node stats: "+getNodeStats());
+        }
+    }
+
+    /**
+     * Pick the node for a request.
+     *
+     * @param bulk     whether the request is a bulk, ranking nodes by their bulk latency
+     * @param excluded a node not to pick, or <code>null</code>
+     */
+    private Node selectNode(boolean bulk, Node excluded) {
+        List<Node> healthy = new ArrayList<Node>(nodes.size());
+        for (Node node : nodes.values()) {
+            if (node.healthy && node != excluded) {
+                healthy.add(node);
+            }
+        }
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        if (healthy.size() == 1) {
+            return healthy.get(0);
+        }
+        int first = random.nextInt(healthy.size());
+        int second = random.nextInt(healthy.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Node a = healthy.get(first);
+        Node b = healthy.get(second);
+        return a.score(bulk) <= b.score(bulk) ? a : b;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response>>
+            ActionFuture<Response> execute(Action<Request, Response, RequestBuilder> action, Request request) {
+        PlainActionFuture<Response> future = PlainActionFuture.newFuture();
+        execute(action, request, future);
+        return future;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response>>
+            void execute(Action<Request, Response, RequestBuilder> action, Request request, ActionListener<Response> listener) {
+        boolean bulk = request instanceof BulkRequest;
+        Node node = selectNode(bulk, null);
+        if (node == null) {
+            discoveryClient.execute(action, request, listener);
+            return;
+        }
+        execute(node, bulk, true, action, request, listener);
+    }
+
+    /**
+     * Send a request to a node, and once more to another node if it can't connect to this one.
+     */
+    private <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response>>
+            void execute(final Node node, final boolean bulk, final boolean retry, final Action<Request, Response, RequestBuilder> action,
+                         final Request request, final ActionListener<Response> listener) {
+        final long start = System.nanoTime();
+        node.inFlight.incrementAndGet();
+        node.requests.incrementAndGet();
+        ActionListener<Response> nodeListener = new ActionListener<Response>() {
+            public void onResponse(Response response) {
+                node.inFlight.decrementAndGet();
+                node.onSuccess(System.nanoTime() - start, bulk);
+                listener.onResponse(response);
+            }
+
+            public void onFailure(Throwable e) {
+                node.inFlight.decrementAndGet();
+                Throwable cause = ExceptionsHelper.unwrapCause(e);
+                if (cause instanceof ConnectTransportException || cause instanceof NoNodeAvailableException) {
+                    node.failures.incrementAndGet();
+                    node.onConnectionFailure();
+                    Node next = retry ? selectNode(bulk, node) : null;
+                    if (next != null) {
+                        logger.debug("Request to node: "+node.address+" failed, retrying on node: "+next.address, e);
+                        execute(next, bulk, false, action, request, listener);
+                        return;
+                    }
+                } else if (cause instanceof ReceiveTimeoutTransportException) {
+                    // the node may have applied the request, it counts against the node but isn't sent again
+                    node.failures.incrementAndGet();
+                    node.onConnectionFailure();
+                } else {
+                    // the node answered, with an error of the request
+                    node.onSuccess(System.nanoTime() - start, bulk);
+                }
+                listener.onFailure(e);
+            }
+        };
+        try {
+            node.client.execute(action, request, nodeListener);
+        } catch (Exception e) {
+            // a node the client isn't connected to fails at once, without calling the listener
+            nodeListener.onFailure(e);
+        }
+    }
+
+    /**
+     * The admin client of one of the fastest healthy nodes.
+     *
+     * @return the admin client
+     */
+    @Override
+    public AdminClient admin() {
+        Node node = selectNode(false, null);
+        return node != null ? node.client.admin() : discoveryClient.admin();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThreadPool threadPool() {
+        return discoveryClient.threadPool();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (Node node : nodes.values()) {
+            node.client.close();
+        }
+        nodes.clear();
+        discoveryClient.close();
+    }
+
+    /**
+     * What the client knows about each node.
+     *
+     * @return a snapshot per node
+     */
+    public List<NodeStats> getNodeStats() {
+        List<NodeStats> stats = new ArrayList<NodeStats>(nodes.size());
+        for (Node node : nodes.values()) {
+            stats.add(new NodeStats(node.address, node.healthy, node.latencyNanos / 1000000d,
+                    node.bulkLatencyNanos / 1000000d, node.inFlight.get(),
+                    node.requests.get(), node.failures.get(), node.consecutiveFailures.get(), node.lastPingMillis));
+        }
+        return stats;
+    }
+
+    /**
+     * A node with its own client and latency average.
+     */
+    private class Node {
+
+        private final TransportAddress address;
+
+        private final TransportClient client;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicLong requests = new AtomicLong();
+
+        private final AtomicLong failures = new AtomicLong();
+
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        private volatile double latencyNanos;
+
+        private volatile double bulkLatencyNanos;
+
+        private volatile boolean healthy = true;
+
+        private volatile long lastPingMillis;
+
+        private Node(TransportAddress address, TransportClient client) {
+            this.address = address;
+            this.client = client;
+        }
+
+        private synchronized void onSuccess(long elapsedNanos, boolean bulk) {
+            if (bulk) {
+                bulkLatencyNanos = average(bulkLatencyNanos, elapsedNanos);
+            } else {
+                latencyNanos = average(latencyNanos, elapsedNanos);
+            }
+            consecutiveFailures.set(0);
+            if (!healthy) {
+                logger.info("Node: "+address+" is healthy again");
+                healthy = true;
+            }
+        }
+
+        private void onConnectionFailure() {
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold && healthy) {
+                logger.warn("Node: "+address+" failed "+consecutiveFailures.get()+" times in a row, not sending it requests");
+                healthy = false;
+            }
+        }
+
+        private double average(double average, long elapsedNanos) {
+            return average == 0 ? elapsedNanos : alpha * elapsedNanos + (1 - alpha) * average;
+        }
+
+        /**
+         * Lower is better, a node nobody has heard from yet is tried first.
+         */
+        private double score(boolean bulk) {
+            return (bulk ? bulkLatencyNanos : latencyNanos) * (inFlight.get() + 1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.elasticsearch.omg.support.client;
+
+import org.elasticsearch.common.transport.TransportAddress;
+
+/**
+ * A snapshot of what a {@link LatencyAwareClient} knows about one node.
+ *
+ * @author jereanon
+ */
+public class NodeStats {
+
+    private final TransportAddress address;
+
+    private final boolean healthy;
+
+    private final double latencyMillis;
+
+    private final double bulkLatencyMillis;
+
+    private final int inFlight;
+
+    private final long requests;
+
+    private final long failures;
+
+    private final int consecutiveFailures;
+
+    private final long lastPingMillis;
+
+    public NodeStats(TransportAddress address, boolean healthy, double latencyMillis, double bulkLatencyMillis,
+                     int inFlight, long requests, long failures, int consecutiveFailures, long lastPingMillis) {
+        this.address = address;
+        this.healthy = healthy;
+        this.latencyMillis = latencyMillis;
+        this.bulkLatencyMillis = bulkLatencyMillis;
+        this.inFlight = inFlight;
+        this.requests = requests;
+        this.failures = failures;
+        this.consecutiveFailures = consecutiveFailures;
+        this.lastPingMillis = lastPingMillis;
+    }
+
+    /**
+     * The transport address of the node.
+     *
+     * @return the address
+     */
+    public TransportAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Whether requests are sent to the node, a node stops being healthy after too many connection failures in a
+     * row and is healthy again once it answers a ping.
+     *
+     * @return true if healthy
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * The exponentially weighted moving average of the round trip times of requests and pings to the node, bulk
+     * requests aside.
+     *
+     * @return the latency in milliseconds, zero before the first answer
+     */
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * The exponentially weighted moving average of the round trip times of bulk requests to the node.
+     *
+     * @return the latency in milliseconds, zero before the first bulk
+     */
+    public double getBulkLatencyMillis() {
+        return bulkLatencyMillis;
+    }
+
+    /**
+     * The requests sent to the node and not answered yet.
+     *
+     * @return the count
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * The requests sent to the node.
+     *
+     * @return the count
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * The requests that failed to reach the node.
+     *
+     * @return the count
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * The requests and pings in a row that failed to reach the node.
+     *
+     * @return the count
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * When the node last answered a ping.
+     *
+     * @return the time in milliseconds since the epoch, zero if never
+     */
+    public long getLastPingMillis() {
+        return lastPingMillis;
+    }
+
+    @Override
+    public String toString() {
+        return address+(healthy ? " healthy" : " unhealthy")+", latency: "+String.format("%.2f", latencyMillis)
+                +" ms, bulk latency: "+String.format("%.2f", bulkLatencyMillis)+" ms, in flight: "+inFlight+", requests: "+requests+", failures: "+failures;
+    }
+}
@@ -0,0 +1,215 @@
+package org.elasticsearch.omg.support.export;
+
+import org.elasticsearch.omg.util.JSONUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the documents of a shard as lines of <code>{"_id":..,"_type":..,"_source":..}</code>, rolling to a new
+ * file at the size limit. Lines are gathered in a buffer reused for the whole shard and handed to the file channel,
+ * through gzip when compressed, a buffer at a time. Not thread safe.
+ *
+ * @author jereanon
+ */
+final class ExportFileWriter {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte[] ID = "{\"_id\":".getBytes(UTF8);
+
+    private static final byte[] TYPE = ",\"_type\":".getBytes(UTF8);
+
+    private static final byte[] SOURCE = ",\"_source\":".getBytes(UTF8);
+
+    private static final byte[] END = "}\n".getBytes(UTF8);
+
+    private final File directory;
+
+    private final String prefix;
+
+    private final ExportOptions options;
+
+    private final byte[] buffer;
+
+    private int position;
+
+    /**
+     * Holds a SMILE source transcoded to JSON, reused.
+     */
+    private final ByteArrayOutputStream transcoded = new ByteArrayOutputStream(4096);
+
+    private final List<String> files = new ArrayList<String>();
+
+    private FileChannel channel;
+
+    private GZIPOutputStream compressed;
+
+    private long documents;
+
+    private long bytes;
+
+    ExportFileWriter(File directory, String prefix, ExportOptions options) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.options = options;
+        this.buffer = new byte[Math.max(4096, options.getBufferSize())];
+    }
+
+    /**
+     * Write a document, the source is written as JSON.
+     */
+    void write(String id, String type, byte[] source, int offset, int length) throws IOException {
+        if (channel == null) {
+            open();
+        }
+        put(ID, 0, ID.length);
+        putString(id);
+        put(TYPE, 0, TYPE.length);
+        putString(type);
+        put(SOURCE, 0, SOURCE.length);
+        if (JSONUtil.isSmile(source, offset, length)) {
+            transcoded.reset();
+            JSONUtil.writeSourceAsJSON(source, offset, length, transcoded);
+            putSource(transcoded.toByteArray(), 0, transcoded.size());
+        } else {
+            putSource(source, offset, length);
+        }
+        put(END, 0, END.length);
+        documents++;
+
+        // roll between documents, the buffered bytes count as written unless they are still to be compressed
+        long size = compressed != null ? channel.position() : channel.position() + position;
+        if (size >= options.getMaxFileBytes()) {
+            closeFile();
+        }
+    }
+
+    /**
+     * Flush and close the current file.
+     *
+     * @return the names of the files written
+     */
+    List<String> close() throws IOException {
+        if (channel != null) {
+            closeFile();
+        }
+        return files;
+    }
+
+    long getDocuments() {
+        return documents;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    List<String> getFiles() {
+        return files;
+    }
+
+    private void open() throws IOException {
+        String name = prefix+"-"+files.size()+(options.isCompress() ? ".ndjson.gz" : ".ndjson");
+        files.add(name);
+        channel = new FileOutputStream(new File(directory, name)).getChannel();
+        if (options.isCompress()) {
+            compressed = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+        }
+    }
+
+    private void closeFile() throws IOException {
+        try {
+            flush();
+            if (compressed != null) {
+                // the channel stream doesn't buffer, once finished the gzip trailer is in the channel
+                compressed.finish();
+            }
+            channel.force(false);
+            bytes += channel.size();
+        } finally {
+            channel.close();
+            channel = null;
+            compressed = null;
+        }
+    }
+
+    private void flush() throws IOException {
+        if (compressed != null) {
+            compressed.write(buffer, 0, position);
+        } else {
+            ByteBuffer out = ByteBuffer.wrap(buffer, 0, position);
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        position = 0;
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                flush();
+            }
+            int chunk = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Put a JSON source, with the line breaks it may hold between tokens turned to spaces so it stays on one line.
+     * Line breaks in JSON strings are escaped, so none is lost.
+     */
+    private void putSource(byte[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                flush();
+            }
+            int chunk = Math.min(length, buffer.length - position);
+            for (int i = 0; i < chunk; i++) {
+                byte b = source[offset + i];
+                buffer[position + i] = b == '\n' || b == '\r' ? (byte) ' ' : b;
+            }
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void putString(String value) throws IOException {
+        StringBuilder json = new StringBuilder(value.length() + 2);
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+        byte[] bytes = json.toString().getBytes(UTF8);
+        put(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,152 @@
+package org.elasticsearch.omg.support.export;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes an export, written as <code>manifest.json</code> in the export directory when the export starts and each
+ * time a shard is done. It lists the files of each shard, so an interrupted export can be resumed and the files read
+ * back in order.
+ *
+ * @author jereanon
+ */
+public class ExportManifest {
+
+    public static final String MANIFEST_FILE = "manifest.json";
+
+    private String type;
+
+    private boolean compressed;
+
+    private List<ExportSlice> slices = new ArrayList<ExportSlice>();
+
+    /**
+     * The document type exported.
+     */
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Whether the files are gzip compressed.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public List<ExportSlice> getSlices() {
+        return slices;
+    }
+
+    public void setSlices(List<ExportSlice> slices) {
+        this.slices = slices;
+    }
+
+    /**
+     * The slice of a shard.
+     *
+     * @return the slice, or <code>null</code> if the shard isn't part of the export
+     */
+    public ExportSlice getSlice(String index, int shard) {
+        for (ExportSlice slice : slices) {
+            if (slice.getIndex().equals(index) && slice.getShard() == shard) {
+                return slice;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether every shard was exported.
+     */
+    @JsonIgnore
+    public boolean isComplete() {
+        for (ExportSlice slice : slices) {
+            if (!slice.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The number of documents written by the complete slices.
+     */
+    @JsonIgnore
+    public long getDocuments() {
+        long documents = 0;
+        for (ExportSlice slice : slices) {
+            if (slice.isComplete()) {
+                documents += slice.getDocuments();
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * The files of the complete slices, in order.
+     */
+    @JsonIgnore
+    public List<File> getFiles(File directory) {
+        List<File> files = new ArrayList<File>();
+        for (ExportSlice slice : slices) {
+            if (slice.isComplete()) {
+                for (String file : slice.getFiles()) {
+                    files.add(new File(directory, file));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Read the manifest of an export directory.
+     *
+     * @param directory the export directory
+     * @return the manifest, or <code>null</code> if there is none
+     * @throws IOException if it can't be read
+     */
+    public static ExportManifest read(File directory) throws IOException {
+        File file = new File(directory, MANIFEST_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        return new ObjectMapper().readValue(file, ExportManifest.class);
+    }
+
+    /**
+     * Write the manifest to an export directory, replacing the one there at once.
+     *
+     * @param directory the export directory
+     * @throws IOException if it can't be written
+     */
+    public synchronized void write(File directory) throws IOException {
+        File file = new File(directory, MANIFEST_FILE);
+        File temp = new File(directory, MANIFEST_FILE + ".tmp");
+        byte[] json = new ObjectMapper().writeValueAsBytes(this);
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(json);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Unable to replace manifest: "+file);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.elasticsearch.omg.support.export;
+
+import java.io.File;
+
+/**
+ * Options of an export. The defaults write gzip compressed files of up to 256 MB, exporting four shards at once and
+ * resuming an export found in the directory.
+ *
+ * @author jereanon
+ */
+public class ExportOptions {
+
+    private File directory;
+
+    private long maxFileBytes = 256L * 1024 * 1024;
+
+    private int bufferSize = 1024 * 1024;
+
+    private boolean compress = true;
+
+    private int scrollSize = 500;
+
+    private String keepAlive = "5m";
+
+    private int concurrency = 4;
+
+    private boolean resume = true;
+
+    /**
+     * The directory the files and the manifest are written to, created if missing.
+     *
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    public ExportOptions setDirectory(File directory) {
+        this.directory = directory;
+        return this;
+    }
+
+    /**
+     * The size from which the export of a shard goes on in a new file. Files are only rolled between documents, so
+     * they can be somewhat larger. The limit is approximate for compressed files: they are measured by the data gzip
+     * has written, the lines still in the {@link #getBufferSize() buffer} or held by the deflater aren't counted, so
+     * a file can exceed it by their compressed size.
+     *
+     * @return the size in bytes
+     */
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    public ExportOptions setMaxFileBytes(long maxFileBytes) {
+        this.maxFileBytes = maxFileBytes;
+        return this;
+    }
+
+    /**
+     * The size of the buffer each shard's lines are gathered in before they are compressed and written, one buffer
+     * per shard exported at once, reused for the whole export of the shard.
+     *
+     * @return the size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public ExportOptions setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Whether the files are gzip compressed.
+     *
+     * @return true to compress
+     */
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public ExportOptions setCompress(boolean compress) {
+        this.compress = compress;
+        return this;
+    }
+
+    /**
+     * The number of documents fetched per shard for each page of the scan.
+     *
+     * @return the size
+     */
+    public int getScrollSize() {
+        return scrollSize;
+    }
+
+    public ExportOptions setScrollSize(int scrollSize) {
+        this.scrollSize = scrollSize;
+        return this;
+    }
+
+    /**
+     * How long the scan is kept open between pages, in elastic search time format.
+     *
+     * @return the keep alive, e.g. <code>5m</code>
+     */
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    public ExportOptions setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * The number of shards exported at once.
+     *
+     * @return the number of threads
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public ExportOptions setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Whether an export already in the directory is resumed, the shards it completed are kept and the others are
+     * exported again. Otherwise the directory is exported to from scratch. A resumed export must be of the same
+     * query.
+     *
+     * @return true to resume
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    public ExportOptions setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+}
@@ -0,0 +1,94 @@
+package org.elasticsearch.omg.support.export;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The export of one shard of an index, as recorded in the {@link ExportManifest}.
+ *
+ * @author jereanon
+ */
+public class ExportSlice {
+
+    private String index;
+
+    private int shard;
+
+    private String routing;
+
+    private boolean complete;
+
+    private long documents;
+
+    private long bytes;
+
+    private List<String> files = new ArrayList<String>();
+
+    public String getIndex() {
+        return index;
+    }
+
+    public void setIndex(String index) {
+        this.index = index;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
+
+    /**
+     * The routing value the shard was scanned with.
+     */
+    public String getRouting() {
+        return routing;
+    }
+
+    public void setRouting(String routing) {
+        this.routing = routing;
+    }
+
+    /**
+     * Whether every document of the shard was written, an incomplete slice is exported again on resume.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(long documents) {
+        this.documents = documents;
+    }
+
+    /**
+     * The size of the files of the slice, as written.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * The names of the files of the slice in the export directory, in the order they were written.
+     */
+    public List<String> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<String> files) {
+        this.files = files;
+    }
+}
@@ -0,0 +1,203 @@
+package org.elasticsearch.omg.support.export;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.BytesHolder;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.scan.ScanHandler;
+import org.elasticsearch.omg.support.scan.ScrollScanner;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the documents matching a query to newline delimited JSON files, one document per line as
+ * <code>{"_id":..,"_type":..,"_source":..}</code>. The raw sources are copied from the scan, never bound to objects;
+ * SMILE sources are transcoded to JSON. Each shard is scanned on its own, with a routing value that hashes to it, and
+ * written to its own files, several shards at once. The {@link ExportManifest} written alongside records the shards
+ * done, so an interrupted export is resumed by running it again.
+ *
+ * @author jereanon
+ */
+public class Exporter {
+    private static final Logger logger = LoggerFactory.getLogger(Exporter.class);
+
+    private final Client client;
+
+    private final ExportOptions options;
+
+    public Exporter(Client client, ExportOptions options) {
+        this.client = client;
+        this.options = options;
+    }
+
+    /**
+     * Export the documents of a type matching the query.
+     *
+     * @param query   the query documents must match
+     * @param indices the indexes to export, aliases are resolved
+     * @param type    the document type to export
+     * @return the manifest, incomplete if a shard failed
+     * @throws ElasticSearchOMGException if the directory or the manifest can't be written
+     */
+    public ExportManifest export(final QueryBuilder query, String[] indices, final String type)
+            throws ElasticSearchOMGException {
+        long start = System.currentTimeMillis();
+        final File directory = options.getDirectory();
+        if (directory == null) {
+            throw new ElasticSearchOMGException("No export directory");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new ElasticSearchOMGException("Unable to create export directory: "+directory);
+        }
+
+        MetaData metaData = client.admin().cluster().prepareState()
+                .setFilterRoutingTable(true)
+                .setFilterNodes(true)
+                .execute()
+                .actionGet()
+                .state()
+                .metaData();
+        String[] concrete = metaData.concreteIndicesIgnoreMissing(indices);
+
+        final ExportManifest manifest;
+        List<ExportSlice> pending = new ArrayList<ExportSlice>();
+        try {
+            ExportManifest previous = ExportManifest.read(directory);
+            if (previous != null && (!options.isResume() || !type.equals(previous.getType())
+                    || previous.isCompressed() != options.isCompress())) {
+                logger.info("Not resuming the export in: "+directory+", exporting from scratch");
+                for (ExportSlice slice : previous.getSlices()) {
+                    deleteFiles(directory, slice.getFiles());
+                }
+                previous = null;
+            }
+            manifest = new ExportManifest();
+            manifest.setType(type);
+            manifest.setCompressed(options.isCompress());
+            for (String index : concrete) {
+                int shards = metaData.index(index).numberOfShards();
+                for (int shard = 0; shard < shards; shard++) {
+                    ExportSlice slice = previous != null ? previous.getSlice(index, shard) : null;
+                    if (slice == null || !slice.isComplete()) {
+                        if (slice != null) {
+                            deleteFiles(directory, slice.getFiles());
+                        }
+                        slice = new ExportSlice();
+                        slice.setIndex(index);
+                        slice.setShard(shard);
+                        slice.setRouting(ScrollScanner.routingFor(shard, shards));
+                        pending.add(slice);
+                    }
+                    manifest.getSlices().add(slice);
+                }
+            }
+            manifest.write(directory);
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Error writing export manifest in: "+directory, e);
+        }
+
+        logger.info("Exporting type: "+type+" from indexes: "+Arrays.toString(concrete)+" to: "+directory+", "
+                +pending.size()+" of "+manifest.getSlices().size()+" shards to export");
+        if (!pending.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(Math.max(1, options.getConcurrency()), pending.size()),
+                    EsExecutors.daemonThreadFactory("omg-export"));
+            try {
+                for (final ExportSlice slice : pending) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            exportSlice(query, type, directory, manifest, slice);
+                        }
+                    });
+                }
+                executor.shutdown();
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // each shard is bounded by its scan
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ElasticSearchOMGException("Interrupted while exporting", e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        if (manifest.isComplete()) {
+            logger.info("Exported "+manifest.getDocuments()+" documents of type: "+type+" in "
+                    +(System.currentTimeMillis() - start)+" ms");
+        } else {
+            logger.error("Export of type: "+type+" to: "+directory+" is incomplete, run it again to resume");
+        }
+        return manifest;
+    }
+
+    private void exportSlice(QueryBuilder query, String type, File directory, ExportManifest manifest, ExportSlice slice) {
+        String name = slice.getIndex()+"/"+slice.getShard();
+        final ExportFileWriter writer = new ExportFileWriter(directory, slice.getIndex()+"-"+slice.getShard(), options);
+        boolean complete = false;
+        try {
+            new ScrollScanner(client, slice.getIndex())
+                    .setTypes(type)
+                    .setQuery(query)
+                    .setScrollSize(options.getScrollSize())
+                    .setKeepAlive(TimeValue.parseTimeValue(options.getKeepAlive(), TimeValue.timeValueMinutes(5)))
+                    .setConcurrency(1)
+                    .setRouting(slice.getRouting())
+                    .scan(new ScanHandler() {
+                        public void onHits(String index, SearchHit[] hits) throws IOException {
+                            for (SearchHit hit : hits) {
+                                BytesHolder source = hit.sourceRef();
+                                if (source == null) {
+                                    // the source isn't stored, nothing to export
+                                    continue;
+                                }
+                                writer.write(hit.id(), hit.type(), source.bytes(), source.offset(), source.length());
+                            }
+                        }
+                    });
+            writer.close();
+            complete = true;
+            logger.debug("Exported "+writer.getDocuments()+" documents of shard: "+name+" to "+writer.getFiles());
+        } catch (Exception e) {
+            logger.error("Error exporting shard: "+name, e);
+            try {
+                writer.close();
+            } catch (IOException closeFailure) {
+                logger.debug("Error closing export files of shard: "+name, closeFailure);
+            }
+        }
+
+        synchronized (manifest) {
+            slice.setFiles(new ArrayList<String>(writer.getFiles()));
+            slice.setDocuments(writer.getDocuments());
+            slice.setBytes(writer.getBytes());
+            slice.setComplete(complete);
+            try {
+                manifest.write(directory);
+            } catch (IOException e) {
+                logger.error("Error writing export manifest in: "+directory, e);
+            }
+        }
+    }
+
+    private static void deleteFiles(File directory, List<String> files) {
+        for (String name : files) {
+            File file = new File(directory, name);
+            if (file.exists() && !file.delete()) {
+                logger.warn("Unable to delete export file: "+file);
+            }
+        }
+    }
+}
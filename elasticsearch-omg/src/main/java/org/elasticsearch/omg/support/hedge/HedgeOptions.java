@@ -0,0 +1,89 @@
+package org.elasticsearch.omg.support.hedge;
+
+/**
+ * Options of a {@link ReadHedger}, the defaults hedge the slowest 5% of reads and add at most 5% extra reads.
+ *
+ * @author jereanon
+ */
+public class HedgeOptions {
+
+    private double percentile = 95;
+
+    private long minDelayMillis = 5;
+
+    private int minSamples = 100;
+
+    private long windowMillis = 60000;
+
+    private double maxExtraLoadPercent = 5;
+
+    /**
+     * The percentile of the latency of reads after which a read is hedged.
+     *
+     * @return the percentile, between 0 and 100
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public HedgeOptions setPercentile(double percentile) {
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * The shortest a read waits before it is hedged, in milliseconds.
+     *
+     * @return the delay
+     */
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    public HedgeOptions setMinDelayMillis(long minDelayMillis) {
+        this.minDelayMillis = minDelayMillis;
+        return this;
+    }
+
+    /**
+     * The number of latencies measured before anything is hedged.
+     *
+     * @return the number
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public HedgeOptions setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    /**
+     * How long latencies and the extra load are measured over, in milliseconds.
+     *
+     * @return the window
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public HedgeOptions setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+        return this;
+    }
+
+    /**
+     * The most hedged reads, as a percentage of the reads.
+     *
+     * @return the percentage
+     */
+    public double getMaxExtraLoadPercent() {
+        return maxExtraLoadPercent;
+    }
+
+    public HedgeOptions setMaxExtraLoadPercent(double maxExtraLoadPercent) {
+        this.maxExtraLoadPercent = maxExtraLoadPercent;
+        return this;
+    }
+}
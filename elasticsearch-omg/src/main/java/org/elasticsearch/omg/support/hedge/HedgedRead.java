@@ -0,0 +1,20 @@
+package org.elasticsearch.omg.support.hedge;
+
+import org.elasticsearch.action.ActionListener;
+
+/**
+ * A read that can be sent more than once, to different copies of the shards.
+ *
+ * @param <R> the type of the response
+ * @author jereanon
+ */
+public interface HedgedRead<R> {
+
+    /**
+     * Send the read. Called once, and a second time if the read is hedged, each time for a request of its own.
+     *
+     * @param preference the preference to send the read with, <code>null</code> for the default
+     * @param listener   the listener of the response
+     */
+    void send(String preference, ActionListener<R> listener);
+}
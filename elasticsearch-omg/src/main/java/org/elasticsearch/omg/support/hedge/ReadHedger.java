@@ -0,0 +1,226 @@
+package org.elasticsearch.omg.support.hedge;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.metrics.LatencyHistogram;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends reads that haven't answered within a high percentile of the latency of reads a second time, to another copy
+ * of the shards, and takes whichever response comes first. A single slow node, e.g. one in a long GC pause, then
+ * doesn't set the tail latency.
+ *
+ * The two requests of a read carry custom preferences that hash to neighbouring values, so when a shard has more
+ * than one active copy they start at different copies. The response that loses is ignored, elastic search can't
+ * cancel a get or a search in flight. Reads are only hedged once enough latencies are measured, and never more than
+ * the maximum extra load of the reads of the current window.
+ *
+ * @author jereanon
+ */
+public class ReadHedger {
+
+    private static final long REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final HedgeOptions options;
+
+    private final Random random = new Random();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final AtomicLong windowReads = new AtomicLong();
+
+    private final AtomicLong windowHedges = new AtomicLong();
+
+    private final AtomicLong reads = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private volatile long delayNanos = Long.MAX_VALUE;
+
+    private volatile long windowStartNanos = System.nanoTime();
+
+    private volatile long refreshedNanos = System.nanoTime();
+
+    public ReadHedger(HedgeOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Execute a read, hedging it if it is slow.
+     *
+     * @param read the read
+     * @return the first response
+     * @throws ElasticSearchOMGException if interrupted, or the failure of the read if every request sent failed
+     */
+    public <R> R execute(HedgedRead<R> read) throws ElasticSearchOMGException {
+        refresh();
+        reads.incrementAndGet();
+        windowReads.incrementAndGet();
+        String preference = "omg-hedge-" + Long.toHexString(random.nextLong());
+        Outcomes<R> outcomes = new Outcomes<R>();
+        read.send(preference + 'a', outcomes.listener(false, System.nanoTime()));
+        try {
+            Outcome<R> outcome = outcomes.poll(delayNanos);
+            boolean hedged = false;
+            if (outcome == null) {
+                hedged = tryHedge();
+                if (hedged) {
+                    read.send(preference + 'b', outcomes.listener(true, System.nanoTime()));
+                }
+                outcome = outcomes.take();
+            }
+            if (outcome.failure != null && hedged) {
+                // the other request may still succeed
+                Outcome<R> other = outcomes.take();
+                if (other.failure == null) {
+                    outcome = other;
+                }
+            }
+            if (outcome.failure != null) {
+                if (outcome.failure instanceof RuntimeException) {
+                    throw (RuntimeException) outcome.failure;
+                }
+                throw new ElasticSearchOMGException("Error executing read", outcome.failure);
+            }
+            if (outcome.hedge) {
+                hedgeWins.incrementAndGet();
+            }
+            return outcome.response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchOMGException("Interrupted waiting for a read", e);
+        }
+    }
+
+    private boolean tryHedge() {
+        long allowed = (long) (windowReads.get() * options.getMaxExtraLoadPercent() / 100);
+        if (windowHedges.incrementAndGet() > allowed) {
+            windowHedges.decrementAndGet();
+            return false;
+        }
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Recompute the delay from the latencies at most once a second, and start a new window when the current one is
+     * over. The delay of the last window is kept until the new one has enough latencies.
+     */
+    private void refresh() {
+        long now = System.nanoTime();
+        if (now - refreshedNanos < REFRESH_INTERVAL_NANOS) {
+            return;
+        }
+        synchronized (this) {
+            if (now - refreshedNanos < REFRESH_INTERVAL_NANOS) {
+                return;
+            }
+            refreshedNanos = now;
+            if (latency.getCount() >= options.getMinSamples()) {
+                long percentile = (long) (latency.getPercentileMillis(options.getPercentile()) * 1000000);
+                delayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(options.getMinDelayMillis()), percentile);
+            }
+            if (now - windowStartNanos >= TimeUnit.MILLISECONDS.toNanos(options.getWindowMillis())) {
+                windowStartNanos = now;
+                latency.reset();
+                windowReads.set(0);
+                windowHedges.set(0);
+            }
+        }
+    }
+
+    /**
+     * How long a read currently waits before it is hedged.
+     *
+     * @return the delay in milliseconds, -1 while too few latencies are measured
+     */
+    public double getDelayMillis() {
+        long delay = delayNanos;
+        return delay == Long.MAX_VALUE ? -1 : delay / 1000000d;
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    /**
+     * The number of reads sent a second time.
+     *
+     * @return the number
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * The number of hedged reads the second request answered first.
+     *
+     * @return the number
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    public HedgeOptions getOptions() {
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadHedger[reads="+getReads()+", hedges="+getHedges()+", hedgeWins="+getHedgeWins()
+                +", delay="+getDelayMillis()+"ms]";
+    }
+
+    private static class Outcome<R> {
+
+        private final R response;
+
+        private final Throwable failure;
+
+        private final boolean hedge;
+
+        private Outcome(R response, Throwable failure, boolean hedge) {
+            this.response = response;
+            this.failure = failure;
+            this.hedge = hedge;
+        }
+    }
+
+    /**
+     * The responses of the requests of a read, in the order they come in.
+     */
+    private class Outcomes<R> {
+
+        private final BlockingQueue<Outcome<R>> queue = new ArrayBlockingQueue<Outcome<R>>(2);
+
+        private ActionListener<R> listener(final boolean hedge, final long startNanos) {
+            return new ActionListener<R>() {
+                public void onResponse(R response) {
+                    if (!hedge) {
+                        latency.recordNanos(System.nanoTime() - startNanos);
+                    }
+                    queue.offer(new Outcome<R>(response, null, hedge));
+                }
+
+                public void onFailure(Throwable e) {
+                    queue.offer(new Outcome<R>(null, e, hedge));
+                }
+            };
+        }
+
+        private Outcome<R> poll(long timeoutNanos) throws InterruptedException {
+            return queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private Outcome<R> take() throws InterruptedException {
+            return queue.take();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.elasticsearch.omg.support.hedge;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+
+import java.io.IOException;
+
+/**
+ * A search as a {@link HedgedRead}. The builder is sent as is the first time, the second time a copy of the request
+ * it built is sent, so the two requests don't share state. A preference set on the builder is replaced.
+ *
+ * @author jereanon
+ */
+public class SearchHedgedRead implements HedgedRead<SearchResponse> {
+
+    private final Client client;
+
+    private final SearchRequestBuilder search;
+
+    private boolean sent;
+
+    public SearchHedgedRead(Client client, SearchRequestBuilder search) {
+        this.client = client;
+        this.search = search;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void send(String preference, ActionListener<SearchResponse> listener) {
+        if (!sent) {
+            sent = true;
+            search.setPreference(preference).execute(listener);
+            return;
+        }
+        client.search(copyOf(search.request()).preference(preference), listener);
+    }
+
+    private static SearchRequest copyOf(SearchRequest request) {
+        try {
+            BytesStreamOutput out = new BytesStreamOutput();
+            request.writeTo(out);
+            SearchRequest copy = new SearchRequest();
+            copy.readFrom(new BytesStreamInput(out.underlyingBytes(), 0, out.size(), false));
+            return copy;
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Unable to copy search request", e);
+        }
+    }
+}
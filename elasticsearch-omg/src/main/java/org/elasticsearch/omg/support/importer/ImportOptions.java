@@ -0,0 +1,109 @@
+package org.elasticsearch.omg.support.importer;
+
+/**
+ * Options of an import. The defaults load four files at once in bulk requests of the repository's bulk size into
+ * its index, retrying a bulk the cluster rejects three times.
+ *
+ * @author jereanon
+ */
+public class ImportOptions {
+
+    private String index;
+
+    private int bulkSize;
+
+    private int concurrency = 4;
+
+    private int maxRetries = 3;
+
+    private long retryDelayMillis = 500;
+
+    private int readBufferSize = 1024 * 1024;
+
+    /**
+     * The index the documents are loaded into, the index of the repository unless set. A partitioned repository
+     * can't tell the partition of a document without reading it, so its imports must name the index.
+     *
+     * @return the index, or <code>null</code>
+     */
+    public String getIndex() {
+        return index;
+    }
+
+    public ImportOptions setIndex(String index) {
+        this.index = index;
+        return this;
+    }
+
+    /**
+     * The number of documents per bulk request, the bulk size of the repository unless set.
+     *
+     * @return the bulk size, 0 if not set
+     */
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    public ImportOptions setBulkSize(int bulkSize) {
+        this.bulkSize = bulkSize;
+        return this;
+    }
+
+    /**
+     * The number of files loaded at once, each with one bulk request in flight.
+     *
+     * @return the number of threads
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public ImportOptions setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * The number of times a bulk request is sent again when it fails or the cluster rejects items of it for lack of
+     * capacity. Items failing for other reasons, e.g. a mapping conflict, are counted as failed and not retried.
+     *
+     * @return the retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public ImportOptions setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * The delay before the first retry of a bulk request, doubled for each next one.
+     *
+     * @return the delay in milliseconds
+     */
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    public ImportOptions setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+        return this;
+    }
+
+    /**
+     * The size of the window a gzip compressed file is inflated into, grown for longer lines. Uncompressed files are
+     * memory-mapped instead.
+     *
+     * @return the size in bytes
+     */
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public ImportOptions setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+        return this;
+    }
+}
@@ -0,0 +1,115 @@
+package org.elasticsearch.omg.support.importer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Summary of an {@link Importer} run.
+ *
+ * @author jereanon
+ */
+public class ImportResult {
+
+    private final AtomicLong documents = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong malformed = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong failedFiles = new AtomicLong();
+
+    private volatile long tookMillis;
+
+    void addBulk(long documents, long failed, long bytes) {
+        this.documents.addAndGet(documents);
+        this.failed.addAndGet(failed);
+        this.bytes.addAndGet(bytes);
+    }
+
+    void addMalformed() {
+        malformed.incrementAndGet();
+    }
+
+    void addFailedFile() {
+        failedFiles.incrementAndGet();
+    }
+
+    void setTookMillis(long tookMillis) {
+        this.tookMillis = tookMillis;
+    }
+
+    /**
+     * The number of documents loaded.
+     *
+     * @return the documents
+     */
+    public long getDocuments() {
+        return documents.get();
+    }
+
+    /**
+     * The number of documents elastic search failed to load.
+     *
+     * @return the failed documents
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * The number of lines that aren't documents as written by an export, skipped.
+     *
+     * @return the malformed lines
+     */
+    public long getMalformed() {
+        return malformed.get();
+    }
+
+    /**
+     * The number of files that couldn't be read or loaded to the end.
+     *
+     * @return the failed files
+     */
+    public long getFailedFiles() {
+        return failedFiles.get();
+    }
+
+    /**
+     * The size of the bulk requests sent.
+     *
+     * @return the size in bytes
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public boolean isSuccessful() {
+        return failed.get() == 0 && malformed.get() == 0 && failedFiles.get() == 0;
+    }
+
+    /**
+     * How long the import took.
+     *
+     * @return the time in milliseconds
+     */
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    /**
+     * The rate documents were loaded at.
+     *
+     * @return the documents per second
+     */
+    public double getDocumentsPerSecond() {
+        return tookMillis > 0 ? documents.get() * 1000d / tookMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "import of "+documents.get()+" documents took "+tookMillis+" ms ("
+                +String.format("%.0f", getDocumentsPerSecond())+" docs/s, "+bytes.get()+" bytes), "
+                +failed.get()+" failed, "+malformed.get()+" malformed lines, "+failedFiles.get()+" failed files";
+    }
+}
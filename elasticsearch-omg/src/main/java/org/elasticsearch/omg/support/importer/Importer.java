@@ -0,0 +1,414 @@
+package org.elasticsearch.omg.support.importer;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.bulk.BulkResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads the newline delimited JSON files of an export back into elastic search, without binding the documents to
+ * objects. Uncompressed files are memory-mapped, gzip compressed ones inflated into a reused window; each line is
+ * split in place into its id, type and source, which are copied into a reused buffer as the body of a bulk request,
+ * so no object or string is made per document on this side. Several files are loaded at once.
+ *
+ * @author jereanon
+ */
+public class Importer {
+    private static final Logger logger = LoggerFactory.getLogger(Importer.class);
+
+    /**
+     * The largest part of a file mapped at once.
+     */
+    private static final long REGION_SIZE = 256L * 1024 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte[] ID = "{\"_id\":".getBytes(UTF8);
+
+    private static final byte[] TYPE = ",\"_type\":".getBytes(UTF8);
+
+    private static final byte[] SOURCE = ",\"_source\":".getBytes(UTF8);
+
+    private static final byte[] ACTION_TYPE = "{\"index\":{\"_type\":".getBytes(UTF8);
+
+    private static final byte[] ACTION_ID = ",\"_id\":".getBytes(UTF8);
+
+    private static final byte[] ACTION_END = "}}\n".getBytes(UTF8);
+
+    private final Client client;
+
+    private final ImportOptions options;
+
+    public Importer(Client client, ImportOptions options) {
+        this.client = client;
+        this.options = options;
+    }
+
+    /**
+     * Load files written by an export.
+     *
+     * @param files       the files, <code>.gz</code> ones are inflated
+     * @param index       the index the documents are loaded into
+     * @param defaultType the type of documents whose line has none
+     * @param bulkSize    the number of documents per bulk request
+     * @return the counts and rate of the import
+     * @throws ElasticSearchOMGException if interrupted
+     */
+    public ImportResult importFiles(Collection<File> files, final String index, final String defaultType, final int bulkSize)
+            throws ElasticSearchOMGException {
+        long start = System.currentTimeMillis();
+        final ImportResult result = new ImportResult();
+        final ConcurrentLinkedQueue<File> queue = new ConcurrentLinkedQueue<File>(files);
+        int threads = Math.min(Math.max(1, options.getConcurrency()), Math.max(1, files.size()));
+        logger.info("Importing "+files.size()+" files into index: "+index+" with "+threads+" threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, EsExecutors.daemonThreadFactory("omg-import"));
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        // the buffers of a loader are reused for every file the thread loads
+                        Loader loader = new Loader(index, defaultType, Math.max(1, bulkSize), result);
+                        File file;
+                        while ((file = queue.poll()) != null) {
+                            try {
+                                if (file.getName().endsWith(".gz")) {
+                                    loader.loadCompressed(file);
+                                } else {
+                                    loader.loadMapped(file);
+                                }
+                                loader.flush();
+                                logger.debug("Imported: "+file);
+                            } catch (Exception e) {
+                                logger.error("Error importing: "+file, e);
+                                result.addFailedFile();
+                                loader.discard();
+                            }
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // each file is bounded by its size
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchOMGException("Interrupted while importing", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        result.setTookMillis(System.currentTimeMillis() - start);
+        if (result.isSuccessful()) {
+            logger.info("{}", result);
+        } else {
+            logger.error("{}", result);
+        }
+        return result;
+    }
+
+    /**
+     * Splits the lines of files into bulk requests, one per thread.
+     */
+    private class Loader {
+
+        private final String index;
+
+        private final String defaultType;
+
+        private final int bulkSize;
+
+        private final ImportResult result;
+
+        private byte[] bulk = new byte[1024 * 1024];
+
+        private int length;
+
+        private int count;
+
+        private byte[] window;
+
+        private ByteBuffer windowBuffer;
+
+        Loader(String index, String defaultType, int bulkSize, ImportResult result) {
+            this.index = index;
+            this.defaultType = defaultType;
+            this.bulkSize = bulkSize;
+            this.result = result;
+        }
+
+        /**
+         * Map the file a region at a time, each region ending after a line.
+         */
+        void loadMapped(File file) throws Exception {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                long size = channel.size();
+                long position = 0;
+                long span = REGION_SIZE;
+                while (position < size) {
+                    long regionSize = Math.min(span, size - position);
+                    ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+                    boolean last = position + regionSize == size;
+                    int end = last ? (int) regionSize : lastLineEnd(region, (int) regionSize);
+                    if (end == 0) {
+                        // a line longer than the region, map more of the file at once
+                        span = Math.min(span * 2, Integer.MAX_VALUE);
+                        continue;
+                    }
+                    loadLines(region, end);
+                    position += end;
+                    span = REGION_SIZE;
+                }
+            } finally {
+                raf.close();
+            }
+        }
+
+        /**
+         * Inflate the file into the window, loading the complete lines each time and moving the rest to the front.
+         */
+        void loadCompressed(File file) throws Exception {
+            if (window == null) {
+                window = new byte[Math.max(4096, options.getReadBufferSize())];
+                windowBuffer = ByteBuffer.wrap(window);
+            }
+            InputStream in = new GZIPInputStream(new FileInputStream(file), 64 * 1024);
+            try {
+                int filled = 0;
+                int read;
+                while (true) {
+                    if (filled == window.length) {
+                        // a line longer than the window
+                        byte[] grown = new byte[window.length * 2];
+                        System.arraycopy(window, 0, grown, 0, filled);
+                        window = grown;
+                        windowBuffer = ByteBuffer.wrap(window);
+                    }
+                    read = in.read(window, filled, window.length - filled);
+                    if (read < 0) {
+                        break;
+                    }
+                    filled += read;
+                    int end = lastLineEnd(windowBuffer, filled);
+                    if (end > 0) {
+                        loadLines(windowBuffer, end);
+                        System.arraycopy(window, end, window, 0, filled - end);
+                        filled -= end;
+                    }
+                }
+                loadLines(windowBuffer, filled);
+            } finally {
+                in.close();
+            }
+        }
+
+        /**
+         * The end of the last complete line in the first bytes of a buffer.
+         *
+         * @return the position after its line break, 0 if there is none
+         */
+        private int lastLineEnd(ByteBuffer buffer, int limit) {
+            for (int i = limit - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        private void loadLines(ByteBuffer buffer, int end) throws Exception {
+            int lineStart = 0;
+            for (int i = 0; i < end; i++) {
+                if (buffer.get(i) == '\n') {
+                    addLine(buffer, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < end) {
+                addLine(buffer, lineStart, end);
+            }
+        }
+
+        /**
+         * Add a line of <code>{"_id":..,"_type":..,"_source":..}</code> to the bulk as an index action and its
+         * source.
+         */
+        private void addLine(ByteBuffer buffer, int start, int end) throws Exception {
+            while (end > start && isWhitespace(buffer.get(end - 1))) {
+                end--;
+            }
+            if (end == start) {
+                return;
+            }
+            int idStart = start + ID.length;
+            int idEnd = matches(buffer, start, end, ID) ? stringEnd(buffer, idStart, end) : -1;
+            int typeStart = idEnd + TYPE.length;
+            int typeEnd = idEnd > 0 && matches(buffer, idEnd, end, TYPE) ? stringEnd(buffer, typeStart, end) : -1;
+            int sourceStart = typeEnd + SOURCE.length;
+            if (typeEnd < 0 || !matches(buffer, typeEnd, end, SOURCE) || sourceStart >= end - 1
+                    || buffer.get(end - 1) != '}') {
+                result.addMalformed();
+                return;
+            }
+            int sourceEnd = end - 1;
+
+            ensureCapacity(ACTION_TYPE.length + (typeEnd - typeStart) + ACTION_ID.length + (idEnd - idStart)
+                    + ACTION_END.length + (sourceEnd - sourceStart) + 1);
+            put(ACTION_TYPE);
+            put(buffer, typeStart, typeEnd);
+            put(ACTION_ID);
+            put(buffer, idStart, idEnd);
+            put(ACTION_END);
+            put(buffer, sourceStart, sourceEnd);
+            bulk[length++] = '\n';
+            if (++count >= bulkSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Send the documents gathered, retrying while the cluster rejects them for lack of capacity, a full thread
+         * pool or an unavailable shard, see {@link BulkResult#isRetryable(String)}. The bulk request reads the
+         * buffer in place, it is only reused once the request is done.
+         */
+        void flush() throws Exception {
+            if (count == 0) {
+                return;
+            }
+            long delay = options.getRetryDelayMillis();
+            for (int attempt = 0; ; attempt++) {
+                BulkResponse response;
+                try {
+                    BulkRequest request = new BulkRequest();
+                    request.add(bulk, 0, length, false, index, defaultType);
+                    response = client.bulk(request).actionGet();
+                } catch (Exception e) {
+                    if (attempt >= options.getMaxRetries()) {
+                        throw e;
+                    }
+                    logger.warn("Error sending import bulk of "+count+" documents, retrying in "+delay+"ms", e);
+                    Thread.sleep(delay);
+                    delay *= 2;
+                    continue;
+                }
+
+                int failed = 0;
+                boolean retryable = false;
+                BulkItemResponse firstFailure = null;
+                for (BulkItemResponse item : response.items()) {
+                    if (item.failed()) {
+                        failed++;
+                        retryable |= BulkResult.isRetryable(item.failureMessage());
+                        if (firstFailure == null) {
+                            firstFailure = item;
+                        }
+                    }
+                }
+                if (retryable && attempt < options.getMaxRetries()) {
+                    // the whole bulk is sent again, writing the same ids is harmless
+                    logger.warn("Cluster rejected "+failed+" imported documents, retrying in "+delay+"ms");
+                    Thread.sleep(delay);
+                    delay *= 2;
+                    continue;
+                }
+                if (firstFailure != null) {
+                    logger.error(failed+" imported documents failed, the first with ID: "+firstFailure.id()+", "
+                            +firstFailure.failureMessage());
+                }
+                result.addBulk(count - failed, failed, length);
+                break;
+            }
+            length = 0;
+            count = 0;
+        }
+
+        /**
+         * Drop the documents gathered from a file that failed.
+         */
+        void discard() {
+            length = 0;
+            count = 0;
+        }
+
+        private void ensureCapacity(int needed) throws Exception {
+            if (length + needed > bulk.length) {
+                if (count > 0) {
+                    flush();
+                }
+                if (needed > bulk.length) {
+                    bulk = new byte[Math.max(needed, bulk.length * 2)];
+                }
+            }
+        }
+
+        private void put(byte[] bytes) {
+            System.arraycopy(bytes, 0, bulk, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void put(ByteBuffer buffer, int from, int to) {
+            buffer.position(from);
+            buffer.get(bulk, length, to - from);
+            length += to - from;
+        }
+    }
+
+    private static boolean matches(ByteBuffer buffer, int position, int end, byte[] expected) {
+        if (position + expected.length > end) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(position + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The end of the JSON string starting at a position, after its closing quote.
+     *
+     * @return the end, or -1 if there is no string there
+     */
+    private static int stringEnd(ByteBuffer buffer, int position, int end) {
+        if (position >= end || buffer.get(position) != '"') {
+            return -1;
+        }
+        for (int i = position + 1; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\r' || b == '\t' || b == '\n';
+    }
+}
@@ -3,12 +3,15 @@ package org.elasticsearch.omg.support.index;
 import org.elasticsearch.omg.support.ElasticSearchIndex;
 import org.springframework.core.annotation.AnnotationUtils;
 
+import java.util.Collection;
+import java.util.Date;
+
 /**
  * A name is provided through the name argument to the DocumentIndex annotation.
  *
  * @author pchapman
  */
-public class AnnotatedIndexNameStrategy implements IndexNameStrategy
+public class AnnotatedIndexNameStrategy implements DocumentIndexNameStrategy
 {
     @Override
     public String indexFor(Class<?> clazz) {
@@ -19,4 +22,19 @@ public class AnnotatedIndexNameStrategy implements IndexNameStrategy
         }
         return indexName;
     }
+
+    @Override
+    public String indexFor(Object document) {
+        return indexFor(document.getClass());
+    }
+
+    @Override
+    public String[] indicesFor(Class<?> clazz, Date from, Date to, Collection<String> existingIndices) {
+        return new String[] { indexFor(clazz) };
+    }
+
+    @Override
+    public String templateFor(Class<?> clazz) {
+        return null;
+    }
 }
@@ -0,0 +1,29 @@
+package org.elasticsearch.omg.support.index;
+
+import java.util.Calendar;
+
+/**
+ * Partitions documents into one index per day, for instance <code>events-2012.05.01</code>.
+ *
+ * @author jereanon
+ */
+public class DailyIndexNameStrategy extends RollingIndexNameStrategy {
+
+    @Override
+    protected String getSuffixPattern() {
+        return "yyyy.MM.dd";
+    }
+
+    @Override
+    protected void truncate(Calendar calendar) {
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+    }
+
+    @Override
+    protected void advance(Calendar calendar) {
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+    }
+}
@@ -0,0 +1,43 @@
+package org.elasticsearch.omg.support.index;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * An {@link IndexNameStrategy} that can spread the documents of a class over several indexes, picking the index
+ * from the document itself, for instance from its timestamp.
+ *
+ * {@link #indexFor(Class)} names the class's documents as a whole; for a partitioned class that is the name of the
+ * index template its partitions are created from.
+ *
+ * @author jereanon
+ */
+public interface DocumentIndexNameStrategy extends IndexNameStrategy {
+
+    /**
+     * The index a document is written to.
+     *
+     * @param document the document
+     * @return the index name
+     */
+    String indexFor(Object document);
+
+    /**
+     * The indexes that can hold documents of a class whose timestamp is in a range.
+     *
+     * @param clazz           the document class
+     * @param from            the start of the range, inclusive, or <code>null</code> for no lower bound
+     * @param to              the end of the range, inclusive, or <code>null</code> for no upper bound
+     * @param existingIndices the names of the indexes that exist in the cluster
+     * @return the indexes to search, partitions that don't exist are left out
+     */
+    String[] indicesFor(Class<?> clazz, Date from, Date to, Collection<String> existingIndices);
+
+    /**
+     * The index template pattern matching all the partitions of a class.
+     *
+     * @param clazz the document class
+     * @return the pattern, or <code>null</code> if the class isn't partitioned
+     */
+    String templateFor(Class<?> clazz);
+}
@@ -0,0 +1,27 @@
+package org.elasticsearch.omg.support.index;
+
+import java.util.Calendar;
+
+/**
+ * Partitions documents into one index per month, for instance <code>events-2012.05</code>.
+ *
+ * @author jereanon
+ */
+public class MonthlyIndexNameStrategy extends DailyIndexNameStrategy {
+
+    @Override
+    protected String getSuffixPattern() {
+        return "yyyy.MM";
+    }
+
+    @Override
+    protected void truncate(Calendar calendar) {
+        super.truncate(calendar);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+    }
+
+    @Override
+    protected void advance(Calendar calendar) {
+        calendar.add(Calendar.MONTH, 1);
+    }
+}
@@ -0,0 +1,180 @@
+package org.elasticsearch.omg.support.index;
+
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.ElasticSearchIndex;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base class of the strategies that partition documents into one index per period of time, named after the
+ * {@link ElasticSearchIndex#name()} followed by a dash and the start of the period, for instance
+ * <code>events-2012.05.01</code>.  The period of a document is taken from its
+ * {@link ElasticSearchIndex#timestampProperty()}, in UTC.
+ *
+ * @author jereanon
+ */
+public abstract class RollingIndexNameStrategy implements DocumentIndexNameStrategy {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final ConcurrentMap<Class<?>, Partitioning> partitionings = new ConcurrentHashMap<Class<?>, Partitioning>();
+
+    /**
+     * @return the {@link SimpleDateFormat} pattern of the period suffix of the index names
+     */
+    protected abstract String getSuffixPattern();
+
+    /**
+     * Move a calendar back to the start of the period it is in.
+     *
+     * @param calendar the calendar, in UTC
+     */
+    protected abstract void truncate(Calendar calendar);
+
+    /**
+     * Move a calendar positioned at the start of a period to the start of the next one.
+     *
+     * @param calendar the calendar, in UTC
+     */
+    protected abstract void advance(Calendar calendar);
+
+    /**
+     * The index template name, which is the annotated index name.
+     */
+    @Override
+    public String indexFor(Class<?> clazz) {
+        return getPartitioning(clazz).baseName;
+    }
+
+    @Override
+    public String indexFor(Object document) {
+        Partitioning partitioning = getPartitioning(document.getClass());
+        Calendar calendar = newCalendar();
+        calendar.setTime(partitioning.getTimestamp(document));
+        truncate(calendar);
+        return partitioning.baseName + "-" + newSuffixFormat().format(calendar.getTime());
+    }
+
+    @Override
+    public String[] indicesFor(Class<?> clazz, Date from, Date to, Collection<String> existingIndices) {
+        Partitioning partitioning = getPartitioning(clazz);
+        String prefix = partitioning.baseName + "-";
+        SimpleDateFormat format = newSuffixFormat();
+        List<String> indices = new ArrayList<String>();
+        for (String index : existingIndices) {
+            if (!index.startsWith(prefix)) {
+                continue;
+            }
+            // only names that are exactly a period of this strategy are partitions
+            String suffix = index.substring(prefix.length());
+            ParsePosition position = new ParsePosition(0);
+            Date start = format.parse(suffix, position);
+            if (start == null || position.getIndex() != suffix.length() || !suffix.equals(format.format(start))) {
+                continue;
+            }
+            Calendar end = newCalendar();
+            end.setTime(start);
+            truncate(end);
+            if (!end.getTime().equals(start)) {
+                continue;
+            }
+            advance(end);
+            // keep partitions overlapping [from, to]
+            if ((to == null || !start.after(to)) && (from == null || end.getTime().after(from))) {
+                indices.add(index);
+            }
+        }
+        return indices.toArray(new String[indices.size()]);
+    }
+
+    @Override
+    public String templateFor(Class<?> clazz) {
+        return getPartitioning(clazz).baseName + "-*";
+    }
+
+    private SimpleDateFormat newSuffixFormat() {
+        SimpleDateFormat format = new SimpleDateFormat(getSuffixPattern(), Locale.ROOT);
+        format.setTimeZone(UTC);
+        format.setLenient(false);
+        return format;
+    }
+
+    /**
+     * @return a calendar in UTC with ISO 8601 weeks
+     */
+    protected Calendar newCalendar() {
+        Calendar calendar = Calendar.getInstance(UTC, Locale.ROOT);
+        calendar.setFirstDayOfWeek(Calendar.MONDAY);
+        calendar.setMinimalDaysInFirstWeek(4);
+        return calendar;
+    }
+
+    private Partitioning getPartitioning(Class<?> clazz) {
+        Partitioning partitioning = partitionings.get(clazz);
+        if (partitioning == null) {
+            partitioning = new Partitioning(clazz);
+            partitionings.putIfAbsent(clazz, partitioning);
+        }
+        return partitioning;
+    }
+
+    /**
+     * The annotated partitioning settings of a class.
+     */
+    private static final class Partitioning {
+        private final String baseName;
+        private final String timestampProperty;
+        private final Method timestampReadMethod;
+
+        Partitioning(Class<?> clazz) {
+            ElasticSearchIndex index = AnnotationUtils.findAnnotation(clazz, ElasticSearchIndex.class);
+            if (index == null || index.name().length() == 0) {
+                throw new IllegalArgumentException("Annotated index name is invalid for class " + clazz.getName());
+            }
+            if (index.timestampProperty().length() == 0) {
+                throw new IllegalArgumentException("No timestamp property annotated for time partitioned class " + clazz.getName());
+            }
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(clazz, index.timestampProperty());
+            if (descriptor == null || descriptor.getReadMethod() == null) {
+                throw new IllegalArgumentException("Timestamp property " + index.timestampProperty()
+                        + " is not readable on class " + clazz.getName());
+            }
+            baseName = index.name();
+            timestampProperty = index.timestampProperty();
+            timestampReadMethod = descriptor.getReadMethod();
+        }
+
+        Date getTimestamp(Object document) throws ElasticSearchOMGException {
+            Object value;
+            try {
+                value = timestampReadMethod.invoke(document);
+            } catch (Exception e) {
+                throw new ElasticSearchOMGException("Error reading timestamp property " + timestampProperty, e);
+            }
+            if (value instanceof Date) {
+                return (Date) value;
+            } else if (value instanceof Calendar) {
+                return ((Calendar) value).getTime();
+            } else if (value instanceof Number) {
+                return new Date(((Number) value).longValue());
+            } else if (value == null) {
+                throw new ElasticSearchOMGException("Timestamp property " + timestampProperty + " is null, unable to pick an index for " + document);
+            }
+            throw new ElasticSearchOMGException("Unsupported timestamp type " + value.getClass().getName() + " for property " + timestampProperty);
+        }
+    }
+}
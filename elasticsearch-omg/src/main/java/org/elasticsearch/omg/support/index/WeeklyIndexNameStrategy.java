@@ -0,0 +1,24 @@
+package org.elasticsearch.omg.support.index;
+
+import java.util.Calendar;
+
+/**
+ * Partitions documents into one index per ISO week, named after the Monday the week starts on, for instance
+ * <code>events-2012.04.30</code>.
+ *
+ * @author jereanon
+ */
+public class WeeklyIndexNameStrategy extends DailyIndexNameStrategy {
+
+    @Override
+    protected void truncate(Calendar calendar) {
+        super.truncate(calendar);
+        int daysSinceMonday = (calendar.get(Calendar.DAY_OF_WEEK) - Calendar.MONDAY + 7) % 7;
+        calendar.add(Calendar.DAY_OF_MONTH, -daysSinceMonday);
+    }
+
+    @Override
+    protected void advance(Calendar calendar) {
+        calendar.add(Calendar.DAY_OF_MONTH, 7);
+    }
+}
@@ -0,0 +1,131 @@
+package org.elasticsearch.omg.support.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * A write in the journal. On disk a record is its length, the CRC32 of its body and the body: the operation, the
+ * index, type and id as length prefixed UTF-8 and, for an index, the source.
+ *
+ * @author jereanon
+ */
+final class JournalRecord {
+
+    static final byte INDEX = 1;
+
+    static final byte DELETE = 2;
+
+    /**
+     * The length and the checksum.
+     */
+    static final int HEADER_SIZE = 8;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final byte operation;
+
+    private final String index;
+
+    private final String type;
+
+    private final String id;
+
+    private final byte[] source;
+
+    JournalRecord(byte operation, String index, String type, String id, byte[] source) {
+        this.operation = operation;
+        this.index = index;
+        this.type = type;
+        this.id = id;
+        this.source = source;
+    }
+
+    byte getOperation() {
+        return operation;
+    }
+
+    String getIndex() {
+        return index;
+    }
+
+    String getType() {
+        return type;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    byte[] getSource() {
+        return source;
+    }
+
+    /**
+     * The record as written to the journal, header included.
+     */
+    byte[] encode() {
+        byte[] indexBytes = index.getBytes(UTF8);
+        byte[] typeBytes = type.getBytes(UTF8);
+        byte[] idBytes = id.getBytes(UTF8);
+        int bodySize = 1 + 4 + indexBytes.length + 4 + typeBytes.length + 4 + idBytes.length
+                + 4 + (source != null ? source.length : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodySize);
+        buffer.position(HEADER_SIZE);
+        buffer.put(operation);
+        putBytes(buffer, indexBytes);
+        putBytes(buffer, typeBytes);
+        putBytes(buffer, idBytes);
+        putBytes(buffer, source != null ? source : new byte[0]);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, bodySize);
+        buffer.putInt(0, bodySize);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Read the record at the position of a buffer, moving the position past it.
+     *
+     * @return the record, or <code>null</code> if there is no complete record with a valid checksum there, which
+     *         marks the end of the records of a segment
+     */
+    static JournalRecord decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int bodySize = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (bodySize <= 0 || bodySize > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+        byte[] body = new byte[bodySize];
+        buffer.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, bodySize);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(body);
+        byte operation = in.get();
+        String index = new String(getBytes(in), UTF8);
+        String type = new String(getBytes(in), UTF8);
+        String id = new String(getBytes(in), UTF8);
+        byte[] source = getBytes(in);
+        return new JournalRecord(operation, index, type, id, operation == INDEX ? source : null);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
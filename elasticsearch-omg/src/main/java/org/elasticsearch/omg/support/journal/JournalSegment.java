@@ -0,0 +1,117 @@
+package org.elasticsearch.omg.support.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file of the journal, memory-mapped whole. Records are appended until the next one doesn't fit, the rest of the
+ * file stays zeroed, which reads as the end of the records.
+ *
+ * @author jereanon
+ */
+final class JournalSegment {
+
+    private final long sequence;
+
+    private final File file;
+
+    private final RandomAccessFile raf;
+
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The end of the complete records, appended records are visible to the shipper once it is moved past them.
+     */
+    private volatile int writePosition;
+
+    private JournalSegment(long sequence, File file, RandomAccessFile raf, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.file = file;
+        this.raf = raf;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Map a segment file, creating it with the given size if it doesn't exist.
+     */
+    static JournalSegment open(long sequence, File file, int size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() == 0) {
+                raf.setLength(size);
+            }
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+            return new JournalSegment(sequence, file, raf, buffer);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Find the end of the records written before, stopping at the first incomplete or corrupt one.
+     *
+     * @return the number of records
+     */
+    int recover() {
+        ByteBuffer view = buffer.duplicate();
+        int records = 0;
+        while (JournalRecord.decode(view) != null) {
+            records++;
+        }
+        writePosition = view.position();
+        return records;
+    }
+
+    /**
+     * Append an encoded record, if it fits.
+     *
+     * @return false if the segment is full
+     */
+    boolean append(byte[] record) {
+        int position = writePosition;
+        // keep room for the zeroed length that ends the records
+        if (position + record.length + 4 > buffer.capacity()) {
+            return false;
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.put(record);
+        writePosition = position + record.length;
+        return true;
+    }
+
+    /**
+     * A buffer over the records, starting at a position.
+     */
+    ByteBuffer view(int position) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(writePosition);
+        view.position(position);
+        return view;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        raf.close();
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+}
@@ -0,0 +1,572 @@
+package org.elasticsearch.omg.support.journal;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.UUID;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.bulk.BulkResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A durable write-behind journal. Index and delete operations are appended to memory-mapped files in a local
+ * directory and return at once, a background shipper sends them to the cluster in bulk requests, in the order they
+ * were appended. While the cluster can't be reached the shipper retries with a growing delay and writes keep being
+ * accepted until the journal is full.
+ *
+ * Every record carries a CRC32, a record torn by a crash is detected and dropped. Once a bulk is acknowledged the
+ * position of the shipper is saved in a checkpoint file and the segment files it is past are deleted. Records after
+ * the checkpoint are shipped again when the journal is opened after a crash or restart, so operations are applied at
+ * least once: documents indexed without an id are given one when journaled so a replay doesn't duplicate them.
+ * Items the cluster rejects for lack of capacity are retried, items failing for any other reason, e.g. a mapping
+ * conflict, are logged and dropped so they don't block the journal.
+ *
+ * The mapped files survive the process crashing. They are forced to disk every flush interval, or on every write with
+ * syncEveryWrite, to also survive the machine crashing.
+ *
+ * One journal can be shared by many repositories, the records name their index and type.
+ *
+ * @author jereanon
+ */
+public class WriteBehindJournal {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Client client;
+
+    private final File directory;
+
+    private int segmentSize = 64 * 1024 * 1024;
+
+    private int maxSegments = 16;
+
+    private int bulkSize = 500;
+
+    private long flushIntervalMillis = 200;
+
+    private long maxRetryDelayMillis = 30000;
+
+    private boolean syncEveryWrite;
+
+    private final TreeMap<Long, JournalSegment> segments = new TreeMap<Long, JournalSegment>();
+
+    private JournalSegment writeSegment;
+
+    private boolean opened;
+
+    private volatile boolean closed;
+
+    private Thread shipper;
+
+    // the position of the shipper, only used by the shipper thread once open
+    private long shipSequence;
+
+    private int shipPosition;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicLong appended = new AtomicLong();
+
+    private final AtomicLong shipped = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param client    the client the journal is shipped with
+     * @param directory the directory of the journal files, created if needed
+     */
+    public WriteBehindJournal(Client client, File directory) {
+        this.client = client;
+        this.directory = directory;
+    }
+
+    /**
+     * Open the journal, recovering the records not shipped before, and start shipping.
+     *
+     * @throws ElasticSearchOMGException on error reading the journal
+     */
+    public synchronized void open() throws ElasticSearchOMGException {
+        if (opened) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new ElasticSearchOMGException("Unable to create journal directory: "+directory);
+        }
+        try {
+            long[] checkpoint = readCheckpoint();
+            File[] files = directory.listFiles(new FilenameFilter() {
+                public boolean accept(File dir, String name) {
+                    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                }
+            });
+            Arrays.sort(files);
+            long replay = 0;
+            for (File file : files) {
+                long sequence = Long.parseLong(file.getName().substring(SEGMENT_PREFIX.length(),
+                        file.getName().length() - SEGMENT_SUFFIX.length()));
+                if (checkpoint != null && sequence < checkpoint[0]) {
+                    deleteFile(file);
+                    continue;
+                }
+                JournalSegment segment = JournalSegment.open(sequence, file, segmentSize);
+                int records = segment.recover();
+                if (checkpoint != null && sequence == checkpoint[0]) {
+                    records = countRecords(segment, (int) checkpoint[1]);
+                }
+                replay += records;
+                segments.put(sequence, segment);
+            }
+            if (segments.isEmpty()) {
+                long sequence = checkpoint != null ? checkpoint[0] : 0;
+                segments.put(sequence, JournalSegment.open(sequence, segmentFile(sequence), segmentSize));
+            }
+            shipSequence = segments.firstKey();
+            shipPosition = checkpoint != null && checkpoint[0] == shipSequence ? (int) checkpoint[1] : 0;
+            int recovered = segments.firstEntry().getValue().getWritePosition();
+            if (shipPosition > recovered) {
+                // the machine crashed before the segment was forced, or its file is gone
+                logger.warn("Checkpoint of write-behind journal: "+directory+" is past the end of segment: "
+                        +shipSequence+" at: "+recovered+", resuming from there");
+                shipPosition = recovered;
+            }
+            writeSegment = segments.lastEntry().getValue();
+            pending.set(replay);
+            logger.info("Opened write-behind journal: "+directory+" with "+segments.size()+" segments, replaying "
+                    +replay+" operations");
+        } catch (IOException e) {
+            closeSegments();
+            throw new ElasticSearchOMGException("Unable to open write-behind journal: "+directory, e);
+        }
+
+        opened = true;
+        shipper = new Thread(new Runnable() {
+            public void run() {
+                ship();
+            }
+        }, "omg-journal-shipper[" + directory.getName() + "]");
+        shipper.setDaemon(true);
+        shipper.start();
+    }
+
+    private static int countRecords(JournalSegment segment, int position) {
+        ByteBuffer view = segment.view(Math.min(position, segment.getWritePosition()));
+        int records = 0;
+        while (JournalRecord.decode(view) != null) {
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Journal the indexing of a document.
+     *
+     * @param index  the index
+     * @param type   the type
+     * @param id     the id, or <code>null</code> to have one generated
+     * @param source the JSON source
+     * @throws ElasticSearchOMGException if the journal is full or closed
+     */
+    public void index(String index, String type, String id, String source) throws ElasticSearchOMGException {
+        index(index, type, id, source.getBytes(UTF8));
+    }
+
+    /**
+     * Journal the indexing of a document.
+     *
+     * @param index  the index
+     * @param type   the type
+     * @param id     the id, or <code>null</code> to have one generated
+     * @param source the source, JSON or SMILE
+     * @throws ElasticSearchOMGException if the journal is full or closed
+     */
+    public void index(String index, String type, String id, byte[] source) throws ElasticSearchOMGException {
+        append(new JournalRecord(JournalRecord.INDEX, index, type, id != null ? id : UUID.randomBase64UUID(), source));
+    }
+
+    /**
+     * Journal the deletion of a document.
+     *
+     * @param index the index
+     * @param type  the type
+     * @param id    the id
+     * @throws ElasticSearchOMGException if the journal is full or closed
+     */
+    public void delete(String index, String type, String id) throws ElasticSearchOMGException {
+        append(new JournalRecord(JournalRecord.DELETE, index, type, id, null));
+    }
+
+    private void append(JournalRecord record) {
+        byte[] bytes = record.encode();
+        if (bytes.length + 4 > segmentSize) {
+            throw new ElasticSearchOMGException("Operation of "+bytes.length+" bytes doesn't fit a journal segment of "
+                    +segmentSize+" bytes");
+        }
+        synchronized (this) {
+            if (!opened || closed) {
+                throw new ElasticSearchOMGException("Write-behind journal: "+directory+" isn't open");
+            }
+            if (!writeSegment.append(bytes)) {
+                roll();
+                writeSegment.append(bytes);
+            }
+            if (syncEveryWrite) {
+                writeSegment.force();
+            }
+        }
+        appended.incrementAndGet();
+        pending.incrementAndGet();
+    }
+
+    private void roll() {
+        if (segments.size() >= maxSegments) {
+            throw new ElasticSearchOMGException("Write-behind journal: "+directory+" is full, "+pending.get()
+                    +" operations aren't shipped yet");
+        }
+        writeSegment.force();
+        long sequence = writeSegment.getSequence() + 1;
+        try {
+            writeSegment = JournalSegment.open(sequence, segmentFile(sequence), segmentSize);
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Unable to create journal segment: "+segmentFile(sequence), e);
+        }
+        segments.put(sequence, writeSegment);
+    }
+
+    private void ship() {
+        long retryDelay = flushIntervalMillis;
+        while (!closed) {
+            try {
+                List<JournalRecord> batch = new ArrayList<JournalRecord>(bulkSize);
+                long sequence = shipSequence;
+                int position = shipPosition;
+                while (batch.size() < bulkSize) {
+                    JournalSegment segment;
+                    Long next;
+                    synchronized (this) {
+                        segment = segments.get(sequence);
+                        next = segments.higherKey(sequence);
+                    }
+                    // a segment with a later one is complete, read it all before moving on
+                    ByteBuffer view = segment.view(position);
+                    JournalRecord record;
+                    while (batch.size() < bulkSize && (record = JournalRecord.decode(view)) != null) {
+                        batch.add(record);
+                    }
+                    position = view.position();
+                    if (batch.size() >= bulkSize || next == null || position < segment.getWritePosition()) {
+                        break;
+                    }
+                    sequence = next;
+                    position = 0;
+                }
+
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+                if (sequence != shipSequence || position != shipPosition) {
+                    // the records shipped must be on disk before a checkpoint past them is
+                    synchronized (this) {
+                        segments.get(sequence).force();
+                    }
+                    checkpoint(sequence, position);
+                }
+                retryDelay = flushIntervalMillis;
+                if (batch.size() < bulkSize) {
+                    synchronized (this) {
+                        if (!closed) {
+                            writeSegment.force();
+                        }
+                    }
+                    Thread.sleep(flushIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                if (closed) {
+                    break;
+                }
+                logger.warn("Unable to ship write-behind journal: "+directory+", retrying in "+retryDelay+"ms", e);
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                retryDelay = Math.min(retryDelay * 2, maxRetryDelayMillis);
+            }
+        }
+    }
+
+    private void send(List<JournalRecord> batch) {
+        BulkRequestBuilder bulk = client.prepareBulk();
+        for (JournalRecord record : batch) {
+            if (record.getOperation() == JournalRecord.INDEX) {
+                bulk.add(client.prepareIndex(record.getIndex(), record.getType(), record.getId())
+                        .setSource(record.getSource()));
+            } else {
+                bulk.add(client.prepareDelete(record.getIndex(), record.getType(), record.getId()));
+            }
+        }
+        BulkResponse response = bulk.execute().actionGet();
+        int failures = 0;
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response) {
+                if (item.failed() && BulkResult.isRetryable(item.failureMessage())) {
+                    // the batch is sent again, writing the same ids is harmless
+                    throw new ElasticSearchOMGException("Cluster rejected journaled operation: "+item.failureMessage());
+                }
+            }
+            for (BulkItemResponse item : response) {
+                if (item.failed()) {
+                    failures++;
+                    logger.error("Dropping journaled "+item.opType()+" of id: "+item.id()+" in index: "+item.index()
+                            +", "+item.failureMessage());
+                }
+            }
+        }
+        shipped.addAndGet(batch.size() - failures);
+        dropped.addAndGet(failures);
+        pending.addAndGet(-batch.size());
+    }
+
+    /**
+     * Save the position of the shipper and delete the segments it is past.
+     */
+    private void checkpoint(long sequence, int position) throws IOException {
+        File file = new File(directory, CHECKPOINT_FILE);
+        File temp = new File(directory, CHECKPOINT_FILE + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            Writer writer = new OutputStreamWriter(out, UTF8);
+            writer.write(sequence + " " + position + "\n");
+            writer.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Unable to replace checkpoint: "+file);
+        }
+        shipSequence = sequence;
+        shipPosition = position;
+
+        List<JournalSegment> shippedSegments = new ArrayList<JournalSegment>();
+        synchronized (this) {
+            for (Map.Entry<Long, JournalSegment> entry : segments.headMap(sequence).entrySet()) {
+                shippedSegments.add(entry.getValue());
+            }
+            segments.headMap(sequence).clear();
+        }
+        for (JournalSegment segment : shippedSegments) {
+            segment.close();
+            deleteFile(segment.getFile());
+        }
+    }
+
+    private long[] readCheckpoint() throws IOException {
+        File file = new File(directory, CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            String[] parts = line.trim().split(" ");
+            return new long[] { Long.parseLong(parts[0]), Long.parseLong(parts[1]) };
+        } finally {
+            reader.close();
+        }
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, String.format("%s%019d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private static void deleteFile(File file) {
+        if (!file.delete()) {
+            logger.warn("Unable to delete journal file: "+file);
+        }
+    }
+
+    /**
+     * Wait for the operations journaled so far to be shipped.
+     *
+     * @param timeoutMillis how long to wait
+     * @return true if everything was shipped, false on timeout
+     * @throws ElasticSearchOMGException if interrupted
+     */
+    public boolean flush(long timeoutMillis) throws ElasticSearchOMGException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (pending.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(Math.min(10, flushIntervalMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ElasticSearchOMGException("Interrupted flushing write-behind journal: "+directory, e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop shipping and close the journal files. Operations not shipped yet are shipped when the journal is opened
+     * again, call {@link #flush(long)} first to ship them now.
+     */
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            if (!opened || closed) {
+                return;
+            }
+            closed = true;
+            current = shipper;
+        }
+        current.interrupt();
+        try {
+            current.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (writeSegment != null) {
+                writeSegment.force();
+            }
+            closeSegments();
+        }
+        logger.info("Closed write-behind journal: "+directory+" with "+pending.get()+" operations not shipped");
+    }
+
+    private void closeSegments() {
+        for (JournalSegment segment : segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close journal file: "+segment.getFile(), e);
+            }
+        }
+        segments.clear();
+    }
+
+    /**
+     * The number of operations journaled but not shipped yet.
+     *
+     * @return the number
+     */
+    public long getPending() {
+        return pending.get();
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    public long getShipped() {
+        return shipped.get();
+    }
+
+    /**
+     * The number of operations the cluster failed for good, logged and skipped.
+     *
+     * @return the number
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * The size of each journal file, 64MB by default. Takes effect for files created after.
+     *
+     * @param segmentSize the size in bytes
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * The most journal files, writes fail once they are all full of operations not shipped yet. 16 by default.
+     *
+     * @param maxSegments the number of files
+     */
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * The most operations per bulk request, 500 by default.
+     *
+     * @param bulkSize the size
+     */
+    public void setBulkSize(int bulkSize) {
+        this.bulkSize = bulkSize;
+    }
+
+    /**
+     * How long the shipper waits for more operations when it has shipped everything, 200ms by default.
+     *
+     * @param flushIntervalMillis the interval
+     */
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * The longest the shipper waits before trying again while the cluster can't be reached, 30s by default.
+     *
+     * @param maxRetryDelayMillis the delay
+     */
+    public void setMaxRetryDelayMillis(long maxRetryDelayMillis) {
+        this.maxRetryDelayMillis = maxRetryDelayMillis;
+    }
+
+    /**
+     * Force every write to disk before it returns, instead of every flush interval.
+     *
+     * @param syncEveryWrite true to force every write
+     */
+    public void setSyncEveryWrite(boolean syncEveryWrite) {
+        this.syncEveryWrite = syncEveryWrite;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindJournal["+directory+", pending="+getPending()+", shipped="+getShipped()
+                +", dropped="+getDropped()+"]";
+    }
+}
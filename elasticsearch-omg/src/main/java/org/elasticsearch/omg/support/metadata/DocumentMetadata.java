@@ -0,0 +1,236 @@
+package org.elasticsearch.omg.support.metadata;
+
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.ElasticSearchProperty;
+import org.elasticsearch.omg.support.SourceEncoding;
+import org.elasticsearch.omg.support.index.DocumentIndexNameStrategy;
+import org.elasticsearch.omg.support.model.mapping.Mapping;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Everything elasticsearch-omg needs to know about a document class, resolved once per class by the
+ * {@link DocumentMetadataRegistry}. Instances are shared between threads and must not be modified, including the
+ * {@link Mapping} they hold.
+ *
+ * @author jereanon
+ */
+public final class DocumentMetadata<T> {
+
+    private final Class<T> documentClass;
+    private final String indexName;
+    private final DocumentIndexNameStrategy indexNameStrategy;
+    private final String objectType;
+    private final String timestampProperty;
+    private final String mappingJSON;
+    private final Method idMethod;
+    private final boolean idAccessor;
+    private final boolean idAutoGenerated;
+    private final boolean documentAnnotated;
+    private final boolean indexAnnotated;
+    private final SourceEncoding sourceEncoding;
+    private final GeneratedDocumentMetadata<T> generated;
+    private final GeneratedDocumentCodec<T> codec;
+    private volatile Mapping mapping;
+    private volatile PropertyDescriptor[] propertyDescriptors;
+    private volatile Map<String, ElasticSearchProperty> annotatedProperties;
+
+    DocumentMetadata(Class<T> documentClass, String indexName, DocumentIndexNameStrategy indexNameStrategy, String objectType,
+                     String timestampProperty, Mapping mapping, String mappingJSON,
+                     PropertyDescriptor[] propertyDescriptors, Map<String, ElasticSearchProperty> annotatedProperties,
+                     Method idMethod, boolean idAccessor, boolean idAutoGenerated, boolean documentAnnotated,
+                     boolean indexAnnotated,
+                     SourceEncoding sourceEncoding, GeneratedDocumentMetadata<T> generated) {
+        this.documentClass = documentClass;
+        this.indexName = indexName;
+        this.indexNameStrategy = indexNameStrategy;
+        this.objectType = objectType;
+        this.timestampProperty = timestampProperty;
+        this.mapping = mapping;
+        this.mappingJSON = mappingJSON;
+        this.propertyDescriptors = propertyDescriptors;
+        this.annotatedProperties = annotatedProperties;
+        this.idMethod = idMethod;
+        this.idAccessor = idAccessor;
+        this.idAutoGenerated = idAutoGenerated;
+        this.documentAnnotated = documentAnnotated;
+        this.indexAnnotated = indexAnnotated;
+        this.sourceEncoding = sourceEncoding;
+        this.generated = generated;
+        this.codec = generated != null ? generated.getCodec() : null;
+    }
+
+    public Class<T> getDocumentClass() {
+        return documentClass;
+    }
+
+    /**
+     * The name of the index documents are stored into.
+     *
+     * @return the index name, or <code>null</code> if the class isn't annotated with
+     *         {@link org.elasticsearch.omg.support.ElasticSearchIndex}
+     */
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * The strategy picking the indexes documents are written to and searched in.
+     *
+     * @return the strategy, or <code>null</code> if the class isn't annotated with
+     *         {@link org.elasticsearch.omg.support.ElasticSearchIndex}
+     */
+    public DocumentIndexNameStrategy getIndexNameStrategy() {
+        return indexNameStrategy;
+    }
+
+    /**
+     * @return true if documents are spread over several indexes created from an index template
+     */
+    public boolean isPartitioned() {
+        return indexNameStrategy != null && indexNameStrategy.templateFor(documentClass) != null;
+    }
+
+    public String getObjectType() {
+        return objectType;
+    }
+
+    /**
+     * The mapping tree of the document. When the mapping was generated at build time the tree is only built, through
+     * reflection, the first time it is asked for.
+     *
+     * @return the mapping, shared and not to be modified
+     */
+    public Mapping getMapping() {
+        Mapping result = mapping;
+        if (result == null) {
+            synchronized (this) {
+                result = mapping;
+                if (result == null) {
+                    result = DocumentMetadataRegistry.createMapping(documentClass, objectType);
+                    mapping = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the {@link org.elasticsearch.omg.support.ElasticSearchIndex#timestampProperty()} of the document, or
+     *         <code>null</code> if it has none
+     */
+    public String getTimestampProperty() {
+        return timestampProperty;
+    }
+
+    public String getMappingJSON() {
+        return mappingJSON;
+    }
+
+    /**
+     * The bean properties of the document class. When the metadata was generated at build time they are only
+     * introspected the first time they are asked for.
+     *
+     * @return the bean properties of the document class
+     */
+    public PropertyDescriptor[] getPropertyDescriptors() {
+        PropertyDescriptor[] result = propertyDescriptors;
+        if (result == null) {
+            result = BeanUtils.getPropertyDescriptors(documentClass);
+            propertyDescriptors = result;
+        }
+        return result.clone();
+    }
+
+    /**
+     * @return the {@link ElasticSearchProperty} annotations of the document, by property name
+     */
+    public Map<String, ElasticSearchProperty> getAnnotatedProperties() {
+        Map<String, ElasticSearchProperty> result = annotatedProperties;
+        if (result == null) {
+            result = DocumentMetadataRegistry.getAnnotatedProperties(getPropertyDescriptors());
+            annotatedProperties = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the {@link ElasticSearchProperty} annotation of a property.
+     *
+     * @param propertyName the property name
+     * @return the annotation, or <code>null</code> if the property isn't annotated
+     */
+    public ElasticSearchProperty getAnnotatedProperty(String propertyName) {
+        return getAnnotatedProperties().get(propertyName);
+    }
+
+    /**
+     * @return true if the document has an {@link org.elasticsearch.omg.support.ElasticSearchDocumentId} accessor
+     */
+    public boolean hasIdAccessor() {
+        return idAccessor;
+    }
+
+    /**
+     * @return true if elastic search generates the ids of the documents
+     */
+    public boolean isIdAutoGenerated() {
+        return idAutoGenerated;
+    }
+
+    public boolean isDocumentAnnotated() {
+        return documentAnnotated;
+    }
+
+    public boolean isIndexAnnotated() {
+        return indexAnnotated;
+    }
+
+    /**
+     * @return the format sources of documents are written in
+     */
+    public SourceEncoding getSourceEncoding() {
+        return sourceEncoding;
+    }
+
+    /**
+     * @return the metadata generated at build time, or <code>null</code>
+     */
+    public GeneratedDocumentMetadata<T> getGenerated() {
+        return generated;
+    }
+
+    /**
+     * @return the codec generated at build time to (de)serialize documents, or <code>null</code>
+     */
+    public GeneratedDocumentCodec<T> getCodec() {
+        return codec;
+    }
+
+    /**
+     * Read the id of a document.
+     *
+     * @param object the document
+     * @return the id, or <code>null</code> if elastic search should generate it
+     * @throws ElasticSearchOMGException on error invoking the id accessor
+     */
+    public String getId(T object) throws ElasticSearchOMGException {
+        if (generated != null) {
+            return generated.getId(object);
+        }
+        if (idMethod == null) {
+            return null;
+        }
+        try {
+            Object id = idMethod.invoke(object);
+            return id != null
+                    ? id.toString()
+                    : null;
+        } catch (Exception ex) {
+            throw new ElasticSearchOMGException("exception invoking method for id generation.", ex);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.elasticsearch.omg.support.metadata;
+
+import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.ElasticSearchDocument;
+import org.elasticsearch.omg.support.ElasticSearchDocumentId;
+import org.elasticsearch.omg.support.ElasticSearchIndex;
+import org.elasticsearch.omg.support.ElasticSearchProperty;
+import org.elasticsearch.omg.support.SourceEncoding;
+import org.elasticsearch.omg.support.index.DocumentIndexNameStrategy;
+import org.elasticsearch.omg.support.index.IndexNameStrategy;
+import org.elasticsearch.omg.support.model.mapping.Mapping;
+import org.elasticsearch.omg.support.model.mapping.MappingProperty;
+import org.elasticsearch.omg.util.ElasticSearchMappingUtil;
+import org.elasticsearch.omg.util.JavaBeanUtil;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Thread safe registry of {@link DocumentMetadata}. The metadata of a class is built exactly once, the first time
+ * it is asked for, from the metadata generated at build time when there is some and through reflection otherwise.
+ *
+ * @author jereanon
+ */
+public final class DocumentMetadataRegistry {
+
+    private static final ConcurrentMap<Class<?>, Future<DocumentMetadata<?>>> metadata
+            = new ConcurrentHashMap<Class<?>, Future<DocumentMetadata<?>>>();
+
+    private static final ConcurrentMap<String, IndexNameStrategy> indexNameStrategies
+            = new ConcurrentHashMap<String, IndexNameStrategy>();
+
+    private DocumentMetadataRegistry() {
+    }
+
+    /**
+     * Get the metadata of a class, building it if this is the first time it is asked for.
+     *
+     * @param clazz the document class
+     * @return the metadata
+     * @throws ElasticSearchOMGException on error building the metadata
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DocumentMetadata<T> forClass(final Class<T> clazz) throws ElasticSearchOMGException {
+        Future<DocumentMetadata<?>> future = metadata.get(clazz);
+        if (future == null) {
+            FutureTask<DocumentMetadata<?>> task = new FutureTask<DocumentMetadata<?>>(new Callable<DocumentMetadata<?>>() {
+                @Override
+                public DocumentMetadata<?> call() throws Exception {
+                    return build(clazz);
+                }
+            });
+            future = metadata.putIfAbsent(clazz, task);
+            if (future == null) {
+                future = task;
+                task.run();
+            }
+        }
+        try {
+            return (DocumentMetadata<T>) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchOMGException("Interrupted waiting for metadata of " + clazz.getName(), e);
+        } catch (ExecutionException e) {
+            // don't cache failures, the next caller tries again
+            metadata.remove(clazz, future);
+            if (e.getCause() instanceof ElasticSearchOMGException) {
+                throw (ElasticSearchOMGException) e.getCause();
+            }
+            throw new ElasticSearchOMGException("Unable to build metadata for " + clazz.getName(), e.getCause());
+        }
+    }
+
+    /**
+     * Get the metadata of an object's class.
+     *
+     * @param object the document
+     * @return the metadata
+     * @throws ElasticSearchOMGException on error building the metadata
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DocumentMetadata<T> forObject(T object) throws ElasticSearchOMGException {
+        return forClass((Class<T>) object.getClass());
+    }
+
+    private static <T> DocumentMetadata<T> build(Class<T> clazz) throws Exception {
+        GeneratedDocumentMetadata<T> generated = GeneratedDocumentMetadataLoader.forClass(clazz);
+        ElasticSearchDocument doc = AnnotationUtils.findAnnotation(clazz, ElasticSearchDocument.class);
+        ElasticSearchIndex index = AnnotationUtils.findAnnotation(clazz, ElasticSearchIndex.class);
+
+        // object type and index name, the generated ones if possible
+        String objectType;
+        if (generated != null) {
+            objectType = generated.getObjectType();
+        } else {
+            objectType = doc != null && StringUtils.isNotEmpty(doc.typeName())
+                    ? doc.typeName()
+                    : clazz.getSimpleName();
+        }
+        String indexName = null;
+        DocumentIndexNameStrategy indexNameStrategy = null;
+        if (index != null) {
+            indexNameStrategy = asDocumentIndexNameStrategy(getIndexNameStrategy(index.strategy()));
+            indexName = generated != null && generated.getIndexName() != null
+                    ? generated.getIndexName()
+                    : indexNameStrategy.indexFor(clazz);
+        }
+
+        // the id accessor, the properties are only introspected when asked for if the metadata was generated
+        PropertyDescriptor[] descriptors = null;
+        Map<String, ElasticSearchProperty> annotatedProperties = null;
+        Method idMethod = null;
+        boolean idAccessor;
+        boolean idAutoGenerated = false;
+        if (generated != null) {
+            idAccessor = generated.hasIdAccessor();
+            idAutoGenerated = generated.isIdAutoGenerated();
+        } else {
+            descriptors = BeanUtils.getPropertyDescriptors(clazz);
+            annotatedProperties = getAnnotatedProperties(descriptors);
+            for (Method method : clazz.getMethods()) {
+                ElasticSearchDocumentId docId = AnnotationUtils.findAnnotation(method, ElasticSearchDocumentId.class);
+                if (docId != null) {
+                    idAutoGenerated = docId.autoGenerate();
+                    idMethod = idAutoGenerated ? null : method;
+                    break;
+                }
+            }
+            idAccessor = idMethod != null || idAutoGenerated;
+        }
+
+        // the mapping, the tree is built lazily when the JSON was generated
+        Mapping mapping = null;
+        String mappingJSON;
+        if (generated != null) {
+            mappingJSON = generated.getMappingJSON();
+        } else {
+            mapping = createMapping(clazz, objectType);
+            mappingJSON = ElasticSearchMappingUtil.getJSONStringFromMapping(mapping);
+        }
+
+        String timestampProperty = index != null && StringUtils.isNotEmpty(index.timestampProperty())
+                ? index.timestampProperty()
+                : null;
+
+        return new DocumentMetadata<T>(clazz, indexName, indexNameStrategy, objectType, timestampProperty, mapping,
+                mappingJSON, descriptors, annotatedProperties, idMethod, idAccessor, idAutoGenerated, doc != null, index != null, doc != null ? doc.sourceEncoding() : SourceEncoding.JSON, generated);
+    }
+
+    /**
+     * Collect the {@link ElasticSearchProperty} annotations of the properties of a class, by property name.
+     */
+    static Map<String, ElasticSearchProperty> getAnnotatedProperties(PropertyDescriptor[] descriptors) {
+        Map<String, ElasticSearchProperty> annotatedProperties = new LinkedHashMap<String, ElasticSearchProperty>();
+        for (PropertyDescriptor descriptor : descriptors) {
+            ElasticSearchProperty esProp = JavaBeanUtil.getAnnotationFromPropertyDescriptor(ElasticSearchProperty.class, descriptor);
+            if (esProp != null) {
+                annotatedProperties.put(descriptor.getName(), esProp);
+            }
+        }
+        return Collections.unmodifiableMap(annotatedProperties);
+    }
+
+    /**
+     * Adapt a strategy that only names an index per class, every document of the class goes to that index.
+     */
+    private static DocumentIndexNameStrategy asDocumentIndexNameStrategy(final IndexNameStrategy strategy) {
+        if (strategy instanceof DocumentIndexNameStrategy) {
+            return (DocumentIndexNameStrategy) strategy;
+        }
+        return new DocumentIndexNameStrategy() {
+            @Override
+            public String indexFor(Class<?> clazz) {
+                return strategy.indexFor(clazz);
+            }
+
+            @Override
+            public String indexFor(Object document) {
+                return strategy.indexFor(document.getClass());
+            }
+
+            @Override
+            public String[] indicesFor(Class<?> clazz, Date from, Date to, Collection<String> existingIndices) {
+                return new String[] { strategy.indexFor(clazz) };
+            }
+
+            @Override
+            public String templateFor(Class<?> clazz) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Build the mapping tree of a class through reflection.
+     */
+    static Mapping createMapping(Class<?> clazz, String objectType) {
+        Mapping mapping = new Mapping();
+        mapping.setMappingName(objectType);
+        ElasticSearchDocument doc = AnnotationUtils.findAnnotation(clazz, ElasticSearchDocument.class);
+        if (doc != null && doc.compressSource()) {
+            mapping.setCompressSource(true);
+            mapping.setCompressThreshold(doc.compressThreshold());
+        }
+        if (doc != null) {
+            mapping.setDynamic(doc.dynamic());
+            mapping.setAllEnabled(doc.allEnabled());
+            mapping.setSourceIncludes(Arrays.asList(doc.sourceIncludes()));
+            mapping.setSourceExcludes(Arrays.asList(doc.sourceExcludes()));
+        }
+        for (PropertyDescriptor des : BeanUtils.getPropertyDescriptors(clazz)) {
+            MappingProperty prop = ElasticSearchMappingUtil.createMappingPropertyFromPropertyDescriptor(des);
+            if (prop != null) {
+                mapping.getProperties().add(prop);
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Returns an IndexNameStrategy instance based on fully qualified class name. The instance is lazily
+     * instantiated and then held in cache.
+     *
+     * @param strategyClassName the strategy class name
+     * @return the strategy
+     * @throws ElasticSearchOMGException Indicates an error instantiating the strategy.
+     */
+    public static IndexNameStrategy getIndexNameStrategy(String strategyClassName) throws ElasticSearchOMGException {
+        IndexNameStrategy strategy = indexNameStrategies.get(strategyClassName);
+        if (strategy == null) {
+            try {
+                Class<?> clazz = DocumentMetadataRegistry.class.getClassLoader().loadClass(strategyClassName);
+                strategy = (IndexNameStrategy) clazz.newInstance();
+            } catch (Exception e) {
+                throw new ElasticSearchOMGException("Unable to load index name strategy instance for " + strategyClassName, e);
+            }
+            IndexNameStrategy existing = indexNameStrategies.putIfAbsent(strategyClassName, strategy);
+            if (existing != null) {
+                strategy = existing;
+            }
+        }
+        return strategy;
+    }
+}
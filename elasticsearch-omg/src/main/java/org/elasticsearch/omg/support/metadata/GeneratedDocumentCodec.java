@@ -0,0 +1,35 @@
+package org.elasticsearch.omg.support.metadata;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes the source of a document without Jackson's bean introspection, generated at build time by the
+ * elasticsearch-omg annotation processor along with the {@link GeneratedDocumentMetadata} of the document. It is
+ * only generated when it gives the same JSON as the ObjectMapper, see
+ * {@link GeneratedDocumentMetadata#getCodec()}.
+ *
+ * @author jereanon
+ */
+public interface GeneratedDocumentCodec<T> {
+
+    /**
+     * Write the document as a JSON object.
+     *
+     * @param object    the document
+     * @param generator the generator to write to
+     * @throws IOException on error
+     */
+    void serialize(T object, JsonGenerator generator) throws IOException;
+
+    /**
+     * Read a document from the JSON object the parser is positioned on, or just before.
+     *
+     * @param parser the parser
+     * @return the document
+     * @throws IOException on error
+     */
+    T deserialize(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,62 @@
+package org.elasticsearch.omg.support.metadata;
+
+/**
+ * Metadata for an {@link org.elasticsearch.omg.support.ElasticSearchDocument} produced at build time by the
+ * elasticsearch-omg annotation processor. Implementations are generated next to the annotated class, named
+ * after it with the {@link GeneratedDocumentMetadataLoader#CLASS_NAME_SUFFIX} suffix, and are preferred over
+ * reflection whenever they are present on the classpath.
+ *
+ * @author jereanon
+ */
+public interface GeneratedDocumentMetadata<T> {
+
+    /**
+     * @return the annotated class this metadata was generated for
+     */
+    Class<T> getDocumentClass();
+
+    /**
+     * @return the elastic search object type of the document
+     */
+    String getObjectType();
+
+    /**
+     * The index name, if it could be resolved at build time. Only documents using the default
+     * {@link org.elasticsearch.omg.support.index.AnnotatedIndexNameStrategy} have one.
+     *
+     * @return the index name, or <code>null</code> if it has to be resolved at runtime
+     */
+    String getIndexName();
+
+    /**
+     * @return the rendered mapping JSON for the document
+     */
+    String getMappingJSON();
+
+    /**
+     * Read the id of a document through its {@link org.elasticsearch.omg.support.ElasticSearchDocumentId}
+     * accessor.
+     *
+     * @param object the document
+     * @return the id, or <code>null</code> if elastic search should generate it
+     */
+    String getId(T object);
+
+    /**
+     * @return true if the document has an {@link org.elasticsearch.omg.support.ElasticSearchDocumentId} accessor
+     */
+    boolean hasIdAccessor();
+
+    /**
+     * @return true if elastic search generates the ids of the documents
+     */
+    boolean isIdAutoGenerated();
+
+    /**
+     * The codec generated for the document. It is only generated when Jackson's default bean handling is known to
+     * give the same result, otherwise the ObjectMapper (de)serializes the document.
+     *
+     * @return the codec, or <code>null</code> if none was generated
+     */
+    GeneratedDocumentCodec<T> getCodec();
+}
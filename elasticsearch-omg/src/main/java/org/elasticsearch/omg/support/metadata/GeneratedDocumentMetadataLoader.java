@@ -0,0 +1,48 @@
+package org.elasticsearch.omg.support.metadata;
+
+import org.elasticsearch.omg.ElasticSearchOMGException;
+
+/**
+ * Locates the {@link GeneratedDocumentMetadata} generated for a document class, if any. Lookups aren't cached here,
+ * use the {@link DocumentMetadataRegistry}.
+ *
+ * @author jereanon
+ */
+public final class GeneratedDocumentMetadataLoader {
+
+    /**
+     * The suffix appended to the binary name of a document class to get the name of its generated metadata.
+     */
+    public static final String CLASS_NAME_SUFFIX = "_ElasticSearchMetadata";
+
+    private GeneratedDocumentMetadataLoader() {
+    }
+
+    /**
+     * Find the generated metadata for a class.
+     *
+     * @param clazz the document class
+     * @return the metadata, or <code>null</code> if none was generated
+     * @throws ElasticSearchOMGException if the generated class exists but can't be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> GeneratedDocumentMetadata<T> forClass(Class<T> clazz) throws ElasticSearchOMGException {
+        ClassLoader classLoader = clazz.getClassLoader() != null
+                ? clazz.getClassLoader()
+                : GeneratedDocumentMetadataLoader.class.getClassLoader();
+        Class<?> generated;
+        try {
+            generated = Class.forName(clazz.getName() + CLASS_NAME_SUFFIX, true, classLoader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            GeneratedDocumentMetadata<T> metadata = (GeneratedDocumentMetadata<T>) generated.newInstance();
+            return metadata.getDocumentClass() == clazz
+                    ? metadata
+                    : null;
+        } catch (Exception e) {
+            throw new ElasticSearchOMGException("Unable to instantiate generated metadata for " + clazz.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.elasticsearch.omg.support.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies, in the manner of an HDR histogram. Values are kept in microseconds, exactly up
+ * to 64 and above that in 32 linear buckets per power of two, so any percentile is within about 3% of the recorded
+ * value while the whole range up to an hour takes under a thousand counters. Longer values count as an hour.
+ *
+ * Recording never blocks. Readings taken while values are being recorded may be off by the values in flight.
+ *
+ * @author jereanon
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private static final int BUCKET_COUNT = bucketIndex(HIGHEST_TRACKABLE_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalMicros = new AtomicLong();
+
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), HIGHEST_TRACKABLE_MICROS);
+        counts.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /**
+     * The number of latencies recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * The mean latency.
+     *
+     * @return the mean in milliseconds, zero if nothing was recorded
+     */
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : totalMicros.get() / (double) n / 1000d;
+    }
+
+    /**
+     * The highest latency.
+     *
+     * @return the highest latency in milliseconds
+     */
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000d;
+    }
+
+    /**
+     * The latency the given percentage of the recorded latencies are at or below.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in milliseconds, zero if nothing was recorded
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100d) / 100d * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), maxMicros.get()) / 1000d;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Forget the recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    private static int bucketIndex(long micros) {
+        if (micros < 2 * SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (micros >>> shift);
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,49 @@
+package org.elasticsearch.omg.support.metrics;
+
+/**
+ * Receives every measurement of a repository as it is taken, to feed a metrics backend of one's own. Called on the
+ * thread doing the operation, so implementations must be thread safe and quick.
+ *
+ * @author jereanon
+ */
+public interface MetricsSink {
+
+    /**
+     * An operation finished.
+     *
+     * @param index     the index name of the repository
+     * @param type      the object type of the repository
+     * @param operation the operation
+     * @param nanos     how long it took, in nanoseconds
+     * @param failed    whether it threw
+     */
+    void onOperation(String index, String type, Operation operation, long nanos, boolean failed);
+
+    /**
+     * A bulk request was sent.
+     *
+     * @param index   the index name of the repository
+     * @param type    the object type of the repository
+     * @param actions the number of actions in the bulk
+     * @param bytes   the size of the sources in the bulk, zero for deletes
+     */
+    void onBulk(String index, String type, int actions, long bytes);
+
+    /**
+     * A document was serialized to JSON.
+     *
+     * @param index the index name of the repository
+     * @param type  the object type of the repository
+     * @param nanos how long it took, in nanoseconds
+     */
+    void onSerialization(String index, String type, long nanos);
+
+    /**
+     * A document was deserialized from JSON.
+     *
+     * @param index the index name of the repository
+     * @param type  the object type of the repository
+     * @param nanos how long it took, in nanoseconds
+     */
+    void onDeserialization(String index, String type, long nanos);
+}
@@ -0,0 +1,36 @@
+package org.elasticsearch.omg.support.metrics;
+
+/**
+ * The operations of a repository metrics are kept for.
+ *
+ * @author jereanon
+ */
+public enum Operation {
+
+    INDEX("index"),
+    BULK_INDEX("bulkIndex"),
+    GET("get"),
+    MULTI_GET("multiGet"),
+    SEARCH("search"),
+    DELETE("delete"),
+    BULK_DELETE("bulkDelete"),
+    DELETE_BY_QUERY("deleteByQuery"),
+    CREATE_INDEX("createIndex"),
+    DELETE_INDEX("deleteIndex"),
+    PUT_MAPPING("putMapping");
+
+    private final String metricName;
+
+    private Operation(String metricName) {
+        this.metricName = metricName;
+    }
+
+    /**
+     * The name of the operation in metric names and MBean names.
+     *
+     * @return the name
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+}
@@ -0,0 +1,84 @@
+package org.elasticsearch.omg.support.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calls, errors and latencies of one operation of a repository.
+ *
+ * @author jereanon
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private final Operation operation;
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(Operation operation) {
+        this.operation = operation;
+    }
+
+    void record(long nanos, boolean failed) {
+        latency.recordNanos(nanos);
+        if (failed) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * The latencies of the calls, failed ones included.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public double getMeanMillis() {
+        return latency.getMeanMillis();
+    }
+
+    public double getMaxMillis() {
+        return latency.getMaxMillis();
+    }
+
+    public double get50thPercentileMillis() {
+        return latency.getPercentileMillis(50);
+    }
+
+    public double get95thPercentileMillis() {
+        return latency.getPercentileMillis(95);
+    }
+
+    public double get99thPercentileMillis() {
+        return latency.getPercentileMillis(99);
+    }
+
+    public double get999thPercentileMillis() {
+        return latency.getPercentileMillis(99.9);
+    }
+
+    public void reset() {
+        latency.reset();
+        errors.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return operation.getMetricName()+"[count="+getCount()+", errors="+getErrors()
+                +", p50="+get50thPercentileMillis()+"ms, p99="+get99thPercentileMillis()+"ms]";
+    }
+}
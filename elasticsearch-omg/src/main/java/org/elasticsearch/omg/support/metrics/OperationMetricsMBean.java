@@ -0,0 +1,27 @@
+package org.elasticsearch.omg.support.metrics;
+
+/**
+ * The JMX view of {@link OperationMetrics}. Latencies are in milliseconds.
+ *
+ * @author jereanon
+ */
+public interface OperationMetricsMBean {
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double get50thPercentileMillis();
+
+    double get95thPercentileMillis();
+
+    double get99thPercentileMillis();
+
+    double get999thPercentileMillis();
+
+    void reset();
+}
@@ -0,0 +1,328 @@
+package org.elasticsearch.omg.support.metrics;
+
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.admission.AdmissionController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of a repository, tagged with its index name and object type: calls, errors and latencies of every
+ * operation, the size of the bulks sent and the time spent serializing and deserializing documents. Every
+ * measurement is also handed to the {@link MetricsSink}, if there is one.
+ *
+ * The metrics can be registered as MBeans under the <code>org.elasticsearch.omg</code> domain, one for the repository,
+ * one per operation and one for the queues and rejections of its {@link AdmissionController}.
+ *
+ * @author jereanon
+ */
+public class RepositoryMetrics implements RepositoryMetricsMBean {
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryMetrics.class);
+
+    /**
+     * The JMX domain the MBeans are registered under.
+     */
+    public static final String JMX_DOMAIN = "org.elasticsearch.omg";
+
+    private final String index;
+
+    private final String type;
+
+    private final Map<Operation, OperationMetrics> operations = new EnumMap<Operation, OperationMetrics>(Operation.class);
+
+    private final AtomicLong bulkRequests = new AtomicLong();
+
+    private final AtomicLong bulkActions = new AtomicLong();
+
+    private final AtomicLong bulkBytes = new AtomicLong();
+
+    private final LatencyHistogram serialization = new LatencyHistogram();
+
+    private final LatencyHistogram deserialization = new LatencyHistogram();
+
+    private volatile MetricsSink sink;
+
+    private AdmissionController admissionController;
+
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+    private MBeanServer mbeanServer;
+
+    /**
+     * @param index the index name of the repository
+     * @param type  the object type of the repository
+     */
+    public RepositoryMetrics(String index, String type) {
+        this.index = index;
+        this.type = type;
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationMetrics(operation));
+        }
+    }
+
+    /**
+     * Record a call of an operation.
+     *
+     * @param operation  the operation
+     * @param startNanos when the call started, from {@link System#nanoTime()}
+     * @param failed     whether the call threw
+     */
+    public void record(Operation operation, long startNanos, boolean failed) {
+        long nanos = System.nanoTime() - startNanos;
+        operations.get(operation).record(nanos, failed);
+        MetricsSink current = sink;
+        if (current != null) {
+            try {
+                current.onOperation(index, type, operation, nanos, failed);
+            } catch (RuntimeException e) {
+                logger.warn("Metrics sink failed", e);
+            }
+        }
+    }
+
+    /**
+     * Record a bulk request being sent.
+     *
+     * @param actions the number of actions in the bulk
+     * @param bytes   the size of the sources in the bulk
+     */
+    public void recordBulk(int actions, long bytes) {
+        bulkRequests.incrementAndGet();
+        bulkActions.addAndGet(actions);
+        bulkBytes.addAndGet(bytes);
+        MetricsSink current = sink;
+        if (current != null) {
+            try {
+                current.onBulk(index, type, actions, bytes);
+            } catch (RuntimeException e) {
+                logger.warn("Metrics sink failed", e);
+            }
+        }
+    }
+
+    /**
+     * Record a document being serialized.
+     *
+     * @param startNanos when serializing started, from {@link System#nanoTime()}
+     */
+    public void recordSerialization(long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        serialization.recordNanos(nanos);
+        MetricsSink current = sink;
+        if (current != null) {
+            try {
+                current.onSerialization(index, type, nanos);
+            } catch (RuntimeException e) {
+                logger.warn("Metrics sink failed", e);
+            }
+        }
+    }
+
+    /**
+     * Record a document being deserialized.
+     *
+     * @param startNanos when deserializing started, from {@link System#nanoTime()}
+     */
+    public void recordDeserialization(long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        deserialization.recordNanos(nanos);
+        MetricsSink current = sink;
+        if (current != null) {
+            try {
+                current.onDeserialization(index, type, nanos);
+            } catch (RuntimeException e) {
+                logger.warn("Metrics sink failed", e);
+            }
+        }
+    }
+
+    /**
+     * The metrics of an operation.
+     *
+     * @param operation the operation
+     * @return the metrics
+     */
+    public OperationMetrics getOperation(Operation operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * The metrics of all operations.
+     *
+     * @return the metrics, in the order of {@link Operation}
+     */
+    public Collection<OperationMetrics> getOperations() {
+        return Collections.unmodifiableCollection(operations.values());
+    }
+
+    /**
+     * The time spent serializing each document.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getSerialization() {
+        return serialization;
+    }
+
+    /**
+     * The time spent deserializing each document.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getDeserialization() {
+        return deserialization;
+    }
+
+    /**
+     * The admission controller of the repository, registered as an MBean with the metrics.
+     *
+     * @param admissionController the controller
+     */
+    public void setAdmissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    public MetricsSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Hand every measurement to a sink as well.
+     *
+     * @param sink the sink, or <code>null</code> for none
+     */
+    public void setSink(MetricsSink sink) {
+        this.sink = sink;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getBulkRequests() {
+        return bulkRequests.get();
+    }
+
+    public long getBulkActions() {
+        return bulkActions.get();
+    }
+
+    public long getBulkBytes() {
+        return bulkBytes.get();
+    }
+
+    public long getSerializedDocuments() {
+        return serialization.getCount();
+    }
+
+    public double getSerializationMeanMillis() {
+        return serialization.getMeanMillis();
+    }
+
+    public double getSerialization99thPercentileMillis() {
+        return serialization.getPercentileMillis(99);
+    }
+
+    public long getDeserializedDocuments() {
+        return deserialization.getCount();
+    }
+
+    public double getDeserializationMeanMillis() {
+        return deserialization.getMeanMillis();
+    }
+
+    public double getDeserialization99thPercentileMillis() {
+        return deserialization.getPercentileMillis(99);
+    }
+
+    public void reset() {
+        for (OperationMetrics operation : operations.values()) {
+            operation.reset();
+        }
+        bulkRequests.set(0);
+        bulkActions.set(0);
+        bulkBytes.set(0);
+        serialization.reset();
+        deserialization.reset();
+    }
+
+    /**
+     * Register the MBeans of the repository and its operations. An MBean already registered under the same name,
+     * e.g. by another repository of the same index and type, is left alone.
+     *
+     * @param server the server to register with
+     * @throws ElasticSearchOMGException on error registering
+     */
+    public synchronized void registerMBeans(MBeanServer server) throws ElasticSearchOMGException {
+        unregisterMBeans();
+        mbeanServer = server;
+        try {
+            register(new ObjectName(objectName(null)), this);
+            for (OperationMetrics operation : operations.values()) {
+                register(new ObjectName(objectName(operation.getOperation())), operation);
+            }
+            if (admissionController != null) {
+                register(new ObjectName(objectName(null).replace("type=RepositoryMetrics", "type=AdmissionController")),
+                        admissionController);
+            }
+        } catch (JMException e) {
+            unregisterMBeans();
+            throw new ElasticSearchOMGException("Unable to register metrics MBeans of index: "+index+", type: "+type, e);
+        }
+    }
+
+    private void register(ObjectName name, Object mbean) throws JMException {
+        try {
+            mbeanServer.registerMBean(mbean, name);
+            registered.add(name);
+        } catch (InstanceAlreadyExistsException e) {
+            logger.warn("MBean: "+name+" is already registered");
+        }
+    }
+
+    /**
+     * Unregister the MBeans registered by {@link #registerMBeans(MBeanServer)}.
+     */
+    public synchronized void unregisterMBeans() {
+        for (ObjectName name : registered) {
+            try {
+                mbeanServer.unregisterMBean(name);
+            } catch (JMException e) {
+                logger.warn("Unable to unregister MBean: "+name, e);
+            }
+        }
+        registered.clear();
+        mbeanServer = null;
+    }
+
+    private String objectName(Operation operation) {
+        StringBuilder name = new StringBuilder(JMX_DOMAIN)
+                .append(":type=RepositoryMetrics,index=").append(ObjectName.quote(index))
+                .append(",objectType=").append(ObjectName.quote(type));
+        if (operation != null) {
+            name.append(",operation=").append(operation.getMetricName());
+        }
+        return name.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "RepositoryMetrics[index="+index+", type="+type+", operations="+operations.values()
+                +", bulkActions="+getBulkActions()+", bulkBytes="+getBulkBytes()+"]";
+    }
+}
@@ -0,0 +1,33 @@
+package org.elasticsearch.omg.support.metrics;
+
+/**
+ * The JMX view of {@link RepositoryMetrics}. Latencies are in milliseconds.
+ *
+ * @author jereanon
+ */
+public interface RepositoryMetricsMBean {
+
+    String getIndex();
+
+    String getType();
+
+    long getBulkRequests();
+
+    long getBulkActions();
+
+    long getBulkBytes();
+
+    long getSerializedDocuments();
+
+    double getSerializationMeanMillis();
+
+    double getSerialization99thPercentileMillis();
+
+    long getDeserializedDocuments();
+
+    double getDeserializationMeanMillis();
+
+    double getDeserialization99thPercentileMillis();
+
+    void reset();
+}
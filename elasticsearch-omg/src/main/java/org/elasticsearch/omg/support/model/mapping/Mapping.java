@@ -10,6 +10,12 @@ public class Mapping {
 
     private String mappingName;
     private List<MappingProperty> properties = new ArrayList<MappingProperty>();
+    private boolean compressSource;
+    private String compressThreshold;
+    private boolean dynamic = true;
+    private boolean allEnabled = true;
+    private List<String> sourceIncludes = new ArrayList<String>();
+    private List<String> sourceExcludes = new ArrayList<String>();
 
     public String getMappingName() {
         return mappingName;
@@ -26,4 +32,52 @@ public class Mapping {
     public void setProperties(List<MappingProperty> properties) {
         this.properties = properties;
     }
+
+    public boolean isCompressSource() {
+        return compressSource;
+    }
+
+    public void setCompressSource(boolean compressSource) {
+        this.compressSource = compressSource;
+    }
+
+    public String getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(String compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public boolean isDynamic() {
+        return dynamic;
+    }
+
+    public void setDynamic(boolean dynamic) {
+        this.dynamic = dynamic;
+    }
+
+    public boolean isAllEnabled() {
+        return allEnabled;
+    }
+
+    public void setAllEnabled(boolean allEnabled) {
+        this.allEnabled = allEnabled;
+    }
+
+    public List<String> getSourceIncludes() {
+        return sourceIncludes;
+    }
+
+    public void setSourceIncludes(List<String> sourceIncludes) {
+        this.sourceIncludes = sourceIncludes;
+    }
+
+    public List<String> getSourceExcludes() {
+        return sourceExcludes;
+    }
+
+    public void setSourceExcludes(List<String> sourceExcludes) {
+        this.sourceExcludes = sourceExcludes;
+    }
 }
@@ -11,6 +11,11 @@ public class MappingProperty {
     private String type;
     private String index;
     private List<MappingProperty> fields;
+    private Boolean store;
+    private Boolean includeInAll;
+    private Boolean omitNorms;
+    private Boolean omitTermFreqAndPositions;
+    private String termVector;
 
     public String getName() {
         return name;
@@ -43,4 +48,44 @@ public class MappingProperty {
     public void setFields(List<MappingProperty> fields) {
         this.fields = fields;
     }
+
+    public Boolean getStore() {
+        return store;
+    }
+
+    public void setStore(Boolean store) {
+        this.store = store;
+    }
+
+    public Boolean getIncludeInAll() {
+        return includeInAll;
+    }
+
+    public void setIncludeInAll(Boolean includeInAll) {
+        this.includeInAll = includeInAll;
+    }
+
+    public Boolean getOmitNorms() {
+        return omitNorms;
+    }
+
+    public void setOmitNorms(Boolean omitNorms) {
+        this.omitNorms = omitNorms;
+    }
+
+    public Boolean getOmitTermFreqAndPositions() {
+        return omitTermFreqAndPositions;
+    }
+
+    public void setOmitTermFreqAndPositions(Boolean omitTermFreqAndPositions) {
+        this.omitTermFreqAndPositions = omitTermFreqAndPositions;
+    }
+
+    public String getTermVector() {
+        return termVector;
+    }
+
+    public void setTermVector(String termVector) {
+        this.termVector = termVector;
+    }
 }
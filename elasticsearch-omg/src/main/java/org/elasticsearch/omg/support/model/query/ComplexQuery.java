@@ -2,9 +2,11 @@ package org.elasticsearch.omg.support.model.query;
 
 import org.elasticsearch.index.query.BoolFilterBuilder;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -15,7 +17,10 @@ public class ComplexQuery {
     private List<String> classNames = new ArrayList<String>();
     private BoolFilterBuilder boolFilterBuilder;
     private BoolQueryBuilder boolQueryBuilder;
+    private FilterBuilder postFilterBuilder;
     private SortBuilder sortBuilder;
+    private Date timeRangeFrom;
+    private Date timeRangeTo;
 
     public BoolQueryBuilder getBoolQueryBuilder() {
         return boolQueryBuilder;
@@ -41,6 +46,21 @@ public class ComplexQuery {
         this.boolFilterBuilder = boolFilterBuilder;
     }
 
+    /**
+     * A filter applied to the hits only, after the query and its filters ran. The bool filter and the exact
+     * conditions of the bool query are applied inside a <code>filtered</code> query; a post filter is only needed
+     * when something computed from the query, like facets, must see the documents it filters out.
+     *
+     * @return the post filter, or <code>null</code> for none
+     */
+    public FilterBuilder getPostFilterBuilder() {
+        return postFilterBuilder;
+    }
+
+    public void setPostFilterBuilder(FilterBuilder postFilterBuilder) {
+        this.postFilterBuilder = postFilterBuilder;
+    }
+
     public SortBuilder getSortBuilder() {
         return sortBuilder;
     }
@@ -49,5 +69,51 @@ public class ComplexQuery {
         this.sortBuilder = sortBuilder;
     }
 
+    /**
+     * The start of the time range of the query, inclusive. For documents with a
+     * {@link org.elasticsearch.omg.support.ElasticSearchIndex#timestampProperty()} only documents in the range are
+     * returned, and only the indexes overlapping the range are searched.
+     *
+     * @return the start, or <code>null</code> for no lower bound
+     */
+    public Date getTimeRangeFrom() {
+        return timeRangeFrom;
+    }
+
+    public void setTimeRangeFrom(Date timeRangeFrom) {
+        this.timeRangeFrom = timeRangeFrom;
+    }
+
+    /**
+     * The end of the time range of the query, inclusive.
+     *
+     * @return the end, or <code>null</code> for no upper bound
+     */
+    public Date getTimeRangeTo() {
+        return timeRangeTo;
+    }
+
+    public void setTimeRangeTo(Date timeRangeTo) {
+        this.timeRangeTo = timeRangeTo;
+    }
+
+    /**
+     * Convenience method to set both ends of the time range.
+     *
+     * @param from the start, inclusive, or <code>null</code>
+     * @param to   the end, inclusive, or <code>null</code>
+     */
+    public void setTimeRange(Date from, Date to) {
+        this.timeRangeFrom = from;
+        this.timeRangeTo = to;
+    }
+
+    /**
+     * @return true if the query has a time range
+     */
+    public boolean hasTimeRange() {
+        return timeRangeFrom != null || timeRangeTo != null;
+    }
+
 }
 
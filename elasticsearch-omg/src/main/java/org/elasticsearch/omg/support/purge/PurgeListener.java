@@ -0,0 +1,23 @@
+package org.elasticsearch.omg.support.purge;
+
+/**
+ * Notified as a purge deletes documents. Called from the thread deleting, so implementations must be quick.
+ *
+ * @author jereanon
+ */
+public interface PurgeListener {
+
+    /**
+     * A bulk of documents has been deleted.
+     *
+     * @param progress the progress so far, can be cancelled
+     */
+    void onProgress(PurgeProgress progress);
+
+    /**
+     * The purge is done, or was cancelled.
+     *
+     * @param progress the final progress
+     */
+    void onComplete(PurgeProgress progress);
+}
@@ -0,0 +1,124 @@
+package org.elasticsearch.omg.support.purge;
+
+/**
+ * Options of a throttled purge. The defaults delete one bulk at a time at full speed over all shards at once.
+ *
+ * @author jereanon
+ */
+public class PurgeOptions {
+
+    private int scrollSize = 500;
+
+    private String keepAlive = "5m";
+
+    private int bulkSize = 500;
+
+    private double maxDocumentsPerSecond;
+
+    private double maxBytesPerSecond;
+
+    private boolean sliceByShard;
+
+    private PurgeListener listener;
+
+    /**
+     * The number of ids fetched per shard for each page of the scan.
+     *
+     * @return the size
+     */
+    public int getScrollSize() {
+        return scrollSize;
+    }
+
+    public PurgeOptions setScrollSize(int scrollSize) {
+        this.scrollSize = scrollSize;
+        return this;
+    }
+
+    /**
+     * How long the scan is kept open between pages, in elastic search time format.
+     *
+     * @return the keep alive, e.g. <code>5m</code>
+     */
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    public PurgeOptions setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * The maximum number of deletes per bulk request.
+     *
+     * @return the bulk size
+     */
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    public PurgeOptions setBulkSize(int bulkSize) {
+        this.bulkSize = bulkSize;
+        return this;
+    }
+
+    /**
+     * Throttles the deletes so they leave room for production traffic, zero for no limit.
+     *
+     * @return the maximum documents deleted per second
+     */
+    public double getMaxDocumentsPerSecond() {
+        return maxDocumentsPerSecond;
+    }
+
+    public PurgeOptions setMaxDocumentsPerSecond(double maxDocumentsPerSecond) {
+        this.maxDocumentsPerSecond = maxDocumentsPerSecond;
+        return this;
+    }
+
+    /**
+     * Throttles the deletes by the bytes they free, which is what the merges have to catch up with, zero for no
+     * limit. The size of a document is estimated from the store size and document count of its index.
+     *
+     * @return the maximum bytes deleted per second
+     */
+    public double getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    public PurgeOptions setMaxBytesPerSecond(double maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Whether the shards are purged one after the other instead of all at once, so only one shard at a time takes
+     * the deletes and the merges they cause. Relies on the documents being routed by id with the default hash
+     * function.
+     *
+     * @return true to purge shard by shard
+     */
+    public boolean isSliceByShard() {
+        return sliceByShard;
+    }
+
+    public PurgeOptions setSliceByShard(boolean sliceByShard) {
+        this.sliceByShard = sliceByShard;
+        return this;
+    }
+
+    /**
+     * Notified of the progress of the purge.
+     *
+     * @return the listener, may be <code>null</code>
+     */
+    public PurgeListener getListener() {
+        return listener;
+    }
+
+    public PurgeOptions setListener(PurgeListener listener) {
+        this.listener = listener;
+        return this;
+    }
+}
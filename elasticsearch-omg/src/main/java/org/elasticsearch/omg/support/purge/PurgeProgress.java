@@ -0,0 +1,164 @@
+package org.elasticsearch.omg.support.purge;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and throughput of a purge. Cancelling it stops the purge after the bulk being deleted.
+ *
+ * @author jereanon
+ */
+public class PurgeProgress {
+
+    private final long totalDocuments;
+
+    private final int totalSlices;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile long endTime;
+
+    private volatile boolean cancelled;
+
+    private final AtomicInteger completedSlices = new AtomicInteger();
+
+    private final AtomicLong deletedDocuments = new AtomicLong();
+
+    private final AtomicLong deletedBytes = new AtomicLong();
+
+    private final AtomicLong notFoundDocuments = new AtomicLong();
+
+    private final AtomicLong failedDocuments = new AtomicLong();
+
+    public PurgeProgress(long totalDocuments, int totalSlices) {
+        this.totalDocuments = totalDocuments;
+        this.totalSlices = totalSlices;
+    }
+
+    void addDeleted(long documents, long bytes, long notFound, long failed) {
+        deletedDocuments.addAndGet(documents);
+        deletedBytes.addAndGet(bytes);
+        notFoundDocuments.addAndGet(notFound);
+        failedDocuments.addAndGet(failed);
+    }
+
+    void completeSlice() {
+        completedSlices.incrementAndGet();
+    }
+
+    /**
+     * Mark the purge as done, stopping the clock.
+     */
+    void complete() {
+        endTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Stop the purge after the bulk being deleted. The documents deleted so far stay deleted.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * The number of documents matching the query when the purge started.
+     *
+     * @return the count
+     */
+    public long getTotalDocuments() {
+        return totalDocuments;
+    }
+
+    /**
+     * The number of slices the purge runs, one per shard when sliced by shard, otherwise one.
+     *
+     * @return the count
+     */
+    public int getTotalSlices() {
+        return totalSlices;
+    }
+
+    public int getCompletedSlices() {
+        return completedSlices.get();
+    }
+
+    public long getDeletedDocuments() {
+        return deletedDocuments.get();
+    }
+
+    /**
+     * The estimated size of the documents deleted.
+     *
+     * @return the byte count
+     */
+    public long getDeletedBytes() {
+        return deletedBytes.get();
+    }
+
+    /**
+     * The number of documents already gone when their delete arrived.
+     *
+     * @return the count
+     */
+    public long getNotFoundDocuments() {
+        return notFoundDocuments.get();
+    }
+
+    /**
+     * The number of deletes that failed, they are logged and the purge goes on.
+     *
+     * @return the count
+     */
+    public long getFailedDocuments() {
+        return failedDocuments.get();
+    }
+
+    /**
+     * How long the purge has been running, or ran for once complete.
+     *
+     * @return the time in milliseconds
+     */
+    public long getElapsedMillis() {
+        long end = endTime > 0 ? endTime : System.currentTimeMillis();
+        return Math.max(1, end - startTime);
+    }
+
+    /**
+     * The delete throughput.
+     *
+     * @return documents per second
+     */
+    public double getDocumentsPerSecond() {
+        return getDeletedDocuments() * 1000d / getElapsedMillis();
+    }
+
+    /**
+     * How far along the purge is.
+     *
+     * @return the percentage of the matching documents handled, 100 when nothing matched
+     */
+    public double getPercentComplete() {
+        if (totalDocuments <= 0) {
+            return 100d;
+        }
+        long handled = getDeletedDocuments() + getNotFoundDocuments() + getFailedDocuments();
+        return Math.min(100d, handled * 100d / totalDocuments);
+    }
+
+    public boolean isComplete() {
+        return endTime > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "purge: "+getDeletedDocuments()+"/"+totalDocuments+" documents ("
+                +String.format("%.1f", getPercentComplete())+"%), slice "+getCompletedSlices()+"/"+totalSlices+", "
+                +String.format("%.0f", getDocumentsPerSecond())+" docs/s"
+                +(getFailedDocuments() > 0 ? ", "+getFailedDocuments()+" failed" : "")
+                +(cancelled ? ", cancelled" : "");
+    }
+}
@@ -0,0 +1,198 @@
+package org.elasticsearch.omg.support.purge;
+
+import org.elasticsearch.action.admin.indices.stats.CommonStats;
+import org.elasticsearch.action.admin.indices.stats.IndexStats;
+import org.elasticsearch.action.admin.indices.stats.IndicesStats;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.scan.ScanHandler;
+import org.elasticsearch.omg.support.scan.ScrollScanner;
+import org.elasticsearch.omg.util.RateLimiter;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes the documents matching a query at a pace the cluster can take, instead of the single delete-by-query that
+ * hits every shard at once. The ids of the matching documents are scanned, without their source, and deleted in
+ * rate limited bulk requests. Sliced by shard, the shards are purged one after the other: a scan with a routing value
+ * only reads the shard the value hashes to, and the deletes of its documents, routed by id, go to that shard too.
+ *
+ * @author jereanon
+ */
+public class Purger {
+    private static final Logger logger = LoggerFactory.getLogger(Purger.class);
+
+    private final Client client;
+
+    private final PurgeOptions options;
+
+    private final RateLimiter documentLimiter;
+
+    private final RateLimiter byteLimiter;
+
+    public Purger(Client client, PurgeOptions options) {
+        this.client = client;
+        this.options = options;
+        this.documentLimiter = new RateLimiter(options.getMaxDocumentsPerSecond());
+        this.byteLimiter = new RateLimiter(options.getMaxBytesPerSecond());
+    }
+
+    /**
+     * Delete the documents of the given types matching the query.
+     *
+     * @param query   the query documents must match
+     * @param indices the indexes to purge, aliases are resolved
+     * @param types   the document types to purge
+     * @return the final progress, cancelled if the purge was
+     * @throws ElasticSearchOMGException if the scan fails
+     */
+    public PurgeProgress purge(QueryBuilder query, String[] indices, String... types) throws ElasticSearchOMGException {
+        MetaData metaData = client.admin().cluster().prepareState()
+                .setFilterRoutingTable(true)
+                .setFilterNodes(true)
+                .execute()
+                .actionGet()
+                .state()
+                .metaData();
+        String[] concrete = metaData.concreteIndicesIgnoreMissing(indices);
+        if (concrete.length == 0) {
+            PurgeProgress progress = new PurgeProgress(0, 0);
+            progress.complete();
+            return progress;
+        }
+
+        long total = client.prepareCount(concrete)
+                .setTypes(types)
+                .setQuery(query)
+                .execute()
+                .actionGet()
+                .count();
+        final Map<String, Long> documentBytes = options.getMaxBytesPerSecond() > 0
+                ? averageDocumentBytes(concrete)
+                : new HashMap<String, Long>();
+
+        // an index and routing value per slice, a single slice of every shard when not sliced
+        List<String[]> slices = new ArrayList<String[]>();
+        if (options.isSliceByShard()) {
+            for (String index : concrete) {
+                int shards = metaData.index(index).numberOfShards();
+                for (int shard = 0; shard < shards; shard++) {
+                    slices.add(new String[] { index, ScrollScanner.routingFor(shard, shards) });
+                }
+            }
+        } else {
+            slices.add(null);
+        }
+
+        final PurgeProgress progress = new PurgeProgress(total, slices.size());
+        final PurgeListener listener = options.getListener();
+        logger.info("Purging "+total+" documents of types: "+Arrays.toString(types)+" from indexes: "
+                +Arrays.toString(concrete)+" in "+slices.size()+" slices");
+        for (String[] slice : slices) {
+            if (progress.isCancelled()) {
+                break;
+            }
+            final ScrollScanner scanner = new ScrollScanner(client, slice != null ? new String[] { slice[0] } : concrete)
+                    .setTypes(types)
+                    .setQuery(query)
+                    .setScrollSize(options.getScrollSize())
+                    .setKeepAlive(TimeValue.parseTimeValue(options.getKeepAlive(), TimeValue.timeValueMinutes(5)))
+                    .setConcurrency(1)
+                    .setFetchSource(false)
+                    .setRouting(slice != null ? slice[1] : null);
+            scanner.scan(new ScanHandler() {
+                public void onHits(String index, SearchHit[] hits) {
+                    int bulkSize = Math.max(1, options.getBulkSize());
+                    for (int i = 0; i < hits.length; i += bulkSize) {
+                        if (progress.isCancelled()) {
+                            scanner.cancel();
+                            return;
+                        }
+                        deleteBatch(progress, documentBytes, hits, i, Math.min(hits.length, i + bulkSize));
+                        if (listener != null) {
+                            listener.onProgress(progress);
+                        }
+                    }
+                    logger.debug("{}", progress);
+                }
+            });
+            progress.completeSlice();
+        }
+
+        progress.complete();
+        logger.info("Done, "+progress);
+        if (listener != null) {
+            listener.onComplete(progress);
+        }
+        return progress;
+    }
+
+    private void deleteBatch(PurgeProgress progress, Map<String, Long> documentBytes, SearchHit[] hits, int from, int to) {
+        BulkRequest bulk = new BulkRequest();
+        long bytes = 0;
+        for (int i = from; i < to; i++) {
+            SearchHit hit = hits[i];
+            bulk.add(new DeleteRequest(hit.index(), hit.type(), hit.id()));
+            Long size = documentBytes.get(hit.index());
+            if (size != null) {
+                bytes += size;
+            }
+        }
+        documentLimiter.acquire(to - from);
+        byteLimiter.acquire(bytes);
+        BulkResponse response = client.bulk(bulk).actionGet();
+
+        long deleted = 0;
+        long notFound = 0;
+        long failed = 0;
+        for (BulkItemResponse item : response.items()) {
+            if (item.failed()) {
+                failed++;
+                logger.warn("Error purging document with ID: "+item.id()+" from index: "+item.index()+", "
+                        +item.failureMessage());
+            } else if (((DeleteResponse) item.response()).notFound()) {
+                notFound++;
+            } else {
+                deleted++;
+            }
+        }
+        progress.addDeleted(deleted, deleted * bytes / (to - from), notFound, failed);
+    }
+
+    /**
+     * The size of a document of each index, from the size of the primary store and the number of documents.
+     */
+    private Map<String, Long> averageDocumentBytes(String[] indices) {
+        IndicesStats stats = client.admin().indices().prepareStats(indices)
+                .clear()
+                .setDocs(true)
+                .setStore(true)
+                .execute()
+                .actionGet();
+        Map<String, Long> sizes = new HashMap<String, Long>();
+        for (String index : indices) {
+            IndexStats indexStats = stats.index(index);
+            CommonStats primaries = indexStats != null ? indexStats.primaries() : null;
+            if (primaries != null && primaries.docs() != null && primaries.store() != null
+                    && primaries.docs().count() > 0) {
+                sizes.put(index, Math.max(1, primaries.store().sizeInBytes() / primaries.docs().count()));
+            }
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,314 @@
+package org.elasticsearch.omg.support.query;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.query.BaseFilterBuilder;
+import org.elasticsearch.index.query.BaseQueryBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plans a search against the mapping of a document class, so conditions that don't need scoring run as cacheable
+ * filters of a <code>filtered</code> query instead of being scored:
+ * <ul>
+ * <li><code>term</code>, <code>terms</code>, <code>range</code> and <code>prefix</code> clauses without a boost in
+ * the <code>must</code> and <code>must_not</code> of a top level bool query are moved into the filter when their
+ * field is indexed as a whole, <code>not_analyzed</code> or not a string. Clauses on analyzed fields, or on fields
+ * the mapping doesn't know, are left to the query.</li>
+ * <li>Filters given with the query are applied in the <code>filtered</code> query too, a filter that must not narrow
+ * anything but the hits stays a post filter of the search.</li>
+ * </ul>
+ * The must clauses are left in place when they are all exact and the bool query has should clauses, which would
+ * otherwise become required. Clauses are never pointed at other fields than the ones they name: on a
+ * <code>multi_field</code> the property name is the <code>not_analyzed</code> field, a text query on it matches the
+ * value exactly, {@link #getTextField(String)} gives the analyzed subfield to query instead, e.g.
+ * <code>message.queryable</code>. A planner is immutable and shared by the searches of a repository.
+ *
+ * @author jereanon
+ */
+public class QueryPlanner {
+
+    private static final Set<String> EXACT_CLAUSES = new HashSet<String>(Arrays.asList(
+            "term", "terms", "range", "prefix"));
+
+    /**
+     * The properties that can be matched exactly, to the field that does.
+     */
+    private final Map<String, String> exactFields = new HashMap<String, String>();
+
+    /**
+     * The properties that can be matched as text, to the field that does.
+     */
+    private final Map<String, String> textFields = new HashMap<String, String>();
+
+    /**
+     * @param mappingJSON the mapping of the document type, as put in elastic search
+     * @param objectType  the object type of the mapping
+     * @throws ElasticSearchOMGException if the mapping can't be parsed
+     */
+    public QueryPlanner(String mappingJSON, String objectType) throws ElasticSearchOMGException {
+        try {
+            Map<String, Object> mapping = new ObjectMapper().readValue(mappingJSON, Map.class);
+            if (mapping.get(objectType) instanceof Map) {
+                mapping = (Map<String, Object>) mapping.get(objectType);
+            }
+            if (mapping.get("properties") instanceof Map) {
+                addProperties("", (Map<String, Object>) mapping.get("properties"));
+            }
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Error reading the mapping of type: " + objectType, e);
+        }
+    }
+
+    private void addProperties(String prefix, Map<String, Object> properties) {
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            if (!(entry.getValue() instanceof Map)) {
+                continue;
+            }
+            String path = prefix + entry.getKey();
+            Map<String, Object> property = (Map<String, Object>) entry.getValue();
+            if ("multi_field".equals(property.get("type")) && property.get("fields") instanceof Map) {
+                // the subfield named as the property is the one the property name resolves to
+                Map<String, Object> fields = (Map<String, Object>) property.get("fields");
+                for (Map.Entry<String, Object> field : fields.entrySet()) {
+                    if (field.getValue() instanceof Map) {
+                        boolean main = field.getKey().equals(entry.getKey());
+                        addField(main ? path : path + "." + field.getKey(), path, (Map<String, Object>) field.getValue(), main);
+                    }
+                }
+            } else if (property.get("properties") instanceof Map) {
+                addProperties(path + ".", (Map<String, Object>) property.get("properties"));
+            } else {
+                addField(path, path, property, true);
+            }
+        }
+    }
+
+    private void addField(String field, String path, Map<String, Object> definition, boolean exact) {
+        Object index = definition.get("index");
+        if ("no".equals(index)) {
+            return;
+        }
+        Object type = definition.get("type");
+        boolean analyzed = (type == null || "string".equals(type)) && (index == null || "analyzed".equals(index));
+        if (!analyzed && exact) {
+            exactFields.put(path, field);
+        }
+        // an analyzed subfield is preferred for text, the field itself is used if there is none
+        if (analyzed || (exact && !textFields.containsKey(path))) {
+            textFields.put(path, field);
+        }
+    }
+
+    /**
+     * The field exact matches on a property go to.
+     *
+     * @return the field, or <code>null</code> if the property isn't indexed as a whole
+     */
+    @Nullable
+    public String getExactField(String property) {
+        return exactFields.get(property);
+    }
+
+    /**
+     * The field that matches a property as text, its analyzed subfield when it has one.
+     *
+     * @return the field, or <code>null</code> if the property isn't indexed
+     */
+    @Nullable
+    public String getTextField(String property) {
+        return textFields.get(property);
+    }
+
+    /**
+     * Plan a query and a filter into a single query.
+     *
+     * @param query  the query, <code>null</code> to match every document
+     * @param filter the filter, <code>null</code> for none
+     * @return the planned query, or <code>null</code> if there is neither query nor filter
+     */
+    @Nullable
+    public QueryBuilder plan(@Nullable QueryBuilder query, @Nullable FilterBuilder filter) {
+        List<Object> mustFilters = new ArrayList<Object>();
+        List<Object> mustNotFilters = new ArrayList<Object>();
+        QueryBuilder planned = null;
+        if (query != null) {
+            Map<String, Object> root = toMap(query);
+            if (root.size() == 1 && root.get("bool") instanceof Map) {
+                Map<String, Object> bool = planBool((Map<String, Object>) root.get("bool"), mustFilters, mustNotFilters);
+                if (bool != null) {
+                    planned = new MapQueryBuilder(Collections.<String, Object>singletonMap("bool", bool));
+                }
+            } else {
+                planned = new MapQueryBuilder(root);
+            }
+        }
+
+        List<FilterBuilder> filters = new ArrayList<FilterBuilder>();
+        if (!mustFilters.isEmpty() || !mustNotFilters.isEmpty()) {
+            Map<String, Object> bool = new LinkedHashMap<String, Object>();
+            if (!mustFilters.isEmpty()) {
+                bool.put("must", mustFilters);
+            }
+            if (!mustNotFilters.isEmpty()) {
+                bool.put("must_not", mustNotFilters);
+            }
+            filters.add(new MapFilterBuilder(Collections.<String, Object>singletonMap("bool", bool)));
+        }
+        if (filter != null) {
+            filters.add(filter);
+        }
+
+        if (filters.isEmpty()) {
+            return planned;
+        }
+        FilterBuilder combined = filters.size() == 1
+                ? filters.get(0)
+                : FilterBuilders.andFilter(filters.toArray(new FilterBuilder[filters.size()]));
+        return planned != null
+                ? QueryBuilders.filteredQuery(planned, combined)
+                : QueryBuilders.constantScoreQuery(combined);
+    }
+
+    /**
+     * Move the exact clauses of a bool query to the filters.
+     *
+     * @return the bool query left, or <code>null</code> if no clause is left
+     */
+    private Map<String, Object> planBool(Map<String, Object> bool, List<Object> mustFilters, List<Object> mustNotFilters) {
+        List<Object> must = asList(bool.get("must"));
+        List<Object> mustNot = asList(bool.get("must_not"));
+        List<Object> should = asList(bool.get("should"));
+
+        List<Object> keptMust = new ArrayList<Object>();
+        List<Object> movedMust = new ArrayList<Object>();
+        for (Object clause : must) {
+            (isExact(clause) ? movedMust : keptMust).add(clause);
+        }
+        if (keptMust.isEmpty() && !should.isEmpty()) {
+            // without a must clause left the should clauses would become required
+            keptMust = must;
+            movedMust = Collections.emptyList();
+        }
+        List<Object> keptMustNot = new ArrayList<Object>();
+        for (Object clause : mustNot) {
+            if (isExact(clause)) {
+                mustNotFilters.add(clause);
+            } else {
+                keptMustNot.add(clause);
+            }
+        }
+        mustFilters.addAll(movedMust);
+
+        if (keptMust.isEmpty() && keptMustNot.isEmpty() && should.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> planned = new LinkedHashMap<String, Object>(bool);
+        planned.remove("must");
+        planned.remove("must_not");
+        if (!keptMust.isEmpty()) {
+            planned.put("must", keptMust);
+        }
+        if (!keptMustNot.isEmpty()) {
+            planned.put("must_not", keptMustNot);
+        }
+        return planned;
+    }
+
+    /**
+     * Whether a clause is an exact match without a boost on a field indexed as a whole, which reads the same as a
+     * filter.
+     */
+    private boolean isExact(Object clause) {
+        if (!(clause instanceof Map) || ((Map) clause).size() != 1) {
+            return false;
+        }
+        Map.Entry<String, Object> entry = ((Map<String, Object>) clause).entrySet().iterator().next();
+        if (!EXACT_CLAUSES.contains(entry.getKey()) || !(entry.getValue() instanceof Map)) {
+            return false;
+        }
+        Map<String, Object> body = (Map<String, Object>) entry.getValue();
+        if (body.size() != 1) {
+            return false;
+        }
+        Map.Entry<String, Object> field = body.entrySet().iterator().next();
+        if (!exactFields.containsKey(field.getKey())) {
+            return false;
+        }
+        if ("range".equals(entry.getKey())) {
+            return field.getValue() instanceof Map && !((Map) field.getValue()).containsKey("boost");
+        }
+        // the object forms of term and prefix carry a boost
+        return !(field.getValue() instanceof Map);
+    }
+
+    private static List<Object> asList(Object clauses) {
+        if (clauses == null) {
+            return Collections.emptyList();
+        } else if (clauses instanceof List) {
+            return (List<Object>) clauses;
+        }
+        return Collections.singletonList(clauses);
+    }
+
+    private static Map<String, Object> toMap(QueryBuilder query) {
+        try {
+            return new ObjectMapper().readValue(query.toString(), Map.class);
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Error reading query: " + query, e);
+        }
+    }
+
+    /**
+     * A query rendered from its parsed form.
+     */
+    private static class MapQueryBuilder extends BaseQueryBuilder {
+
+        private final Map<String, Object> source;
+
+        MapQueryBuilder(Map<String, Object> source) {
+            this.source = source;
+        }
+
+        @Override
+        protected void doXContent(XContentBuilder builder, Params params) throws IOException {
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * A filter rendered from its parsed form.
+     */
+    private static class MapFilterBuilder extends BaseFilterBuilder {
+
+        private final Map<String, Object> source;
+
+        MapFilterBuilder(Map<String, Object> source) {
+            this.source = source;
+        }
+
+        @Override
+        protected void doXContent(XContentBuilder builder, Params params) throws IOException {
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
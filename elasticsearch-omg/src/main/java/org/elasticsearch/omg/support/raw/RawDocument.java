@@ -0,0 +1,109 @@
+package org.elasticsearch.omg.support.raw;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A document as its serialized source, JSON or SMILE, for writing bytes that are already serialized and reading
+ * sources without binding them to objects. The source is a range of a byte array that isn't copied: when read from a
+ * response it points into the buffer of the response.
+ *
+ * @author jereanon
+ */
+public class RawDocument {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private String id;
+
+    private String index;
+
+    private byte[] source;
+
+    private int offset;
+
+    private int length;
+
+    public RawDocument() {
+    }
+
+    public RawDocument(String id, byte[] source) {
+        this(id, source, 0, source.length);
+    }
+
+    public RawDocument(String id, byte[] source, int offset, int length) {
+        this.id = id;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * The id, <code>null</code> to have elastic search generate one.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public RawDocument setId(String id) {
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * The index the document is in or goes to. When writing to a partitioned repository without it, the source is
+     * bound to an object to find its partition.
+     */
+    public String getIndex() {
+        return index;
+    }
+
+    public RawDocument setIndex(String index) {
+        this.index = index;
+        return this;
+    }
+
+    /**
+     * The array holding the source, from the offset for the length.
+     */
+    public byte[] getSource() {
+        return source;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public RawDocument setSource(byte[] source, int offset, int length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * The source alone: the array itself when it holds nothing else, a copy otherwise.
+     */
+    public byte[] sourceBytes() {
+        if (offset == 0 && length == source.length) {
+            return source;
+        }
+        return Arrays.copyOfRange(source, offset, offset + length);
+    }
+
+    /**
+     * The source as a string, only meaningful for a JSON source.
+     */
+    public String sourceAsString() {
+        return new String(source, offset, length, UTF8);
+    }
+
+    @Override
+    public String toString() {
+        return "RawDocument[id="+id+", index="+index+", length="+length+"]";
+    }
+}
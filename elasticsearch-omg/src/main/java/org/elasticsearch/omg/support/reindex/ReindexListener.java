@@ -0,0 +1,24 @@
+package org.elasticsearch.omg.support.reindex;
+
+/**
+ * Notified as a reindex copies documents. Called from the threads writing the copies, so implementations must be
+ * thread safe and quick.
+ *
+ * @author jereanon
+ */
+public interface ReindexListener {
+
+    /**
+     * A batch of documents has been written to the new index.
+     *
+     * @param progress the progress so far
+     */
+    void onProgress(ReindexProgress progress);
+
+    /**
+     * The copy is done and the alias points at the new index.
+     *
+     * @param progress the final progress
+     */
+    void onComplete(ReindexProgress progress);
+}
@@ -0,0 +1,139 @@
+package org.elasticsearch.omg.support.reindex;
+
+import java.util.Map;
+
+/**
+ * Options of a reindex, the defaults copy at full speed and drop the old index once the alias is swapped.
+ *
+ * @author jereanon
+ */
+public class ReindexOptions {
+
+    private int scrollSize = 500;
+
+    private String keepAlive = "5m";
+
+    private int concurrency = 4;
+
+    private int bulkSize = 1000;
+
+    private double maxDocumentsPerSecond;
+
+    private Map<String, String> settings;
+
+    private boolean deleteSourceIndex = true;
+
+    private ReindexListener listener;
+
+    /**
+     * The number of documents fetched per shard for each page of the scan.
+     *
+     * @return the size
+     */
+    public int getScrollSize() {
+        return scrollSize;
+    }
+
+    public ReindexOptions setScrollSize(int scrollSize) {
+        this.scrollSize = scrollSize;
+        return this;
+    }
+
+    /**
+     * How long the scan is kept open between pages, in elastic search time format.
+     *
+     * @return the keep alive, e.g. <code>5m</code>
+     */
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    public ReindexOptions setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * The number of bulk requests writing to the new index at once.
+     *
+     * @return the concurrency
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public ReindexOptions setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * The maximum number of documents per bulk request.
+     *
+     * @return the bulk size
+     */
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    public ReindexOptions setBulkSize(int bulkSize) {
+        this.bulkSize = bulkSize;
+        return this;
+    }
+
+    /**
+     * Throttles the copy so it leaves room for production traffic, zero for no limit.
+     *
+     * @return the maximum documents copied per second
+     */
+    public double getMaxDocumentsPerSecond() {
+        return maxDocumentsPerSecond;
+    }
+
+    public ReindexOptions setMaxDocumentsPerSecond(double maxDocumentsPerSecond) {
+        this.maxDocumentsPerSecond = maxDocumentsPerSecond;
+        return this;
+    }
+
+    /**
+     * Settings of the new index, on top of the ones copied from the old index.
+     *
+     * @return the settings, may be <code>null</code>
+     */
+    public Map<String, String> getSettings() {
+        return settings;
+    }
+
+    public ReindexOptions setSettings(Map<String, String> settings) {
+        this.settings = settings;
+        return this;
+    }
+
+    /**
+     * Whether the old index is deleted once the alias points at the new one.
+     *
+     * @return true to delete it
+     */
+    public boolean isDeleteSourceIndex() {
+        return deleteSourceIndex;
+    }
+
+    public ReindexOptions setDeleteSourceIndex(boolean deleteSourceIndex) {
+        this.deleteSourceIndex = deleteSourceIndex;
+        return this;
+    }
+
+    /**
+     * Notified of the progress of the copy.
+     *
+     * @return the listener, may be <code>null</code>
+     */
+    public ReindexListener getListener() {
+        return listener;
+    }
+
+    public ReindexOptions setListener(ReindexListener listener) {
+        this.listener = listener;
+        return this;
+    }
+}
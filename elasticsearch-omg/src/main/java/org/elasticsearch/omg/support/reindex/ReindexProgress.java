@@ -0,0 +1,156 @@
+package org.elasticsearch.omg.support.reindex;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and throughput of a reindex.
+ *
+ * @author jereanon
+ */
+public class ReindexProgress {
+
+    private final String sourceIndex;
+
+    private final String targetIndex;
+
+    private final long totalDocuments;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile long endTime;
+
+    private final AtomicLong copiedDocuments = new AtomicLong();
+
+    private final AtomicLong copiedBytes = new AtomicLong();
+
+    private final AtomicLong skippedDocuments = new AtomicLong();
+
+    public ReindexProgress(String sourceIndex, String targetIndex, long totalDocuments) {
+        this.sourceIndex = sourceIndex;
+        this.targetIndex = targetIndex;
+        this.totalDocuments = totalDocuments;
+    }
+
+    void addCopied(long documents, long bytes) {
+        copiedDocuments.addAndGet(documents);
+        copiedBytes.addAndGet(bytes);
+    }
+
+    void addSkipped(long documents) {
+        skippedDocuments.addAndGet(documents);
+    }
+
+    /**
+     * Mark the reindex as done, stopping the clock.
+     */
+    public void complete() {
+        endTime = System.currentTimeMillis();
+    }
+
+    /**
+     * The physical index documents are copied from.
+     *
+     * @return the index name
+     */
+    public String getSourceIndex() {
+        return sourceIndex;
+    }
+
+    /**
+     * The physical index documents are copied to.
+     *
+     * @return the index name
+     */
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    /**
+     * The number of documents in the source index when the reindex started.
+     *
+     * @return the count
+     */
+    public long getTotalDocuments() {
+        return totalDocuments;
+    }
+
+    /**
+     * The number of documents written to the new index.
+     *
+     * @return the count
+     */
+    public long getCopiedDocuments() {
+        return copiedDocuments.get();
+    }
+
+    /**
+     * The number of source bytes written to the new index.
+     *
+     * @return the byte count
+     */
+    public long getCopiedBytes() {
+        return copiedBytes.get();
+    }
+
+    /**
+     * The number of documents not copied because a newer version was already written to the new index while the
+     * reindex was running.
+     *
+     * @return the count
+     */
+    public long getSkippedDocuments() {
+        return skippedDocuments.get();
+    }
+
+    /**
+     * How long the reindex has been running, or ran for once complete.
+     *
+     * @return the time in milliseconds
+     */
+    public long getElapsedMillis() {
+        long end = endTime > 0 ? endTime : System.currentTimeMillis();
+        return Math.max(1, end - startTime);
+    }
+
+    /**
+     * The copy throughput.
+     *
+     * @return documents per second
+     */
+    public double getDocumentsPerSecond() {
+        return (getCopiedDocuments() + getSkippedDocuments()) * 1000d / getElapsedMillis();
+    }
+
+    /**
+     * The copy throughput.
+     *
+     * @return bytes per second
+     */
+    public double getBytesPerSecond() {
+        return getCopiedBytes() * 1000d / getElapsedMillis();
+    }
+
+    /**
+     * How far along the copy is.
+     *
+     * @return the percentage of the source documents handled, 100 for an empty source
+     */
+    public double getPercentComplete() {
+        if (totalDocuments <= 0) {
+            return 100d;
+        }
+        return Math.min(100d, (getCopiedDocuments() + getSkippedDocuments()) * 100d / totalDocuments);
+    }
+
+    public boolean isComplete() {
+        return endTime > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "reindex of ["+sourceIndex+"] into ["+targetIndex+"]: "+getCopiedDocuments()+"/"+totalDocuments
+                +" documents ("+String.format("%.1f", getPercentComplete())+"%), "
+                +String.format("%.0f", getDocumentsPerSecond())+" docs/s, "
+                +String.format("%.0f", getBytesPerSecond())+" bytes/s";
+    }
+}
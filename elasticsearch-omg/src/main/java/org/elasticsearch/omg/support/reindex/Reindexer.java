@@ -0,0 +1,101 @@
+package org.elasticsearch.omg.support.reindex;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.BytesHolder;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.scan.ScanHandler;
+import org.elasticsearch.omg.support.scan.ScrollScanner;
+import org.elasticsearch.omg.util.RateLimiter;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies the documents of one physical index into another. The source of each hit is handed to the bulk request as
+ * the raw bytes elastic search returned, documents are never parsed or deserialized on the way.
+ *
+ * Documents are written with the create op type: a document the application already wrote to the new index while
+ * the copy runs is newer than the scanned one and is left alone. A document deleted before the copy reaches it is
+ * copied anyway, the repository deletes it again once the copy is done.
+ *
+ * @author jereanon
+ */
+public class Reindexer {
+    private static final Logger logger = LoggerFactory.getLogger(Reindexer.class);
+
+    private final Client client;
+
+    private final ReindexOptions options;
+
+    private final RateLimiter rateLimiter;
+
+    public Reindexer(Client client, ReindexOptions options) {
+        this.client = client;
+        this.options = options;
+        this.rateLimiter = new RateLimiter(options.getMaxDocumentsPerSecond());
+    }
+
+    /**
+     * Copy every document of the given types.
+     *
+     * @param progress the progress to update, names the source and target indexes
+     * @param types    the document types to copy
+     * @throws ElasticSearchOMGException if a document can't be written
+     */
+    public void copy(final ReindexProgress progress, String... types) throws ElasticSearchOMGException {
+        final ReindexListener listener = options.getListener();
+        ScrollScanner scanner = new ScrollScanner(client, progress.getSourceIndex())
+                .setTypes(types)
+                .setScrollSize(options.getScrollSize())
+                .setKeepAlive(TimeValue.parseTimeValue(options.getKeepAlive(), TimeValue.timeValueMinutes(5)))
+                .setConcurrency(options.getConcurrency());
+
+        scanner.scan(new ScanHandler() {
+            public void onHits(String index, SearchHit[] hits) {
+                int bulkSize = Math.max(1, options.getBulkSize());
+                for (int i = 0; i < hits.length; i += bulkSize) {
+                    copyBatch(progress, hits, i, Math.min(hits.length, i + bulkSize));
+                    if (listener != null) {
+                        listener.onProgress(progress);
+                    }
+                }
+                logger.debug("{}", progress);
+            }
+        });
+    }
+
+    private void copyBatch(ReindexProgress progress, SearchHit[] hits, int from, int to) {
+        BulkRequest bulk = new BulkRequest();
+        long bytes = 0;
+        for (int i = from; i < to; i++) {
+            SearchHit hit = hits[i];
+            BytesHolder source = hit.sourceRef();
+            bulk.add(new IndexRequest(progress.getTargetIndex(), hit.type(), hit.id())
+                    .source(source.bytes(), source.offset(), source.length())
+                    .create(true));
+            bytes += source.length();
+        }
+        rateLimiter.acquire(to - from);
+        BulkResponse response = client.bulk(bulk).actionGet();
+
+        long skipped = 0;
+        for (BulkItemResponse item : response.items()) {
+            if (!item.failed()) {
+                continue;
+            }
+            if (item.failureMessage() != null && item.failureMessage().contains("DocumentAlreadyExistsException")) {
+                skipped++;
+            } else {
+                throw new ElasticSearchOMGException("Error copying document with ID: "+item.id()+" into index: "
+                        +progress.getTargetIndex()+", "+item.failureMessage());
+            }
+        }
+        progress.addSkipped(skipped);
+        progress.addCopied(to - from - skipped, bytes);
+    }
+}
@@ -4,7 +4,12 @@ import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.elasticsearch.action.admin.indices.exists.IndicesExistsRequest;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.deletebyquery.DeleteByQueryRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.get.MultiGetItemResponse;
@@ -13,14 +18,61 @@ import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.action.admin.indices.template.delete.DeleteIndexTemplateRequest;
+import org.elasticsearch.action.admin.indices.template.put.PutIndexTemplateRequestBuilder;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.BytesHolder;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.IndexTemplateMetaData;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.RangeFilterBuilder;
 import org.elasticsearch.omg.ElasticSearchOMGException;
-import org.elasticsearch.omg.support.ElasticSearchDocumentId;
+import org.elasticsearch.omg.support.SourceEncoding;
+import org.elasticsearch.omg.support.admission.AdmissionController;
+import org.elasticsearch.omg.support.admission.AdmissionOptions;
+import org.elasticsearch.omg.support.bulk.BulkLoadCallback;
+import org.elasticsearch.omg.support.bulk.BulkLoadOptions;
+import org.elasticsearch.omg.support.bulk.BulkResult;
+import org.elasticsearch.omg.support.hedge.HedgeOptions;
+import org.elasticsearch.omg.support.hedge.HedgedRead;
+import org.elasticsearch.omg.support.hedge.ReadHedger;
+import org.elasticsearch.omg.support.hedge.SearchHedgedRead;
+import org.elasticsearch.omg.support.index.DocumentIndexNameStrategy;
+import org.elasticsearch.omg.support.journal.WriteBehindJournal;
+import org.elasticsearch.omg.support.metadata.DocumentMetadata;
+import org.elasticsearch.omg.support.metadata.DocumentMetadataRegistry;
+import org.elasticsearch.omg.support.metrics.Operation;
+import org.elasticsearch.omg.support.metrics.RepositoryMetrics;
 import org.elasticsearch.omg.support.model.query.ComplexQuery;
+import org.elasticsearch.omg.support.export.ExportManifest;
+import org.elasticsearch.omg.support.export.ExportOptions;
+import org.elasticsearch.omg.support.export.Exporter;
+import org.elasticsearch.omg.support.importer.ImportOptions;
+import org.elasticsearch.omg.support.importer.ImportResult;
+import org.elasticsearch.omg.support.importer.Importer;
+import org.elasticsearch.omg.support.query.QueryPlanner;
+import org.elasticsearch.omg.support.raw.RawDocument;
+import org.elasticsearch.omg.support.warmup.WarmupOptions;
+import org.elasticsearch.omg.support.warmup.WarmupResult;
+import org.elasticsearch.omg.support.warmup.WarmupRunner;
 import org.elasticsearch.omg.support.model.result.ElasticSearchResult;
 import org.elasticsearch.omg.support.model.result.ElasticSearchResults;
+import org.elasticsearch.omg.support.purge.PurgeOptions;
+import org.elasticsearch.omg.support.purge.PurgeProgress;
+import org.elasticsearch.omg.support.purge.Purger;
+import org.elasticsearch.omg.support.reindex.ReindexOptions;
+import org.elasticsearch.omg.support.reindex.ReindexProgress;
+import org.elasticsearch.omg.support.reindex.Reindexer;
+import org.elasticsearch.omg.support.schema.SchemaStatus;
+import org.elasticsearch.omg.support.slowlog.SlowOperationLog;
 import org.elasticsearch.omg.util.ElasticSearchMappingUtil;
 import org.elasticsearch.omg.util.JSONUtil;
 import org.elasticsearch.search.SearchHit;
@@ -30,8 +82,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Method;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract class for any class implementing the repository design pattern to connect to elastic search
@@ -53,13 +108,66 @@ public final class ElasticSearchRepository<T> {
     private String objectType;
 
     private Class<T> storedClass;
+
+    private DocumentMetadata<T> metadata;
+
+    private QueryPlanner queryPlanner;
+
+    private DocumentIndexNameStrategy indexNameStrategy;
+
+    private boolean partitioned;
+
+    private long partitionRefreshInterval = 30000;
+
+    private volatile Set<String> partitions;
+
+    private volatile long partitionsRefreshedAt;
+
+    private volatile String reindexTarget;
+
+    /**
+     * The ids deleted while a reindex copies, and not indexed since, deleted again from the new index once copied.
+     */
+    private final Set<String> reindexDeletes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private volatile boolean bulkLoading;
+
+    private long indexExistsCacheInterval = 30000;
+
+    private volatile Boolean indexExists;
+
+    private volatile long indexExistsCheckedAt;
+
+    private RepositoryMetrics metrics;
+
+    private volatile SlowOperationLog slowLog;
+
+    private AdmissionController admission;
+
+    private volatile ReadHedger hedger;
+
+    private volatile WriteBehindJournal journal;
+
+    private SourceEncoding sourceEncoding;
+
+    private volatile int rawValidationInterval;
+
+    private final AtomicLong rawWrites = new AtomicLong();
     
     public ElasticSearchRepository(Class<T> storedClass, Client client, Integer bulkSize) {
         this.bulkSize = bulkSize;
         this.client = client;
         this.storedClass = storedClass;
+        metadata = DocumentMetadataRegistry.forClass(storedClass);
         indexName = ElasticSearchMappingUtil.getIndexName(storedClass);
-        objectType = ElasticSearchMappingUtil.getObjectType(storedClass);
+        objectType = metadata.getObjectType();
+        indexNameStrategy = metadata.getIndexNameStrategy();
+        partitioned = metadata.isPartitioned();
+        sourceEncoding = metadata.getSourceEncoding();
+        queryPlanner = new QueryPlanner(metadata.getMappingJSON(), objectType);
+        metrics = new RepositoryMetrics(indexName, objectType);
+        admission = new AdmissionController();
+        metrics.setAdmissionController(admission);
     }
     
     public ElasticSearchRepository(String storedClassName, Client client, Integer bulkSize) throws ClassNotFoundException {
@@ -77,13 +185,44 @@ public final class ElasticSearchRepository<T> {
             return;
         }
 
-        String json = JSONUtil.serializeToString(object);
-        String id = getNextId(object.getClass());
-        getClient().prepareIndex(indexName, objectType, id)
-                .setSource(json)
-                .setRefresh(true)
-                .execute()
-                .actionGet();
+        admission.acquireWrite();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            long serializeStart = System.nanoTime();
+            byte[] source = JSONUtil.serializeToBytes(object, sourceEncoding);
+            metrics.recordSerialization(serializeStart);
+            String id = getNextId(object);
+            String target = reindexTarget;
+            if (target != null) {
+                onReindexWrite(id);
+            }
+            WriteBehindJournal journal = this.journal;
+            if (journal != null) {
+                journal.index(getIndexFor(object), objectType, id, source);
+                if (target != null) {
+                    journal.index(target, objectType, id, source);
+                }
+                failed = false;
+                return;
+            }
+            getClient().prepareIndex(getIndexFor(object), objectType, id)
+                    .setSource(source)
+                    .setRefresh(!bulkLoading)
+                    .execute()
+                    .actionGet();
+
+            if (target != null) {
+                getClient().prepareIndex(target, objectType, id)
+                        .setSource(source)
+                        .execute()
+                        .actionGet();
+            }
+            failed = false;
+        } finally {
+            admission.releaseWrite(start);
+            recordOperation(Operation.INDEX, start, failed);
+        }
     }
 
     /**
@@ -98,28 +237,236 @@ public final class ElasticSearchRepository<T> {
         }
 
         for (int i = 0; i <= objects.size(); i += bulkSize) {
-            BulkRequestBuilder bulk = client.prepareBulk().setRefresh(true);
+            BulkRequestBuilder bulk = client.prepareBulk().setRefresh(!bulkLoading);
 
             Integer toIndex = i + bulkSize;
             if (toIndex > objects.size()) {
                 toIndex = objects.size();
             }
             List<T> subObjects = objects.subList(i, toIndex);
-            for (T object : subObjects) {
-                String id = getNextId(object.getClass());
-                try {
-                    String json = JSONUtil.serializeToString(object);
-                    bulk.add(client.prepareIndex(indexName, objectType).setSource(json).setId(id));
-                } catch (ElasticSearchOMGException e) {
-                    logger.error("Error unmarshalling object and adding to bulk with ID: " + id, e);
-                    throw new ElasticSearchOMGException("Error unmarshalling object and adding to bulk with ID: " + id, e);
-                }
+            if (subObjects.isEmpty()) {
+                continue;
             }
+            admission.acquireWrite();
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                String target = reindexTarget;
+                WriteBehindJournal journal = this.journal;
+                long bytes = 0;
+                for (T object : subObjects) {
+                    String id = getNextId(object);
+                    if (target != null) {
+                        onReindexWrite(id);
+                    }
+                    try {
+                        long serializeStart = System.nanoTime();
+                        byte[] source = JSONUtil.serializeToBytes(object, sourceEncoding);
+                        metrics.recordSerialization(serializeStart);
+                        if (journal != null) {
+                            journal.index(getIndexFor(object), objectType, id, source);
+                            if (target != null) {
+                                journal.index(target, objectType, id, source);
+                            }
+                            continue;
+                        }
+                        IndexRequestBuilder index = client.prepareIndex(getIndexFor(object), objectType).setSource(source).setId(id);
+                        bytes += index.request().underlyingSourceLength();
+                        bulk.add(index);
+                        if (target != null) {
+                            bulk.add(client.prepareIndex(target, objectType).setSource(source).setId(id));
+                        }
+                    } catch (ElasticSearchOMGException e) {
+                        logger.error("Error unmarshalling object and adding to bulk with ID: " + id, e);
+                        throw new ElasticSearchOMGException("Error unmarshalling object and adding to bulk with ID: " + id, e);
+                    }
+                }
 
-            if (!subObjects.isEmpty()) {
+                if (journal != null) {
+                    failed = false;
+                    continue;
+                }
                 logger.debug("executing bulk index request with actions: "+bulk.numberOfActions());
+                metrics.recordBulk(bulk.numberOfActions(), target != null ? 2 * bytes : bytes);
                 bulk.execute().actionGet();
+                failed = false;
+            } finally {
+                admission.releaseWrite(start);
+                recordOperation(Operation.BULK_INDEX, start, failed);
+            }
+        }
+    }
+
+    /**
+     * Indexes a document already serialized
+     *
+     * @param id     the id, <code>null</code> to have elastic search generate one
+     * @param source the JSON or SMILE source
+     * @throws ElasticSearchOMGException on error
+     * @see #indexRaw(RawDocument)
+     */
+    public void indexRaw(String id, byte[] source) throws ElasticSearchOMGException {
+        indexRaw(new RawDocument(id, source));
+    }
+
+    /**
+     * Indexes a document already serialized, without binding it to an object. It goes to the same index, reindex
+     * target and journal as {@link #indexObject}. The source is written as given, whatever the source encoding of
+     * the repository.
+     *
+     * @param document the document
+     * @throws ElasticSearchOMGException if a sampled source doesn't bind to the stored class, or on error
+     * @see #setRawValidationInterval(int)
+     */
+    public void indexRaw(RawDocument document) throws ElasticSearchOMGException {
+        if (document == null) {
+            return;
+        }
+
+        admission.acquireWrite();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String index = getIndexFor(document);
+            String target = reindexTarget;
+            if (target != null) {
+                onReindexWrite(document.getId());
+            }
+            WriteBehindJournal journal = this.journal;
+            if (journal != null) {
+                byte[] source = document.sourceBytes();
+                journal.index(index, objectType, document.getId(), source);
+                if (target != null) {
+                    journal.index(target, objectType, document.getId(), source);
+                }
+                failed = false;
+                return;
+            }
+            getClient().prepareIndex(index, objectType, document.getId())
+                    .setSource(document.getSource(), document.getOffset(), document.getLength())
+                    .setRefresh(!bulkLoading)
+                    .execute()
+                    .actionGet();
+
+            if (target != null) {
+                getClient().prepareIndex(target, objectType, document.getId())
+                        .setSource(document.getSource(), document.getOffset(), document.getLength())
+                        .execute()
+                        .actionGet();
+            }
+            failed = false;
+        } finally {
+            admission.releaseWrite(start);
+            recordOperation(Operation.INDEX, start, failed);
+        }
+    }
+
+    /**
+     * Indexes documents already serialized, in bulk requests of the bulk size. The documents are read one bulk at a
+     * time, so they can be streamed from a source larger than memory. A sampled source that doesn't bind to the
+     * stored class is reported as failed and not written.
+     *
+     * @param documents the documents
+     * @return the outcome of each document
+     * @throws ElasticSearchOMGException on error executing a bulk request
+     * @see #indexRaw(RawDocument)
+     */
+    public BulkResult indexRawDocuments(Iterable<RawDocument> documents) throws ElasticSearchOMGException {
+        BulkResult result = new BulkResult();
+        if (documents == null) {
+            return result;
+        }
+
+        List<String> indices = new ArrayList<String>(bulkSize);
+        List<RawDocument> batch = new ArrayList<RawDocument>(bulkSize);
+        for (RawDocument document : documents) {
+            if (document == null) {
+                continue;
+            }
+            try {
+                indices.add(getIndexFor(document));
+            } catch (ElasticSearchOMGException e) {
+                result.onFailure(document.getId(), e.getMessage());
+                continue;
+            }
+            batch.add(document);
+            if (batch.size() >= bulkSize) {
+                executeRawIndex(indices, batch, result);
+            }
+        }
+        executeRawIndex(indices, batch, result);
+        return result;
+    }
+
+    /**
+     * Index a batch of raw documents in one bulk request, adding the outcome of each to the result and clearing the
+     * batch.
+     */
+    private void executeRawIndex(List<String> indices, List<RawDocument> documents, BulkResult result) {
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        admission.acquireWrite();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String target = reindexTarget;
+            if (target != null) {
+                for (RawDocument document : documents) {
+                    onReindexWrite(document.getId());
+                }
+            }
+            WriteBehindJournal journal = this.journal;
+            if (journal != null) {
+                for (int i = 0; i < documents.size(); i++) {
+                    RawDocument document = documents.get(i);
+                    byte[] source = document.sourceBytes();
+                    journal.index(indices.get(i), objectType, document.getId(), source);
+                    if (target != null) {
+                        journal.index(target, objectType, document.getId(), source);
+                    }
+                    result.onSuccess();
+                }
+                failed = false;
+                return;
+            }
+
+            BulkRequestBuilder bulk = client.prepareBulk().setRefresh(!bulkLoading);
+            long bytes = 0;
+            for (int i = 0; i < documents.size(); i++) {
+                RawDocument document = documents.get(i);
+                bulk.add(client.prepareIndex(indices.get(i), objectType)
+                        .setId(document.getId())
+                        .setSource(document.getSource(), document.getOffset(), document.getLength()));
+                bytes += document.getLength();
+                if (target != null) {
+                    bulk.add(client.prepareIndex(target, objectType)
+                            .setId(document.getId())
+                            .setSource(document.getSource(), document.getOffset(), document.getLength()));
+                }
+            }
+
+            logger.debug("executing raw bulk index request with actions: "+bulk.numberOfActions());
+            metrics.recordBulk(bulk.numberOfActions(), target != null ? 2 * bytes : bytes);
+            BulkResponse response = bulk.execute().actionGet();
+            for (BulkItemResponse item : response.items()) {
+                if (target != null && target.equals(item.index())) {
+                    if (item.failed()) {
+                        logger.warn("Error indexing id: "+item.id()+" to reindex target: "+target+", "+item.failureMessage());
+                    }
+                } else if (item.failed()) {
+                    result.onFailure(item.id(), item.failureMessage());
+                } else {
+                    result.onSuccess();
+                }
             }
+            failed = false;
+        } finally {
+            admission.releaseWrite(start);
+            recordOperation(Operation.BULK_INDEX, start, failed);
+            indices.clear();
+            documents.clear();
         }
     }
 
@@ -132,12 +479,33 @@ public final class ElasticSearchRepository<T> {
      * @return the object, if found
      * @throws ElasticSearchOMGException on error
      */
-    public <T> T getObject(String id) throws ElasticSearchOMGException {
-        //TODO Get document type from class definition?  What about ID collisions among document types?
-        GetResponse response = getClient().prepareGet(indexName, objectType, id)
-                .execute()
-                .actionGet();
-        return (T)getObjectFromResponse(response);
+    public <T> T getObject(final String id) throws ElasticSearchOMGException {
+        admission.acquireRead();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object object;
+            if (partitioned) {
+                // the partition of the document isn't known without the document, look in all of them
+                List<?> objects = searchPartitions(id);
+                object = objects.isEmpty() ? null : objects.get(0);
+            } else {
+                //TODO Get document type from class definition?  What about ID collisions among document types?
+                GetResponse response = read(new HedgedRead<GetResponse>() {
+                    public void send(String preference, ActionListener<GetResponse> listener) {
+                        getClient().prepareGet(indexName, objectType, id)
+                                .setPreference(preference)
+                                .execute(listener);
+                    }
+                });
+                object = getObjectFromResponse(response);
+            }
+            failed = false;
+            return (T) object;
+        } finally {
+            admission.releaseRead(start);
+            recordOperation(Operation.GET, start, failed);
+        }
     }
 
     /**
@@ -147,18 +515,158 @@ public final class ElasticSearchRepository<T> {
      * @return the objects, if found
      * @throws ElasticSearchOMGException on error
      */
-    public List<T> getObjects(String... ids) throws ElasticSearchOMGException {
-        MultiGetRequestBuilder request = getClient().prepareMultiGet();
-        for (String id : ids) {
-            //TODO Get document type from class definition?  What about ID collisions among document types?
-            request.add(indexName, objectType, id);
+    public List<T> getObjects(final String... ids) throws ElasticSearchOMGException {
+        admission.acquireRead();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<T> objects;
+            if (partitioned) {
+                objects = searchPartitions(ids);
+            } else {
+                HedgedRead<MultiGetResponse> multiGet = new HedgedRead<MultiGetResponse>() {
+                    public void send(String preference, ActionListener<MultiGetResponse> listener) {
+                        MultiGetRequestBuilder request = getClient().prepareMultiGet().setPreference(preference);
+                        for (String id : ids) {
+                            //TODO Get document type from class definition?  What about ID collisions among document types?
+                            request.add(indexName, objectType, id);
+                        }
+                        request.execute(listener);
+                    }
+                };
+                try {
+                    MultiGetResponse response = read(multiGet);
+                    objects = (List<T>) getObjectsFromResponse(response);
+                } catch (Exception e) {
+                    throw new ElasticSearchOMGException("Error executing multiget for IDs: " + ids, e);
+                }
+            }
+            failed = false;
+            return objects;
+        } finally {
+            admission.releaseRead(start);
+            recordOperation(Operation.MULTI_GET, start, failed);
         }
+    }
+
+    /**
+     * Retrieves the source of a document by its ID, without binding it to an object. SMILE sources are returned as
+     * SMILE.
+     *
+     * @param id the ID
+     * @return the document, or <code>null</code> if not found
+     * @throws ElasticSearchOMGException on error
+     */
+    public RawDocument getRaw(final String id) throws ElasticSearchOMGException {
+        admission.acquireRead();
+        long start = System.nanoTime();
+        boolean failed = true;
         try {
-            MultiGetResponse response = request.execute().actionGet();
-            return (List<T>) getObjectsFromResponse(response);
-        } catch (Exception e) {
-            throw new ElasticSearchOMGException("Error executing multiget for IDs: " + ids, e);
+            RawDocument document;
+            if (partitioned) {
+                List<RawDocument> documents = searchRawPartitions(id);
+                document = documents.isEmpty() ? null : documents.get(0);
+            } else {
+                GetResponse response = read(new HedgedRead<GetResponse>() {
+                    public void send(String preference, ActionListener<GetResponse> listener) {
+                        getClient().prepareGet(indexName, objectType, id)
+                                .setPreference(preference)
+                                .execute(listener);
+                    }
+                });
+                document = response.exists() && !response.isSourceEmpty()
+                        ? toRawDocument(response.index(), response.id(), response.sourceRef())
+                        : null;
+            }
+            failed = false;
+            return document;
+        } finally {
+            admission.releaseRead(start);
+            recordOperation(Operation.GET, start, failed);
+        }
+    }
+
+    /**
+     * Retrieves the sources of documents by their IDs, without binding them to objects.
+     *
+     * @param ids the IDs to retrieve on
+     * @return the documents found
+     * @throws ElasticSearchOMGException on error
+     */
+    public List<RawDocument> getRawDocuments(final String... ids) throws ElasticSearchOMGException {
+        admission.acquireRead();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<RawDocument> documents;
+            if (partitioned) {
+                documents = searchRawPartitions(ids);
+            } else {
+                MultiGetResponse response = read(new HedgedRead<MultiGetResponse>() {
+                    public void send(String preference, ActionListener<MultiGetResponse> listener) {
+                        MultiGetRequestBuilder request = getClient().prepareMultiGet().setPreference(preference);
+                        for (String id : ids) {
+                            request.add(indexName, objectType, id);
+                        }
+                        request.execute(listener);
+                    }
+                });
+                documents = new ArrayList<RawDocument>(ids.length);
+                for (MultiGetItemResponse item : response.responses()) {
+                    GetResponse get = item.getResponse();
+                    if (get != null && get.exists() && !get.isSourceEmpty()) {
+                        documents.add(toRawDocument(get.index(), get.id(), get.sourceRef()));
+                    }
+                }
+            }
+            failed = false;
+            return documents;
+        } finally {
+            admission.releaseRead(start);
+            recordOperation(Operation.MULTI_GET, start, failed);
+        }
+    }
+
+    /**
+     * Look up objects by their IDs in all partitions of a partitioned class.
+     */
+    private List<T> searchPartitions(String... ids) {
+        List<T> results = new ArrayList<T>(ids.length);
+        SearchResponse response = searchPartitionIds(ids);
+        if (response != null) {
+            for (ElasticSearchResult<T> result : getObjectsFromResponse(response)) {
+                results.add(result.getResult());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Look up documents by their IDs in all partitions of a partitioned class, without binding them.
+     */
+    private List<RawDocument> searchRawPartitions(String... ids) {
+        List<RawDocument> results = new ArrayList<RawDocument>(ids.length);
+        SearchResponse response = searchPartitionIds(ids);
+        if (response != null) {
+            for (ElasticSearchResult<RawDocument> result : getRawDocumentsFromResponse(response)) {
+                results.add(result.getResult());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Search all partitions for IDs.
+     *
+     * @return the response, or <code>null</code> if there is nothing to search
+     */
+    private SearchResponse searchPartitionIds(String... ids) {
+        String[] indices = getSearchIndices(null, null);
+        if (indices.length == 0 || ids.length == 0) {
+            return null;
         }
+        return read(new SearchHedgedRead(getClient(),
+                prepareSearch(indices, QueryBuilders.idsQuery(objectType).ids(ids), null, null).setSize(ids.length)));
     }
 
     /**
@@ -173,7 +681,10 @@ public final class ElasticSearchRepository<T> {
 
         for (MultiGetItemResponse item : response.responses()) {
             if (item.getResponse().exists()) {
-                T object = (T) JSONUtil.deserializeToObject(item.getResponse().sourceAsString(), storedClass);
+                long start = System.nanoTime();
+                BytesHolder source = item.getResponse().sourceRef();
+                T object = JSONUtil.deserializeToObject(source.bytes(), source.offset(), source.length(), storedClass);
+                metrics.recordDeserialization(start);
                 results.add(object);
             }
         }
@@ -192,7 +703,11 @@ public final class ElasticSearchRepository<T> {
             return null;
         }
 
-        return (T) JSONUtil.deserializeToObject(response.sourceAsString(), storedClass);
+        long start = System.nanoTime();
+        BytesHolder source = response.sourceRef();
+        T object = JSONUtil.deserializeToObject(source.bytes(), source.offset(), source.length(), storedClass);
+        metrics.recordDeserialization(start);
+        return object;
     }
 
     /**
@@ -205,56 +720,320 @@ public final class ElasticSearchRepository<T> {
         if (object == null) {
             return;
         }
+        String id = getNextId(object);
+        if (id == null) {
+            throw new ElasticSearchOMGException("Can't delete object of "+object.getClass().getName()+" without id");
+        }
 
-        String id = ElasticSearchMappingUtil.getId(object);
-        getClient().prepareDelete(indexName, objectType, id)
-                .execute()
-                .actionGet();
+        admission.acquireWrite();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String target = reindexTarget;
+            if (target != null) {
+                reindexDeletes.add(id);
+            }
+            WriteBehindJournal journal = this.journal;
+            if (journal != null) {
+                journal.delete(getIndexFor(object), objectType, id);
+                if (target != null) {
+                    journal.delete(target, objectType, id);
+                }
+                failed = false;
+                return;
+            }
+            getClient().prepareDelete(getIndexFor(object), objectType, id)
+                    .execute()
+                    .actionGet();
+
+            if (target != null) {
+                getClient().prepareDelete(target, objectType, id)
+                        .execute()
+                        .actionGet();
+            }
+            failed = false;
+        } finally {
+            admission.releaseWrite(start);
+            recordOperation(Operation.DELETE, start, failed);
+        }
     }
 
     /**
-     * Delete items in the index given a specific query.
+     * Delete items in the index given a specific query. Waits for a reindex of this repository to complete, the copy
+     * would bring back the items it hasn't reached yet.
      * @param queryBuilder the query
      */
     //TODO is requesting indexName the right thing to do?
-    public void deleteByQuery(QueryBuilder queryBuilder) {
-        if (queryBuilder == null) {
+    public synchronized void deleteByQuery(QueryBuilder queryBuilder) {
+        String[] indices = getSearchIndices(null, null);
+        if (queryBuilder == null || indices.length == 0) {
             return;
         }
 
         // execute the delete
-        getClient().deleteByQuery(
-                new DeleteByQueryRequestBuilder(getClient())
-                        .setQuery(queryBuilder)
-                        .request()
-                        .indices(indexName)).actionGet();
+        admission.acquireWrite();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            getClient().deleteByQuery(
+                    new DeleteByQueryRequestBuilder(getClient())
+                            .setQuery(queryBuilder)
+                            .request()
+                            .indices(indices)).actionGet();
+            failed = false;
+        } finally {
+            admission.releaseWrite(start);
+            recordOperation(Operation.DELETE_BY_QUERY, start, failed);
+        }
     }
 
     /**
-     * Deletes a list of objects from an elastic search index
+     * Delete the items matching a query at a throttled pace, for purges too large for {@link #deleteByQuery}. The
+     * ids of the matching items are scanned and deleted in rate limited bulk requests, optionally one shard at a
+     * time. Cancel through the progress handed to the listener of the options.
      *
-     * @param objects the objects to delete
+     * Runs one at a time with reindexes and bulk loads of this repository, and goes straight to the cluster even
+     * when writes go through a journal.
+     *
+     * @param queryBuilder the query
+     * @param options      the pace and slicing of the purge
+     * @return the progress of the purge once done or cancelled
      * @throws ElasticSearchOMGException on error
+     * @see Purger
      */
-    public void deleteObjects(List<T> objects) throws ElasticSearchOMGException {
-        if (objects == null || objects.isEmpty()) {
-            return;
+    public synchronized PurgeProgress purge(QueryBuilder queryBuilder, PurgeOptions options) throws ElasticSearchOMGException {
+        return new Purger(client, options).purge(queryBuilder, getSearchIndices(null, null), objectType);
+    }
+
+    /**
+     * Warm up the caches of the cluster and the search and serialization paths of this JVM for the stored class,
+     * before the repository takes traffic.
+     *
+     * @param options the queries and the number of times to run them
+     * @return how long the warm-up took, a failure is reported there rather than thrown
+     * @see WarmupRunner
+     */
+    public WarmupResult warmUp(WarmupOptions options) {
+        return new WarmupRunner(options).warmUp(Collections.singletonList(this));
+    }
+
+    /**
+     * Export the items matching a query to newline delimited JSON files, copying their raw sources without
+     * deserializing them. The shards of the indexes are exported in parallel; running the export again resumes it
+     * from the shards it didn't complete.
+     *
+     * @param queryBuilder the query
+     * @param options      the directory, file size and compression of the export
+     * @return the manifest of the export, incomplete if a shard failed
+     * @throws ElasticSearchOMGException if the export directory can't be written
+     * @see Exporter
+     */
+    public ExportManifest export(QueryBuilder queryBuilder, ExportOptions options) throws ElasticSearchOMGException {
+        return new Exporter(client, options).export(queryBuilder, getSearchIndices(null, null), objectType);
+    }
+
+    /**
+     * Load newline delimited JSON files written by an export, copying the raw sources into bulk requests without
+     * deserializing them. Plain files are memory-mapped, several files are loaded at once.
+     *
+     * Runs one at a time with reindexes and bulk loads of this repository, a reindex would miss the documents
+     * imported behind its copy.
+     *
+     * @param files   the files, <code>.gz</code> ones are inflated
+     * @param options the target index, bulk size and retries of the import
+     * @return the counts and rate of the import
+     * @throws ElasticSearchOMGException if the repository is partitioned and no index is set
+     * @see Importer
+     */
+    public synchronized ImportResult importFiles(Collection<File> files, ImportOptions options) throws ElasticSearchOMGException {
+        String index = options.getIndex();
+        if (index == null) {
+            if (partitioned) {
+                throw new ElasticSearchOMGException("Importing into a partitioned repository needs an index");
+            }
+            index = indexName;
         }
+        int size = options.getBulkSize() > 0 ? options.getBulkSize() : bulkSize;
+        return new Importer(client, options).importFiles(files, index, objectType, size);
+    }
 
-        for (int i = 0; i <= objects.size(); i += bulkSize) {
-            BulkRequestBuilder bulk = client.prepareBulk();
+    /**
+     * Load the files of the complete shards of an export directory.
+     *
+     * @param directory the export directory
+     * @param options   the target index, bulk size and retries of the import
+     * @return the counts and rate of the import
+     * @throws ElasticSearchOMGException if the directory has no readable manifest
+     * @see #importFiles(Collection, ImportOptions)
+     */
+    public ImportResult importExport(File directory, ImportOptions options) throws ElasticSearchOMGException {
+        ExportManifest manifest;
+        try {
+            manifest = ExportManifest.read(directory);
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Error reading export manifest in: "+directory, e);
+        }
+        if (manifest == null) {
+            throw new ElasticSearchOMGException("No export manifest in: "+directory);
+        }
+        if (!manifest.isComplete()) {
+            logger.warn("Export in: "+directory+" is incomplete, importing the shards it completed");
+        }
+        return importFiles(manifest.getFiles(directory), options);
+    }
 
-            Integer toIndex = i + bulkSize;
-            if (toIndex > objects.size()) {
-                toIndex = objects.size();
+    /**
+     * Deletes objects from an elastic search index, in bulk requests of the bulk size. The objects are read one bulk
+     * at a time, so they can be streamed from a source larger than memory. Objects without id are reported as failed.
+     *
+     * @param objects the objects to delete
+     * @return the outcome of each delete
+     * @throws ElasticSearchOMGException on error executing a bulk request
+     */
+    public BulkResult deleteObjects(Iterable<T> objects) throws ElasticSearchOMGException {
+        BulkResult result = new BulkResult();
+        if (objects == null) {
+            return result;
+        }
+
+        List<String> indices = new ArrayList<String>(bulkSize);
+        List<String> ids = new ArrayList<String>(bulkSize);
+        for (T object : objects) {
+            if (object == null) {
+                continue;
             }
-            List<T> subObjects = objects.subList(i, toIndex);
-            for (T object : subObjects) {
-                String id = ElasticSearchMappingUtil.getId(object);
-                bulk.add(client.prepareDelete(indexName, objectType, id));
+            String id = getNextId(object);
+            if (id == null) {
+                result.onFailure(null, "Object of "+object.getClass().getName()+" has no id");
+                continue;
+            }
+            indices.add(getIndexFor(object));
+            ids.add(id);
+            if (ids.size() >= bulkSize) {
+                executeDeletes(indices, ids, 1, result);
+            }
+        }
+        executeDeletes(indices, ids, 1, result);
+        return result;
+    }
+
+    /**
+     * Deletes documents by id, in bulk requests of the bulk size. The ids are read one bulk at a time, so they can be
+     * streamed from a source larger than memory. A partitioned repository can't tell the partition of an id, each id
+     * is deleted from every partition and has a single outcome: deleted if a partition held it, failed if deleting it
+     * from a partition failed, not found otherwise.
+     *
+     * @param ids the ids of the documents to delete
+     * @return the outcome of each delete
+     * @throws ElasticSearchOMGException on error executing a bulk request
+     */
+    public BulkResult deleteByIds(Iterable<String> ids) throws ElasticSearchOMGException {
+        BulkResult result = new BulkResult();
+        if (ids == null) {
+            return result;
+        }
+
+        String[] targets = getSearchIndices(null, null);
+        List<String> indices = new ArrayList<String>(bulkSize);
+        List<String> batch = new ArrayList<String>(bulkSize);
+        for (String id : ids) {
+            if (id == null) {
+                continue;
+            }
+            if (targets.length == 0) {
+                // no partition exists yet
+                result.onNotFound();
+                continue;
+            }
+            for (String index : targets) {
+                indices.add(index);
+                batch.add(id);
+            }
+            if (batch.size() >= bulkSize) {
+                executeDeletes(indices, batch, targets.length, result);
+            }
+        }
+        executeDeletes(indices, batch, targets.length, result);
+        return result;
+    }
+
+    /**
+     * Delete a batch of documents in one bulk request, adding the outcome of each to the result and clearing the batch.
+     * The deletes of a document from several partitions come one after the other, a group of them adds one outcome.
+     *
+     * @param group the number of deletes per document
+     */
+    private void executeDeletes(List<String> indices, List<String> ids, int group, BulkResult result) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        admission.acquireWrite();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String target = reindexTarget;
+            if (target != null) {
+                reindexDeletes.addAll(ids);
+            }
+            WriteBehindJournal journal = this.journal;
+            if (journal != null) {
+                for (int i = 0; i < ids.size(); i++) {
+                    journal.delete(indices.get(i), objectType, ids.get(i));
+                    if (target != null && i % group == 0) {
+                        journal.delete(target, objectType, ids.get(i));
+                    }
+                    if (i % group == group - 1) {
+                        result.onSuccess();
+                    }
+                }
+                failed = false;
+                return;
+            }
+
+            BulkRequestBuilder bulk = client.prepareBulk();
+            for (int i = 0; i < ids.size(); i++) {
+                bulk.add(client.prepareDelete(indices.get(i), objectType, ids.get(i)));
+                if (target != null && i % group == 0) {
+                    bulk.add(client.prepareDelete(target, objectType, ids.get(i)));
+                }
             }
 
-            bulk.execute().actionGet();
+            metrics.recordBulk(bulk.numberOfActions(), 0);
+            BulkResponse response = bulk.execute().actionGet();
+            boolean deleted = false;
+            BulkItemResponse failure = null;
+            int position = 0;
+            for (BulkItemResponse item : response.items()) {
+                if (target != null && target.equals(item.index())) {
+                    if (item.failed()) {
+                        logger.warn("Error deleting id: "+item.id()+" from reindex target: "+target+", "+item.failureMessage());
+                    }
+                    continue;
+                }
+                if (item.failed()) {
+                    failure = item;
+                } else if (!((DeleteResponse) item.response()).notFound()) {
+                    deleted = true;
+                }
+                if (++position % group == 0) {
+                    if (deleted) {
+                        result.onSuccess();
+                    } else if (failure != null) {
+                        result.onFailure(failure.id(), failure.failureMessage());
+                    } else {
+                        result.onNotFound();
+                    }
+                    deleted = false;
+                    failure = null;
+                }
+            }
+            failed = false;
+        } finally {
+            admission.releaseWrite(start);
+            recordOperation(Operation.BULK_DELETE, start, failed);
+            indices.clear();
+            ids.clear();
         }
     }
 
@@ -268,8 +1047,22 @@ public final class ElasticSearchRepository<T> {
      * @return the search
      */
     protected SearchRequestBuilder prepareSearch(QueryBuilder query, FilterBuilder filter, SortBuilder sort) {
+        String[] indices = getSearchIndices(null, null);
+        return prepareSearch(indices.length > 0 ? indices : new String[] { indexName }, query, filter, sort);
+    }
+
+    /**
+     * Prepares a {@link SearchRequestBuilder} for querying against specific indexes.
+     *
+     * @param indices the indexes to search, must not be empty
+     * @param query   the query to apply to the search
+     * @param filter  a filter to apply to the query
+     * @param sort    sorting criteria to apply to the search results
+     * @return the search
+     */
+    protected SearchRequestBuilder prepareSearch(String[] indices, QueryBuilder query, FilterBuilder filter, SortBuilder sort) {
 
-        SearchRequestBuilder search = getClient().prepareSearch(indexName)
+        SearchRequestBuilder search = getClient().prepareSearch(indices)
                 .setTypes(objectType)
                 .setSearchType(SearchType.QUERY_THEN_FETCH);
 
@@ -304,12 +1097,42 @@ public final class ElasticSearchRepository<T> {
      * @throws ElasticSearchOMGException on error
      */
     protected ElasticSearchResults<T> executeSearch(SearchRequestBuilder search) throws ElasticSearchOMGException {
-        SearchResponse response = search.execute().actionGet();
-        ElasticSearchResults<T> result = new ElasticSearchResults<T>();
-        Collection<ElasticSearchResult<T>> results = getObjectsFromResponse(response);
-        result.setResults(results);
-        result.setTotalResults(response.getHits().getTotalHits());
-        return result;
+        return (ElasticSearchResults<T>) executeSearch(search, false);
+    }
+
+    /**
+     * Executes a search, binding the hits to objects or returning their sources.
+     */
+    private ElasticSearchResults executeSearch(SearchRequestBuilder search, boolean raw) throws ElasticSearchOMGException {
+        admission.acquireRead();
+        long start = System.nanoTime();
+        long roundTripNanos = 0;
+        long deserializeStart = 0;
+        SearchResponse response = null;
+        boolean failed = true;
+        try {
+            response = read(new SearchHedgedRead(getClient(), search));
+            roundTripNanos = System.nanoTime() - start;
+            deserializeStart = System.nanoTime();
+            ElasticSearchResults result = new ElasticSearchResults();
+            result.setResults(raw ? getRawDocumentsFromResponse(response) : getObjectsFromResponse(response));
+            result.setTotalResults(response.getHits().getTotalHits());
+            failed = false;
+            return result;
+        } finally {
+            admission.releaseRead(start);
+            metrics.record(Operation.SEARCH, start, failed);
+            SlowOperationLog log = slowLog;
+            if (log != null) {
+                if (response == null) {
+                    log.onSearch(indexName, objectType, search, System.nanoTime() - start, -1, 0, 0, 0, failed);
+                } else {
+                    log.onSearch(indexName, objectType, search, roundTripNanos, response.getTookInMillis(),
+                            response.getHits().getHits().length, response.getHits().getTotalHits(),
+                            System.nanoTime() - deserializeStart, failed);
+                }
+            }
+        }
     }
 
     /**
@@ -320,20 +1143,71 @@ public final class ElasticSearchRepository<T> {
      * @throws ElasticSearchOMGException on error
      */
     public ElasticSearchResults<T> executeSearch(ComplexQuery query) throws ElasticSearchOMGException {
-        SearchRequestBuilder search = prepareSearch(query.getBoolQueryBuilder(), query.getBoolFilterBuilder(), query.getSortBuilder());
-        SearchResponse response = search.execute().actionGet();
-        ElasticSearchResults<T> result = new ElasticSearchResults<T>();
-        Collection<ElasticSearchResult<T>> results = getObjectsFromResponse(response);
-        result.setResults(results);
-        result.setTotalResults(response.getHits().getTotalHits());
-        return result;
+        SearchRequestBuilder search = prepareSearch(query);
+        if (search == null) {
+            ElasticSearchResults<T> result = new ElasticSearchResults<T>();
+            result.setResults(new ArrayList<ElasticSearchResult<T>>());
+            result.setTotalResults(0L);
+            return result;
+        }
+        return executeSearch(search);
     }
 
     /**
-     * Retrieve the JSON object results from elastic search and marshall them into java objects
+     * Execute a search from a given {@link ComplexQuery}, returning the sources of the hits without binding them to
+     * objects. SMILE sources are returned as SMILE.
      *
-     * @param response the {@link SearchResponse} from elastic search
-     * @return the list of unmarshalled objects
+     * @param query the query
+     * @return the results
+     * @throws ElasticSearchOMGException on error
+     */
+    public ElasticSearchResults<RawDocument> executeRawSearch(ComplexQuery query) throws ElasticSearchOMGException {
+        SearchRequestBuilder search = prepareSearch(query);
+        if (search == null) {
+            ElasticSearchResults<RawDocument> result = new ElasticSearchResults<RawDocument>();
+            result.setResults(new ArrayList<ElasticSearchResult<RawDocument>>());
+            result.setTotalResults(0L);
+            return result;
+        }
+        return (ElasticSearchResults<RawDocument>) executeSearch(search, true);
+    }
+
+    /**
+     * Prepares the search of a {@link ComplexQuery}.
+     *
+     * @return the search, or <code>null</code> if no index can hold documents in its time range
+     */
+    private SearchRequestBuilder prepareSearch(ComplexQuery query) {
+        // only search the indexes that can hold documents in the time range
+        String[] indices = getSearchIndices(query.getTimeRangeFrom(), query.getTimeRangeTo());
+        if (indices.length == 0) {
+            return null;
+        }
+
+        FilterBuilder filter = query.getBoolFilterBuilder();
+        if (query.hasTimeRange() && metadata.getTimestampProperty() != null) {
+            RangeFilterBuilder range = FilterBuilders.rangeFilter(metadata.getTimestampProperty());
+            if (query.getTimeRangeFrom() != null) {
+                range.gte(query.getTimeRangeFrom().getTime());
+            }
+            if (query.getTimeRangeTo() != null) {
+                range.lte(query.getTimeRangeTo().getTime());
+            }
+            filter = filter != null
+                    ? FilterBuilders.andFilter(filter, range)
+                    : range;
+        }
+
+        // exact conditions and filters run as cacheable filters of a filtered query, not scored or post filtered
+        QueryBuilder planned = queryPlanner.plan(query.getBoolQueryBuilder(), filter);
+        return prepareSearch(indices, planned, query.getPostFilterBuilder(), query.getSortBuilder());
+    }
+
+    /**
+     * Retrieve the JSON object results from elastic search and marshall them into java objects
+     *
+     * @param response the {@link SearchResponse} from elastic search
+     * @return the list of unmarshalled objects
      * @throws ElasticSearchOMGException on error
      */
     protected Collection<ElasticSearchResult<T>> getObjectsFromResponse(SearchResponse response) throws ElasticSearchOMGException {
@@ -345,7 +1219,10 @@ public final class ElasticSearchRepository<T> {
 
         for (SearchHit hit : response.hits().getHits()) {
             try {
-                T object = (T) JSONUtil.deserializeToObject(hit.sourceAsString(), storedClass);
+                long start = System.nanoTime();
+                BytesHolder source = hit.sourceRef();
+                T object = JSONUtil.deserializeToObject(source.bytes(), source.offset(), source.length(), storedClass);
+                metrics.recordDeserialization(start);
                 results.add(new ElasticSearchResult<T>(object, storedClass, hit.getScore()));
             } catch (ElasticSearchOMGException ex) {
                 logger.error("Error unmarshalling result", ex);
@@ -356,32 +1233,338 @@ public final class ElasticSearchRepository<T> {
     }
 
     /**
-     * Create an index.
+     * Retrieve the sources of the hits of a search without binding them.
+     *
+     * @param response the {@link SearchResponse} from elastic search
+     * @return the documents, with their score
      */
-    public void createIndex() {
-        if (indexExists()) {
-            logger.warn("Attemping to create index: "+indexName+" that already exists.");
-            return;
+    protected Collection<ElasticSearchResult<RawDocument>> getRawDocumentsFromResponse(SearchResponse response) {
+        List<ElasticSearchResult<RawDocument>> results = new ArrayList<ElasticSearchResult<RawDocument>>();
+
+        if (response.hits() == null || response.hits().totalHits() == 0) {
+            return results;
         }
-        logger.debug("Creating index: "+indexName);
-        CreateIndexRequest createIndexRequest = new CreateIndexRequest(indexName);
-        client.admin().indices().create(createIndexRequest).actionGet();
+
+        for (SearchHit hit : response.hits().getHits()) {
+            BytesHolder source = hit.sourceRef();
+            if (source == null) {
+                continue;
+            }
+            results.add(new ElasticSearchResult<RawDocument>(toRawDocument(hit.index(), hit.id(), source),
+                    RawDocument.class, hit.getScore()));
+        }
+        return results;
+    }
+
+    private static RawDocument toRawDocument(String index, String id, BytesHolder source) {
+        return new RawDocument(id, source.bytes(), source.offset(), source.length()).setIndex(index);
     }
 
     /**
      * Create an index.
      *
+     * @see #createIndex(Map)
+     */
+    public void createIndex() {
+        createIndex(null);
+    }
+
+    /**
+     * Create an index. The index is created under a versioned name with the index name as an alias, which all reads
+     * and writes go through, so it can be rebuilt with {@link #reindex()}. For a partitioned class the index
+     * template the partitions are created from is put instead.
+     *
      * @param settings extra settings for this index creation
      */
     public void createIndex(Map<String, String> settings) {
-        if (indexExists()) {
+        if (partitioned) {
+            putPartitionTemplate(settings, true);
+            return;
+        }
+        if (checkIndexExists()) {
             logger.warn("Attemping to create index: "+indexName+" that already exists.");
             return;
         }
-        logger.debug("Creating index: "+indexName);
-        CreateIndexRequest createIndexRequest = new CreateIndexRequest(indexName);
-        createIndexRequest.settings(settings);
-        client.admin().indices().create(createIndexRequest).actionGet();
+        createAliasedIndex(settings);
+    }
+
+    private void createAliasedIndex(Map<String, String> settings) {
+        String physicalIndex = newPhysicalIndexName();
+        logger.debug("Creating index: "+physicalIndex+" with alias: "+indexName);
+        CreateIndexRequest createIndexRequest = new CreateIndexRequest(physicalIndex);
+        if (settings != null) {
+            createIndexRequest.settings(settings);
+        }
+        createIndexRequest.mapping(objectType, metadata.getMappingJSON());
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            client.admin().indices().create(createIndexRequest).actionGet();
+            client.admin().indices().prepareAliases()
+                    .addAlias(physicalIndex, indexName)
+                    .execute()
+                    .actionGet();
+            failed = false;
+        } finally {
+            recordOperation(Operation.CREATE_INDEX, start, failed);
+        }
+        cacheIndexExists(true);
+    }
+
+    /**
+     * Rebuild the index with the current mapping and settings of the stored class, without making it unavailable.
+     *
+     * @return the progress of the reindex once done
+     * @throws ElasticSearchOMGException on error
+     * @see #reindex(ReindexOptions)
+     */
+    public ReindexProgress reindex() throws ElasticSearchOMGException {
+        return reindex(new ReindexOptions().setBulkSize(bulkSize));
+    }
+
+    /**
+     * Rebuild the index with the current mapping and settings of the stored class, without making it unavailable.
+     * A new versioned index is created, the documents are copied into it from the live index and the alias is
+     * swapped over to it in a single atomic request.
+     *
+     * Documents indexed and deleted through this repository while the copy runs are written to both indexes. A
+     * document deleted before the copy reaches it would be copied back, the ids deleted are kept and deleted again
+     * from the new index once the copy is done. Deletes by query and imports wait for the reindex to complete. Writes
+     * from other processes aren't seen by the copy once it has scanned past them, reindex while those are paused. An
+     * index created before indexes were aliased is replaced by the alias once copied, it is unavailable in between.
+     *
+     * @param options the options of the reindex
+     * @return the progress of the reindex once done
+     * @throws ElasticSearchOMGException on error
+     */
+    public synchronized ReindexProgress reindex(ReindexOptions options) throws ElasticSearchOMGException {
+        if (partitioned) {
+            throw new ElasticSearchOMGException("Partitioned class: "+storedClass.getName()
+                    +" can't be reindexed, new partitions pick up the mapping from the index template");
+        }
+        MetaData metaData = getClusterMetaData();
+        if (!metaData.hasConcreteIndex(indexName)) {
+            throw new ElasticSearchOMGException("Can't reindex index: "+indexName+" that doesn't exist");
+        }
+        String sourceIndex = metaData.concreteIndex(indexName);
+        boolean aliased = !sourceIndex.equals(indexName);
+        String targetIndex = newPhysicalIndexName();
+
+        // carry the settings of the live index over, but let elastic search stamp the new one
+        IndexMetaData source = metaData.index(sourceIndex);
+        ImmutableSettings.Builder settings = ImmutableSettings.settingsBuilder().put(source.settings());
+        settings.remove(IndexMetaData.SETTING_VERSION_CREATED);
+        if (options.getSettings() != null) {
+            settings.put(options.getSettings());
+        }
+        logger.info("Reindexing: "+indexName+" from index: "+sourceIndex+" into index: "+targetIndex);
+        client.admin().indices().create(new CreateIndexRequest(targetIndex).settings(settings)).actionGet();
+
+        ReindexProgress progress;
+        boolean sourceDeleted = false;
+        try {
+            PutMappingRequest putMapping = new PutMappingRequest(targetIndex);
+            putMapping.source(metadata.getMappingJSON());
+            putMapping.type(objectType);
+            client.admin().indices().putMapping(putMapping).actionGet();
+
+            long total = client.prepareCount(sourceIndex).setTypes(objectType).execute().actionGet().count();
+            progress = new ReindexProgress(sourceIndex, targetIndex, total);
+            reindexDeletes.clear();
+            reindexTarget = targetIndex;
+            new Reindexer(client, options).copy(progress, objectType);
+            deleteCopiedDeletes(targetIndex);
+            client.admin().indices().prepareRefresh(targetIndex).execute().actionGet();
+
+            if (aliased) {
+                client.admin().indices().prepareAliases()
+                        .removeAlias(sourceIndex, indexName)
+                        .addAlias(targetIndex, indexName)
+                        .execute()
+                        .actionGet();
+            } else {
+                logger.warn("Index: "+indexName+" isn't aliased, it is unavailable until replaced by the alias");
+                // the alias can't be added while the index of the same name exists
+                client.admin().indices().delete(new DeleteIndexRequest(sourceIndex)).actionGet();
+                sourceDeleted = true;
+                client.admin().indices().prepareAliases()
+                        .addAlias(targetIndex, indexName)
+                        .execute()
+                        .actionGet();
+            }
+        } catch (RuntimeException e) {
+            reindexTarget = null;
+            if (sourceDeleted) {
+                // the new index holds the only copy of the documents now
+                logger.error("Reindex of: "+indexName+" failed after deleting index: "+sourceIndex
+                        +", the documents are in index: "+targetIndex, e);
+                throw new ElasticSearchOMGException("Error aliasing index: "+targetIndex+" as: "+indexName
+                        +", index: "+sourceIndex+" was deleted and the documents are in index: "+targetIndex, e);
+            }
+            logger.error("Reindex of: "+indexName+" failed, deleting index: "+targetIndex, e);
+            client.admin().indices().delete(new DeleteIndexRequest(targetIndex)).actionGet();
+            throw e instanceof ElasticSearchOMGException
+                    ? e
+                    : new ElasticSearchOMGException("Error reindexing: "+indexName, e);
+        } finally {
+            reindexTarget = null;
+            reindexDeletes.clear();
+        }
+
+        if (aliased && options.isDeleteSourceIndex()) {
+            client.admin().indices().delete(new DeleteIndexRequest(sourceIndex)).actionGet();
+        }
+        progress.complete();
+        logger.info("Reindexed: "+indexName+", "+progress);
+        if (options.getListener() != null) {
+            options.getListener().onComplete(progress);
+        }
+        return progress;
+    }
+
+    /**
+     * Delete from the new index of a reindex the documents deleted while the copy ran, which it may have copied back.
+     * Writes keep going to the new index meanwhile, a document deleted from now on is already there.
+     */
+    private void deleteCopiedDeletes(String targetIndex) {
+        List<String> ids = new ArrayList<String>(reindexDeletes);
+        for (int i = 0; i < ids.size(); i += bulkSize) {
+            BulkRequestBuilder bulk = client.prepareBulk();
+            for (String id : ids.subList(i, Math.min(ids.size(), i + bulkSize))) {
+                bulk.add(client.prepareDelete(targetIndex, objectType, id));
+            }
+            BulkResponse response = bulk.execute().actionGet();
+            if (response.hasFailures()) {
+                throw new ElasticSearchOMGException("Error deleting documents deleted during the copy from index: "
+                        +targetIndex+", "+response.buildFailureMessage());
+            }
+        }
+        if (!ids.isEmpty()) {
+            logger.info("Deleted "+ids.size()+" documents deleted during the copy from index: "+targetIndex);
+        }
+    }
+
+    /**
+     * Forget a document deleted during a reindex once it is indexed again.
+     */
+    private void onReindexWrite(String id) {
+        if (id != null) {
+            reindexDeletes.remove(id);
+        }
+    }
+
+    /**
+     * Run a large import in a bulk-load session with the default options.
+     *
+     * @param callback the import
+     * @return the result of the callback
+     * @see #bulkLoad(BulkLoadOptions, BulkLoadCallback)
+     */
+    public <R> R bulkLoad(BulkLoadCallback<T, R> callback) throws ElasticSearchOMGException {
+        return bulkLoad(new BulkLoadOptions(), callback);
+    }
+
+    /**
+     * Run a large import in a bulk-load session. The index is tuned for loading before the callback runs: refreshing
+     * is turned off, the replicas are dropped and the merge settings applied, and writes through this repository stop
+     * asking for a refresh. The original settings are restored whether or not the callback succeeds, then the index
+     * is refreshed and, after a successful load, optimized if asked.
+     *
+     * Partitions of a partitioned class created during the session aren't tuned.
+     *
+     * @param options  how the index is tuned
+     * @param callback the import
+     * @return the result of the callback
+     * @throws ElasticSearchOMGException on error
+     */
+    public synchronized <R> R bulkLoad(BulkLoadOptions options, BulkLoadCallback<T, R> callback)
+            throws ElasticSearchOMGException {
+        Map<String, Object> loadSettings = new HashMap<String, Object>();
+        if (options.isSuspendRefresh()) {
+            loadSettings.put(BulkLoadOptions.REFRESH_INTERVAL, "-1");
+        }
+        if (options.isSuspendReplicas()) {
+            loadSettings.put(BulkLoadOptions.NUMBER_OF_REPLICAS, "0");
+        }
+        loadSettings.putAll(options.getMergeSettings());
+
+        MetaData metaData = getClusterMetaData();
+        String[] indices = metaData.concreteIndicesIgnoreMissing(getSearchIndices(null, null));
+        Map<String, Map<String, Object>> originalSettings = new HashMap<String, Map<String, Object>>();
+        for (String index : indices) {
+            Settings settings = metaData.index(index).settings();
+            Map<String, Object> original = new HashMap<String, Object>();
+            for (String key : loadSettings.keySet()) {
+                String value = settings.get(key, BulkLoadOptions.getDefault(key));
+                if (value != null) {
+                    original.put(key, value);
+                } else {
+                    logger.warn("No original value of setting: "+key+" on index: "+index+", it keeps the bulk-load value");
+                }
+            }
+            originalSettings.put(index, original);
+        }
+
+        boolean loaded = false;
+        try {
+            for (String index : indices) {
+                logger.debug("Tuning index: "+index+" for bulk-load with settings: "+loadSettings);
+                client.admin().indices().prepareUpdateSettings(index).setSettings(loadSettings).execute().actionGet();
+            }
+            bulkLoading = true;
+            R result = callback.doInBulkLoad(this);
+            loaded = true;
+            return result;
+        } finally {
+            bulkLoading = false;
+            try {
+                restoreSettings(originalSettings);
+                if (indices.length > 0) {
+                    client.admin().indices().prepareRefresh(indices).execute().actionGet();
+                    if (loaded && options.isOptimize()) {
+                        logger.debug("Optimizing indexes: "+Arrays.toString(indices));
+                        client.admin().indices().prepareOptimize(indices)
+                                .setMaxNumSegments(options.getMaxNumSegments())
+                                .setWaitForMerge(true)
+                                .execute()
+                                .actionGet();
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (loaded) {
+                    throw new ElasticSearchOMGException("Error restoring settings after bulk-load of: "+indexName, e);
+                }
+                // don't hide why the load failed
+                logger.error("Error restoring settings after failed bulk-load of: "+indexName, e);
+            }
+        }
+    }
+
+    private void restoreSettings(Map<String, Map<String, Object>> originalSettings) {
+        RuntimeException failure = null;
+        for (Map.Entry<String, Map<String, Object>> entry : originalSettings.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            try {
+                logger.debug("Restoring index: "+entry.getKey()+" settings: "+entry.getValue());
+                client.admin().indices().prepareUpdateSettings(entry.getKey())
+                        .setSettings(entry.getValue())
+                        .execute()
+                        .actionGet();
+            } catch (RuntimeException e) {
+                // restore the other indexes before failing
+                logger.error("Error restoring settings of index: "+entry.getKey(), e);
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private String newPhysicalIndexName() {
+        return indexName+"_v"+System.currentTimeMillis();
     }
 
     /**
@@ -391,10 +1574,26 @@ public final class ElasticSearchRepository<T> {
      */
     protected void createMapping(String type, String json) {
         logger.debug("Elastic Search creating mapping with contents: "+json);
-        PutMappingRequest putMapping = new PutMappingRequest(indexName);
+        String[] indices = new String[] { indexName };
+        if (partitioned) {
+            // new partitions get the mapping from the template, existing ones need it put
+            putPartitionTemplate(null, false);
+            indices = getSearchIndices(null, null);
+            if (indices.length == 0) {
+                return;
+            }
+        }
+        PutMappingRequest putMapping = new PutMappingRequest(indices);
         putMapping.source(json);
         putMapping.type(type);
-        client.admin().indices().putMapping(putMapping).actionGet();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            client.admin().indices().putMapping(putMapping).actionGet();
+            failed = false;
+        } finally {
+            recordOperation(Operation.PUT_MAPPING, start, failed);
+        }
     }
 
     /**
@@ -403,11 +1602,10 @@ public final class ElasticSearchRepository<T> {
      */
     public void createMapping() {
         try {
-            String json = ElasticSearchMappingUtil.createJSONStringForType(storedClass);
-            createMapping(objectType, json);
+            createMapping(objectType, metadata.getMappingJSON());
         } catch (Exception ex) {
             throw new ElasticSearchOMGException("Exception creating mapping for type: "
-                    +storedClass.getSimpleName());
+                    +storedClass.getSimpleName(), ex);
         }
     }
 
@@ -415,20 +1613,64 @@ public final class ElasticSearchRepository<T> {
      * Delete the index.
      */
     public void deleteIndex() {
-        if (indexExists()) {
+        if (partitioned) {
+            String[] indices = getSearchIndices(null, null);
+            if (indices.length > 0) {
+                client.admin().indices().delete(new DeleteIndexRequest(indices)).actionGet();
+            }
+            if (checkIndexExists()) {
+                client.admin().indices().deleteTemplate(new DeleteIndexTemplateRequest(indexName)).actionGet();
+            }
+            partitions = null;
+            cacheIndexExists(false);
+            return;
+        }
+        if (checkIndexExists()) {
             DeleteIndexRequest deleteIndexRequest = new DeleteIndexRequest(indexName);
-            client.admin().indices().delete(deleteIndexRequest).actionGet();
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                client.admin().indices().delete(deleteIndexRequest).actionGet();
+                failed = false;
+            } finally {
+                recordOperation(Operation.DELETE_INDEX, start, failed);
+            }
+            cacheIndexExists(false);
         } else {
             logger.warn("Asked to delete an index that doesn't exist: {}", indexName);
         }
     }
 
     /**
-     * Check to see if the index exists,
+     * Check to see if the index exists, for a partitioned class whether the index template exists. The answer is
+     * cached for a while, indexes created or deleted through this repository are seen at once.
      * 
      * @return true if the index exists, false otherwise
+     * @see #setIndexExistsCacheInterval(long)
      */
     public boolean indexExists() {
+        Boolean exists = indexExists;
+        if (exists != null && System.currentTimeMillis() - indexExistsCheckedAt <= indexExistsCacheInterval) {
+            return exists;
+        }
+        return checkIndexExists();
+    }
+
+    private boolean checkIndexExists() {
+        boolean exists = queryIndexExists();
+        cacheIndexExists(exists);
+        return exists;
+    }
+
+    private void cacheIndexExists(boolean exists) {
+        indexExistsCheckedAt = System.currentTimeMillis();
+        indexExists = exists;
+    }
+
+    private boolean queryIndexExists() {
+        if (partitioned) {
+            return getClusterMetaData().templates().containsKey(indexName);
+        }
         IndicesExistsRequest indicesExistsRequest = new IndicesExistsRequest(indexName);
         return client.admin().indices().exists(indicesExistsRequest).actionGet().exists();
     }
@@ -497,6 +1739,327 @@ public final class ElasticSearchRepository<T> {
         return indexes.toArray(new String[0]);
     }
 
+    /**
+     * How long {@link #indexExists()} trusts its last answer, in milliseconds.
+     *
+     * @param indexExistsCacheInterval the interval, zero to always ask the cluster
+     */
+    public void setIndexExistsCacheInterval(long indexExistsCacheInterval) {
+        this.indexExistsCacheInterval = indexExistsCacheInterval;
+    }
+
+    /**
+     * Create the index, or put the mapping, if the cluster doesn't have them yet. The cluster metadata is passed in
+     * so many repositories can be checked against a single fetch of it.
+     *
+     * @param metaData the current cluster metadata
+     * @return what was sent to bring the index up to date
+     * @throws ElasticSearchOMGException on error
+     * @see org.elasticsearch.omg.support.schema.SchemaBootstrapper
+     */
+    public SchemaStatus ensureSchema(MetaData metaData) throws ElasticSearchOMGException {
+        String mappingJSON = metadata.getMappingJSON();
+        try {
+            if (partitioned) {
+                partitions = new HashSet<String>(metaData.indices().keySet());
+                partitionsRefreshedAt = System.currentTimeMillis();
+                IndexTemplateMetaData template = metaData.templates().get(indexName);
+                if (template == null) {
+                    putPartitionTemplate(null, false);
+                    return SchemaStatus.CREATED;
+                }
+                cacheIndexExists(true);
+                boolean applied = template.mappings().containsKey(objectType) && ElasticSearchMappingUtil.isMappingApplied(
+                        mappingJSON, objectType, template.mappings().get(objectType).string());
+                for (String partition : indexNameStrategy.indicesFor(storedClass, null, null, partitions)) {
+                    applied = applied && isMappingApplied(metaData.index(partition), mappingJSON);
+                }
+                if (applied) {
+                    return SchemaStatus.UNCHANGED;
+                }
+            } else {
+                if (!metaData.hasConcreteIndex(indexName)) {
+                    createAliasedIndex(null);
+                    return SchemaStatus.CREATED;
+                }
+                cacheIndexExists(true);
+                if (isMappingApplied(metaData.index(metaData.concreteIndex(indexName)), mappingJSON)) {
+                    return SchemaStatus.UNCHANGED;
+                }
+            }
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Error reading the current mapping of type: "+objectType, e);
+        }
+        createMapping();
+        return SchemaStatus.MAPPING_UPDATED;
+    }
+
+    private boolean isMappingApplied(IndexMetaData index, String mappingJSON) throws IOException {
+        MappingMetaData mapping = index.mapping(objectType);
+        return mapping != null && ElasticSearchMappingUtil.isMappingApplied(mappingJSON, objectType, mapping.source().string());
+    }
+
+    /**
+     * The name of the index, or alias, the stored class is read and written through. For a partitioned class the
+     * base name of the partitions and the name of their index template.
+     *
+     * @return the index name
+     */
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * How long the list of existing partitions of a partitioned class is cached for, in milliseconds.
+     *
+     * @param partitionRefreshInterval the interval
+     */
+    public void setPartitionRefreshInterval(long partitionRefreshInterval) {
+        this.partitionRefreshInterval = partitionRefreshInterval;
+    }
+
+    /**
+     * The index an object is written to.
+     *
+     * @param object the object
+     * @return the index name
+     */
+    protected String getIndexFor(T object) {
+        if (!partitioned) {
+            return indexName;
+        }
+        String index = indexNameStrategy.indexFor(object);
+        Set<String> current = partitions;
+        if (current != null && !current.contains(index)) {
+            // writing creates the partition from the template
+            Set<String> updated = new HashSet<String>(current);
+            updated.add(index);
+            partitions = updated;
+        }
+        return index;
+    }
+
+    /**
+     * The index a raw document is written to: its own, or the one of the object its source binds to in a
+     * partitioned repository. A sample of sources is bound to the stored class to check they fit it.
+     *
+     * @param document the document
+     * @return the index name
+     * @throws ElasticSearchOMGException if the source doesn't bind to the stored class
+     */
+    protected String getIndexFor(RawDocument document) throws ElasticSearchOMGException {
+        int interval = rawValidationInterval;
+        boolean validate = interval > 0 && rawWrites.getAndIncrement() % interval == 0;
+        if (!validate && (document.getIndex() != null || !partitioned)) {
+            return document.getIndex() != null ? document.getIndex() : indexName;
+        }
+        T object;
+        try {
+            object = JSONUtil.deserializeToObject(document.getSource(), document.getOffset(), document.getLength(), storedClass);
+        } catch (ElasticSearchOMGException e) {
+            throw new ElasticSearchOMGException("Source of id: "+document.getId()+" doesn't bind to "+storedClass.getName(), e);
+        }
+        return document.getIndex() != null ? document.getIndex() : getIndexFor(object);
+    }
+
+    /**
+     * The indexes to search for objects with a timestamp in a range.
+     *
+     * @param from the start of the range, or <code>null</code>
+     * @param to   the end of the range, or <code>null</code>
+     * @return the indexes, empty if no partition can hold such objects
+     */
+    protected String[] getSearchIndices(Date from, Date to) {
+        if (!partitioned) {
+            return new String[] { indexName };
+        }
+        Set<String> current = partitions;
+        if (current == null || System.currentTimeMillis() - partitionsRefreshedAt > partitionRefreshInterval) {
+            current = new HashSet<String>(getClusterMetaData().indices().keySet());
+            partitions = current;
+            partitionsRefreshedAt = System.currentTimeMillis();
+        }
+        return indexNameStrategy.indicesFor(storedClass, from, to, current);
+    }
+
+    private MetaData getClusterMetaData() {
+        return client.admin().cluster().prepareState()
+                .setFilterRoutingTable(true)
+                .setFilterNodes(true)
+                .setFilterBlocks(true)
+                .execute()
+                .actionGet()
+                .getState()
+                .metaData();
+    }
+
+    /**
+     * Put the index template partitions are created from, with the mapping of the stored class.
+     *
+     * @param settings the index settings, or <code>null</code> to keep the ones of the existing template
+     * @param create   true to leave an existing template alone
+     */
+    private void putPartitionTemplate(Map<String, String> settings, boolean create) {
+        IndexTemplateMetaData existing = getClusterMetaData().templates().get(indexName);
+        if (existing != null && create) {
+            logger.warn("Attemping to create index template: "+indexName+" that already exists.");
+            return;
+        }
+        logger.debug("Putting index template: "+indexName);
+        PutIndexTemplateRequestBuilder template = client.admin().indices().preparePutTemplate(indexName)
+                .setTemplate(indexNameStrategy.templateFor(storedClass))
+                .addMapping(objectType, metadata.getMappingJSON());
+        if (settings != null) {
+            template.setSettings(new HashMap<String, Object>(settings));
+        } else if (existing != null) {
+            template.setSettings(existing.settings());
+        }
+        template.execute().actionGet();
+        cacheIndexExists(true);
+    }
+
+    /**
+     * The metadata of the class stored by this repository.
+     *
+     * @return the metadata
+     */
+    public DocumentMetadata<T> getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * The planner {@link #executeSearch(ComplexQuery)} runs queries through, for searches prepared by hand.
+     *
+     * @return the query planner for the mapping of the stored class
+     */
+    public QueryPlanner getQueryPlanner() {
+        return queryPlanner;
+    }
+
+    /**
+     * The metrics of the operations of this repository.
+     *
+     * @return the metrics
+     */
+    public RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The admission controller limiting the reads and writes this repository has in flight.
+     *
+     * @return the controller
+     */
+    public AdmissionController getAdmissionController() {
+        return admission;
+    }
+
+    /**
+     * Limit the reads and writes this repository has in flight, nothing is limited by default.
+     *
+     * @param options the limits
+     */
+    public void setAdmissionOptions(AdmissionOptions options) {
+        admission.configure(options);
+    }
+
+    /**
+     * Hedge the gets and searches of this repository, sending those that are slow a second time to other copies of
+     * the shards.
+     *
+     * @param options the options of the hedging, or <code>null</code> to stop hedging
+     * @see ReadHedger
+     */
+    public void setHedgeOptions(HedgeOptions options) {
+        hedger = options != null ? new ReadHedger(options) : null;
+    }
+
+    /**
+     * The hedger of the reads of this repository.
+     *
+     * @return the hedger, or <code>null</code> if reads aren't hedged
+     */
+    public ReadHedger getReadHedger() {
+        return hedger;
+    }
+
+    /**
+     * Write through a journal: index and delete operations return once they are journaled on local disk, and are
+     * shipped to the cluster in the background. Changes aren't visible to reads until they are shipped.
+     *
+     * @param journal the open journal, or <code>null</code> to write to the cluster directly
+     * @see WriteBehindJournal
+     */
+    public void setWriteBehindJournal(WriteBehindJournal journal) {
+        this.journal = journal;
+    }
+
+    public WriteBehindJournal getWriteBehindJournal() {
+        return journal;
+    }
+
+    /**
+     * The format sources are written in, the one of the document annotation by default. Sources of either format
+     * are read back, so the encoding can be changed on an index already holding documents.
+     *
+     * @param sourceEncoding the format
+     */
+    public void setSourceEncoding(SourceEncoding sourceEncoding) {
+        this.sourceEncoding = sourceEncoding != null ? sourceEncoding : metadata.getSourceEncoding();
+    }
+
+    public SourceEncoding getSourceEncoding() {
+        return sourceEncoding;
+    }
+
+    /**
+     * Bind one raw source in every interval to the stored class before writing it, rejecting the ones that don't
+     * fit. Sources aren't checked by default.
+     *
+     * @param rawValidationInterval 1 to check every source, 0 to check none
+     */
+    public void setRawValidationInterval(int rawValidationInterval) {
+        this.rawValidationInterval = Math.max(0, rawValidationInterval);
+    }
+
+    public int getRawValidationInterval() {
+        return rawValidationInterval;
+    }
+
+    /**
+     * Execute a read, hedged if reads are.
+     */
+    private <R> R read(HedgedRead<R> read) {
+        ReadHedger current = hedger;
+        if (current != null) {
+            return current.execute(read);
+        }
+        PlainActionFuture<R> future = PlainActionFuture.newFuture();
+        read.send(null, future);
+        return future.actionGet();
+    }
+
+    /**
+     * Log operations of this repository that take longer than the threshold of a slow log.
+     *
+     * @param slowLog the slow log, or <code>null</code> for none
+     */
+    public void setSlowLog(SlowOperationLog slowLog) {
+        this.slowLog = slowLog;
+    }
+
+    public SlowOperationLog getSlowLog() {
+        return slowLog;
+    }
+
+    private void recordOperation(Operation operation, long start, boolean failed) {
+        metrics.record(operation, start, failed);
+        SlowOperationLog log = slowLog;
+        if (log != null) {
+            log.onOperation(indexName, objectType, operation, System.nanoTime() - start, failed);
+        }
+    }
+
     /**
      * Simple method for getting the next id.
      *
@@ -507,22 +2070,7 @@ public final class ElasticSearchRepository<T> {
     protected String getNextId(Object object)
             throws ElasticSearchOMGException {
 
-        // grab the next id based on some simple rules, this should be expanded
-        for (Method method : object.getClass().getMethods()) {
-            if (!method.isAnnotationPresent(ElasticSearchDocumentId.class)) {
-                break;
-            }
-
-            ElasticSearchDocumentId docId = method.getAnnotation(ElasticSearchDocumentId.class);
-            try {
-                return docId.autoGenerate()
-                        ? null
-                        : method.invoke(object).toString();
-            } catch (Exception ex) {
-                throw new ElasticSearchOMGException("exception invoking method for id generation.", ex);
-            }
-        }
-
-        return null;
+        // the id accessor is resolved once per class by the metadata registry
+        return DocumentMetadataRegistry.forObject(object).getId(object);
     }
 }
@@ -0,0 +1,21 @@
+package org.elasticsearch.omg.support.scan;
+
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * Receives the pages of hits of a {@link ScrollScanner}. Pages are handed to several threads at once, so
+ * implementations must be thread safe.
+ *
+ * @author jereanon
+ */
+public interface ScanHandler {
+
+    /**
+     * Handle a page of hits.
+     *
+     * @param index the index the hits were scanned from
+     * @param hits  the hits, never empty
+     * @throws Exception to stop the scan
+     */
+    void onHits(String index, SearchHit[] hits) throws Exception;
+}
@@ -0,0 +1,274 @@
+package org.elasticsearch.omg.support.scan;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams every document matching a query out of one or more indexes with a scan search. A scan already reads all
+ * the shards of an index at once; the scanner overlaps fetching the next page with handling the current ones on a
+ * pool of handler threads, and scans several indexes side by side.
+ *
+ * @author jereanon
+ */
+public class ScrollScanner {
+    private static final Logger logger = LoggerFactory.getLogger(ScrollScanner.class);
+
+    private final Client client;
+
+    private final String[] indices;
+
+    private String[] types = new String[0];
+
+    private QueryBuilder query = QueryBuilders.matchAllQuery();
+
+    private int scrollSize = 500;
+
+    private TimeValue keepAlive = TimeValue.timeValueMinutes(5);
+
+    private int concurrency = 4;
+
+    private boolean fetchSource = true;
+
+    private String routing;
+
+    private volatile boolean cancelled;
+
+    /**
+     * @param client  the client to scan with
+     * @param indices the indexes to scan, aliases are resolved by elastic search
+     */
+    public ScrollScanner(Client client, String... indices) {
+        this.client = client;
+        this.indices = indices;
+    }
+
+    /**
+     * Scan the indexes, blocking until every hit has been handled.
+     *
+     * @param handler receives the pages of hits
+     * @return the number of hits handled
+     * @throws ElasticSearchOMGException if the scan or the handler fails
+     */
+    public long scan(final ScanHandler handler) throws ElasticSearchOMGException {
+        if (indices.length == 0) {
+            return 0;
+        }
+        final AtomicLong handled = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        // bounds the pages waiting to be handled, so a slow handler holds the scroll back
+        final Semaphore pending = new Semaphore(concurrency * 2);
+        final ExecutorService handlers = Executors.newFixedThreadPool(concurrency,
+                EsExecutors.daemonThreadFactory("omg-scan"));
+        ExecutorService readers = Executors.newFixedThreadPool(Math.min(indices.length, concurrency),
+                EsExecutors.daemonThreadFactory("omg-scroll"));
+        try {
+            for (final String index : indices) {
+                readers.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            scanIndex(index, handler, handlers, pending, handled, failure);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                    }
+                });
+            }
+            readers.shutdown();
+            awaitTermination(readers);
+            handlers.shutdown();
+            awaitTermination(handlers);
+        } finally {
+            readers.shutdownNow();
+            handlers.shutdownNow();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof ElasticSearchOMGException) {
+            throw (ElasticSearchOMGException) t;
+        } else if (t != null) {
+            throw new ElasticSearchOMGException("Error scanning indexes", t);
+        }
+        return handled.get();
+    }
+
+    private void scanIndex(final String index, final ScanHandler handler, ExecutorService handlers, final Semaphore pending,
+                           final AtomicLong handled, final AtomicReference<Throwable> failure) throws InterruptedException {
+        SearchRequestBuilder search = client.prepareSearch(index)
+                .setTypes(types)
+                .setSearchType(SearchType.SCAN)
+                .setQuery(query)
+                .setSize(scrollSize)
+                .setScroll(keepAlive);
+        if (!fetchSource) {
+            search.setNoFields();
+        }
+        if (routing != null) {
+            search.setRouting(routing);
+        }
+        // the first response of a scan holds no hits, only the scroll to read them with
+        String scrollId = search.execute().actionGet().scrollId();
+        logger.debug("Scanning index: "+index);
+
+        while (!cancelled && failure.get() == null) {
+            SearchResponse response = client.prepareSearchScroll(scrollId)
+                    .setScroll(keepAlive)
+                    .execute()
+                    .actionGet();
+            final SearchHit[] hits = response.hits().hits();
+            if (hits.length == 0) {
+                break;
+            }
+            scrollId = response.scrollId();
+
+            pending.acquire();
+            handlers.execute(new Runnable() {
+                public void run() {
+                    try {
+                        if (!cancelled && failure.get() == null) {
+                            handler.onHits(index, hits);
+                            handled.addAndGet(hits.length);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        pending.release();
+                    }
+                }
+            });
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting, the work itself is bounded by the scroll
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchOMGException("Interrupted while scanning", e);
+        }
+    }
+
+    /**
+     * Find a routing value that goes to a shard, with the hash elastic search routes by default. A scan routed by it
+     * only reads that shard, see {@link #setRouting(String)}.
+     *
+     * @param shard  the shard
+     * @param shards the number of shards of the index
+     * @return the routing value
+     */
+    public static String routingFor(int shard, int shards) {
+        for (int i = 0; ; i++) {
+            String routing = Integer.toString(i);
+            if (Math.abs(DjbHashFunction.DJB_HASH(routing) % shards) == shard) {
+                return routing;
+            }
+        }
+    }
+
+    /**
+     * Stop the scan after the pages being handled. The scan returns normally.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Restrict the scan to document types.
+     *
+     * @param types the types
+     * @return this scanner
+     */
+    public ScrollScanner setTypes(String... types) {
+        this.types = types;
+        return this;
+    }
+
+    /**
+     * The query documents must match, all documents by default.
+     *
+     * @param query the query
+     * @return this scanner
+     */
+    public ScrollScanner setQuery(QueryBuilder query) {
+        this.query = query;
+        return this;
+    }
+
+    /**
+     * The number of hits fetched per shard for each page.
+     *
+     * @param scrollSize the size
+     * @return this scanner
+     */
+    public ScrollScanner setScrollSize(int scrollSize) {
+        this.scrollSize = scrollSize;
+        return this;
+    }
+
+    /**
+     * How long elastic search keeps the scroll open between pages.
+     *
+     * @param keepAlive the keep alive
+     * @return this scanner
+     */
+    public ScrollScanner setKeepAlive(TimeValue keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * The number of pages handled at once.
+     *
+     * @param concurrency the number of handler threads
+     * @return this scanner
+     */
+    public ScrollScanner setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+        return this;
+    }
+
+    /**
+     * Whether hits carry their source, turn off when only ids are needed.
+     *
+     * @param fetchSource true to fetch the source
+     * @return this scanner
+     */
+    public ScrollScanner setFetchSource(boolean fetchSource) {
+        this.fetchSource = fetchSource;
+        return this;
+    }
+
+    /**
+     * Only scan the shards the routing value goes to, every shard by default.
+     *
+     * @param routing the routing value
+     * @return this scanner
+     */
+    public ScrollScanner setRouting(String routing) {
+        this.routing = routing;
+        return this;
+    }
+}
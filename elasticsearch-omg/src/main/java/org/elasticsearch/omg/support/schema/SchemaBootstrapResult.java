@@ -0,0 +1,89 @@
+package org.elasticsearch.omg.support.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a {@link SchemaBootstrapper} run, repositories are named <code>index/type</code>.
+ *
+ * @author jereanon
+ */
+public class SchemaBootstrapResult {
+
+    private final Map<String, SchemaStatus> ready = new LinkedHashMap<String, SchemaStatus>();
+
+    private final Map<String, Throwable> failed = new LinkedHashMap<String, Throwable>();
+
+    private long tookMillis;
+
+    synchronized void addReady(String name, SchemaStatus status) {
+        ready.put(name, status);
+    }
+
+    synchronized void addFailed(String name, Throwable cause) {
+        failed.put(name, cause);
+    }
+
+    void setTookMillis(long tookMillis) {
+        this.tookMillis = tookMillis;
+    }
+
+    /**
+     * The repositories whose index and mapping are up to date, with what it took.
+     *
+     * @return the statuses by repository
+     */
+    public synchronized Map<String, SchemaStatus> getReady() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, SchemaStatus>(ready));
+    }
+
+    /**
+     * The repositories that couldn't be brought up to date.
+     *
+     * @return the failures by repository
+     */
+    public synchronized Map<String, Throwable> getFailed() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Throwable>(failed));
+    }
+
+    /**
+     * The repositories with a given status.
+     *
+     * @param status the status
+     * @return the repository names
+     */
+    public synchronized List<String> getReady(SchemaStatus status) {
+        List<String> names = new ArrayList<String>();
+        for (Map.Entry<String, SchemaStatus> entry : ready.entrySet()) {
+            if (entry.getValue() == status) {
+                names.add(entry.getKey());
+            }
+        }
+        return names;
+    }
+
+    public synchronized boolean isSuccessful() {
+        return failed.isEmpty();
+    }
+
+    /**
+     * How long the bootstrap took.
+     *
+     * @return the time in milliseconds
+     */
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "schema bootstrap took "+tookMillis+" ms: "+ready.size()+" ready ("
+                +getReady(SchemaStatus.CREATED).size()+" created, "
+                +getReady(SchemaStatus.MAPPING_UPDATED).size()+" mapping updated, "
+                +getReady(SchemaStatus.UNCHANGED).size()+" unchanged), "
+                +failed.size()+" failed"+(failed.isEmpty() ? "" : " "+failed.keySet());
+    }
+}
@@ -0,0 +1,131 @@
+package org.elasticsearch.omg.support.schema;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.omg.ElasticSearchOMGException;
+import org.elasticsearch.omg.support.repository.ElasticSearchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brings the indexes and mappings of many repositories up to date at once. The cluster metadata is fetched once and
+ * each repository compares its mapping against it, only the index creations and mapping puts that change something
+ * are sent, with the repositories of different indexes handled in parallel.
+ *
+ * @author jereanon
+ */
+public class SchemaBootstrapper {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaBootstrapper.class);
+
+    private final Client client;
+
+    private int concurrency = 4;
+
+    public SchemaBootstrapper(Client client) {
+        this.client = client;
+    }
+
+    /**
+     * Bring the indexes and mappings of the repositories up to date.
+     *
+     * @param repositories the repositories
+     * @return which repositories are ready and which failed
+     */
+    public SchemaBootstrapResult bootstrap(Collection<? extends ElasticSearchRepository<?>> repositories) {
+        long start = System.currentTimeMillis();
+        final SchemaBootstrapResult result = new SchemaBootstrapResult();
+        final MetaData metaData = fetchMetaData();
+
+        // repositories sharing an index go one after the other, so the index is only created once
+        Map<String, List<ElasticSearchRepository<?>>> byIndex = new LinkedHashMap<String, List<ElasticSearchRepository<?>>>();
+        for (ElasticSearchRepository<?> repository : repositories) {
+            List<ElasticSearchRepository<?>> group = byIndex.get(repository.getIndexName());
+            if (group == null) {
+                group = new ArrayList<ElasticSearchRepository<?>>();
+                byIndex.put(repository.getIndexName(), group);
+            }
+            group.add(repository);
+        }
+
+        if (!byIndex.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, byIndex.size()),
+                    EsExecutors.daemonThreadFactory("omg-schema"));
+            try {
+                for (final List<ElasticSearchRepository<?>> group : byIndex.values()) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            bootstrapGroup(group, metaData, result);
+                        }
+                    });
+                }
+                executor.shutdown();
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // admin requests time out on their own
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ElasticSearchOMGException("Interrupted while bootstrapping schema", e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        result.setTookMillis(System.currentTimeMillis() - start);
+        if (result.isSuccessful()) {
+            logger.info("{}", result);
+        } else {
+            logger.error("{}", result);
+        }
+        return result;
+    }
+
+    private void bootstrapGroup(List<ElasticSearchRepository<?>> group, MetaData metaData, SchemaBootstrapResult result) {
+        MetaData current = metaData;
+        for (int i = 0; i < group.size(); i++) {
+            ElasticSearchRepository<?> repository = group.get(i);
+            String name = repository.getIndexName()+"/"+repository.getMetadata().getObjectType();
+            try {
+                SchemaStatus status = repository.ensureSchema(current);
+                logger.debug("Schema of: "+name+" "+status);
+                result.addReady(name, status);
+                if (status != SchemaStatus.UNCHANGED && i < group.size() - 1) {
+                    // the next repository of this index has to see what was just changed
+                    current = fetchMetaData();
+                }
+            } catch (Exception e) {
+                logger.error("Error bootstrapping schema of: "+name, e);
+                result.addFailed(name, e);
+            }
+        }
+    }
+
+    private MetaData fetchMetaData() {
+        return client.admin().cluster().prepareState()
+                .setFilterRoutingTable(true)
+                .setFilterNodes(true)
+                .setFilterBlocks(true)
+                .execute()
+                .actionGet()
+                .getState()
+                .metaData();
+    }
+
+    /**
+     * The number of indexes brought up to date at once.
+     *
+     * @param concurrency the number of threads
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+}
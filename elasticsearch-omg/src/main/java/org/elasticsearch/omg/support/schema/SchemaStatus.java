@@ -0,0 +1,24 @@
+package org.elasticsearch.omg.support.schema;
+
+/**
+ * What bringing the index and mapping of a repository up to date took.
+ *
+ * @author jereanon
+ */
+public enum SchemaStatus {
+
+    /**
+     * The index and mapping were already up to date, nothing was sent.
+     */
+    UNCHANGED,
+
+    /**
+     * The index, or index template of a partitioned class, was created with the mapping.
+     */
+    CREATED,
+
+    /**
+     * The index existed and the mapping was put.
+     */
+    MAPPING_UPDATED
+}
@@ -0,0 +1,165 @@
+package org.elasticsearch.omg.support.slowlog;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.omg.support.metrics.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs repository operations that take longer than a threshold, at WARN to the {@link #LOGGER_NAME} logger so they
+ * can be routed to a file of their own. A slow search is logged with the query, filter and sort JSON that was sent,
+ * the time the cluster says it took, the round trip seen by the client, the hits and the time spent deserializing
+ * them, which tells apart a slow query, a slow network and slow mapping of the results.
+ *
+ * An operation under the threshold costs a single comparison. The query JSON is only rendered for operations that are
+ * logged, and at most {@link #setMaxEntriesPerSecond(int) maxEntriesPerSecond} are, the rest are counted and the
+ * count logged with the next entry. One instance can be shared by many repositories.
+ *
+ * @author jereanon
+ */
+public class SlowOperationLog {
+
+    /**
+     * The name of the logger slow operations are logged to.
+     */
+    public static final String LOGGER_NAME = "org.elasticsearch.omg.slowlog";
+
+    private static final Logger logger = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private volatile long thresholdNanos = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile int maxEntriesPerSecond = 10;
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger windowEntries = new AtomicInteger();
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * Log an operation if it was slow.
+     *
+     * @param index     the index name of the repository
+     * @param type      the object type of the repository
+     * @param operation the operation
+     * @param nanos     how long it took, in nanoseconds
+     * @param failed    whether it threw
+     */
+    public void onOperation(String index, String type, Operation operation, long nanos, boolean failed) {
+        if (nanos < thresholdNanos || !acquire()) {
+            return;
+        }
+        logger.warn(entry(operation, index, type, nanos, failed).toString());
+    }
+
+    /**
+     * Log a search if it was slow. The search counts as slow when the round trip and the deserialization together
+     * are over the threshold.
+     *
+     * @param index                the index name of the repository
+     * @param type                 the object type of the repository
+     * @param search               the search that was sent
+     * @param roundTripNanos       the time from sending the search to having the response, in nanoseconds
+     * @param tookMillis           the time the cluster took, -1 if there is no response
+     * @param hits                 the number of hits returned
+     * @param totalHits            the total number of hits
+     * @param deserializationNanos the time spent deserializing the hits, in nanoseconds
+     * @param failed               whether the search threw
+     */
+    public void onSearch(String index, String type, SearchRequestBuilder search, long roundTripNanos, long tookMillis,
+                         int hits, long totalHits, long deserializationNanos, boolean failed) {
+        if (roundTripNanos + deserializationNanos < thresholdNanos || !acquire()) {
+            return;
+        }
+        StringBuilder entry = entry(Operation.SEARCH, index, type, roundTripNanos + deserializationNanos, failed)
+                .append(" took[").append(tookMillis).append("ms]")
+                .append(" rtt[").append(TimeUnit.NANOSECONDS.toMillis(roundTripNanos)).append("ms]")
+                .append(" deserialization[").append(TimeUnit.NANOSECONDS.toMillis(deserializationNanos)).append("ms]")
+                .append(" hits[").append(hits).append('/').append(totalHits).append(']');
+        String source;
+        try {
+            source = new String(search.internalBuilder().buildAsBytes(XContentType.JSON), UTF8);
+        } catch (RuntimeException e) {
+            source = "unable to render: " + e;
+        }
+        entry.append(" source[").append(source).append(']');
+        logger.warn(entry.toString());
+    }
+
+    private StringBuilder entry(Operation operation, String index, String type, long nanos, boolean failed) {
+        StringBuilder entry = new StringBuilder(256)
+                .append("slow ").append(operation.getMetricName())
+                .append(" [").append(index).append("][").append(type).append(']')
+                .append(" total[").append(TimeUnit.NANOSECONDS.toMillis(nanos)).append("ms]");
+        if (failed) {
+            entry.append(" failed");
+        }
+        long dropped = suppressed.getAndSet(0);
+        if (dropped > 0) {
+            entry.append(" suppressed[").append(dropped).append(']');
+        }
+        return entry;
+    }
+
+    /**
+     * Take one of the entries of the current second.
+     */
+    private boolean acquire() {
+        if (!logger.isWarnEnabled()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= TimeUnit.SECONDS.toNanos(1) && windowStart.compareAndSet(start, now)) {
+            windowEntries.set(0);
+        }
+        if (windowEntries.incrementAndGet() > maxEntriesPerSecond) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * How long an operation takes before it is logged, 1 second by default.
+     *
+     * @param thresholdMillis the threshold in milliseconds
+     */
+    public void setThresholdMillis(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public int getMaxEntriesPerSecond() {
+        return maxEntriesPerSecond;
+    }
+
+    /**
+     * The most operations logged per second, 10 by default.
+     *
+     * @param maxEntriesPerSecond the limit
+     */
+    public void setMaxEntriesPerSecond(int maxEntriesPerSecond) {
+        this.maxEntriesPerSecond = maxEntriesPerSecond;
+    }
+
+    /**
+     * The number of slow operations not logged because of the rate limit since the last entry.
+     *
+     * @return the number
+     */
+    public long getSuppressed() {
+        return suppressed.get();
+    }
+}
@@ -1,30 +1,83 @@
 package org.elasticsearch.omg.support.springframework;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.management.MBeanServer;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.omg.support.admission.AdmissionOptions;
+import org.elasticsearch.omg.support.hedge.HedgeOptions;
+import org.elasticsearch.omg.support.journal.WriteBehindJournal;
+import org.elasticsearch.omg.support.metrics.MetricsSink;
 import org.elasticsearch.omg.support.repository.ElasticSearchRepository;
+import org.elasticsearch.omg.support.schema.SchemaBootstrapResult;
+import org.elasticsearch.omg.support.schema.SchemaBootstrapper;
+import org.elasticsearch.omg.support.slowlog.SlowOperationLog;
+import org.elasticsearch.omg.support.warmup.WarmupOptions;
+import org.elasticsearch.omg.support.warmup.WarmupRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.FatalBeanException;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Required;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
 
 /**
  * A post processor which will created named ElasticSearchRepository instances.
  *
+ * The classes annotated with {@link ManagedByRepository} are read from the
+ * {@link #INDEX_RESOURCE} files written at build time by the elasticsearch-omg-processor
+ * annotation processor. When no such file is on the classpath the scanPath packages are
+ * scanned instead.
+ *
+ * The metrics of each repository are registered as MBeans unless registerMBeans is turned off.
+ *
  * @author pchapman
  */
-public class ElasticSearchRepositoryBeanRegistry implements BeanFactoryPostProcessor {
+public class ElasticSearchRepositoryBeanRegistry implements BeanFactoryPostProcessor, BeanClassLoaderAware, DisposableBean {
+
+    /**
+     * The build-time index of managed classes, one <code>beanName=className</code> line per class.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/elasticsearch-omg/managed-repositories";
     
     private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    private boolean useIndex = true;
+    public boolean isUseIndex() {
+        return useIndex;
+    }
+    // Turn off to always scan, e.g. when some managed classes are compiled without the processor
+    public void setUseIndex(boolean useIndex) {
+        this.useIndex = useIndex;
+    }
     
     private Integer bulkSize = 50;
     public Integer getBulkSize() {
@@ -43,6 +96,96 @@ public class ElasticSearchRepositoryBeanRegistry implements BeanFactoryPostProce
         this.client = client;
     }
     
+    private boolean bootstrapSchema = false;
+    public boolean isBootstrapSchema() {
+        return bootstrapSchema;
+    }
+    // Creates the missing indexes and puts the changed mappings of all repositories at startup
+    public void setBootstrapSchema(boolean bootstrapSchema) {
+        this.bootstrapSchema = bootstrapSchema;
+    }
+
+    private boolean failOnSchemaError = true;
+    public boolean isFailOnSchemaError() {
+        return failOnSchemaError;
+    }
+    public void setFailOnSchemaError(boolean failOnSchemaError) {
+        this.failOnSchemaError = failOnSchemaError;
+    }
+
+    private boolean registerMBeans = true;
+    public boolean isRegisterMBeans() {
+        return registerMBeans;
+    }
+    public void setRegisterMBeans(boolean registerMBeans) {
+        this.registerMBeans = registerMBeans;
+    }
+
+    // The platform MBean server unless set
+    private MBeanServer mbeanServer;
+    public MBeanServer getMbeanServer() {
+        return mbeanServer;
+    }
+    public void setMbeanServer(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+    }
+
+    // Limits the reads and writes in flight, nothing is limited unless set
+    private AdmissionOptions admissionOptions;
+    public AdmissionOptions getAdmissionOptions() {
+        return admissionOptions;
+    }
+    public void setAdmissionOptions(AdmissionOptions admissionOptions) {
+        this.admissionOptions = admissionOptions;
+    }
+
+    // Hedges slow reads, reads aren't hedged unless set
+    private HedgeOptions hedgeOptions;
+    public HedgeOptions getHedgeOptions() {
+        return hedgeOptions;
+    }
+    public void setHedgeOptions(HedgeOptions hedgeOptions) {
+        this.hedgeOptions = hedgeOptions;
+    }
+
+    // Journals writes to local disk and ships them in the background, writes go to the cluster unless set. Declare
+    // the journal with init-method "open" and destroy-method "close"
+    private WriteBehindJournal writeBehindJournal;
+    public WriteBehindJournal getWriteBehindJournal() {
+        return writeBehindJournal;
+    }
+    public void setWriteBehindJournal(WriteBehindJournal writeBehindJournal) {
+        this.writeBehindJournal = writeBehindJournal;
+    }
+
+    // Warms the repositories up once created and their schema bootstrapped, they start cold unless set
+    private WarmupOptions warmupOptions;
+    public WarmupOptions getWarmupOptions() {
+        return warmupOptions;
+    }
+    public void setWarmupOptions(WarmupOptions warmupOptions) {
+        this.warmupOptions = warmupOptions;
+    }
+
+    private SlowOperationLog slowLog;
+    public SlowOperationLog getSlowLog() {
+        return slowLog;
+    }
+    public void setSlowLog(SlowOperationLog slowLog) {
+        this.slowLog = slowLog;
+    }
+
+    private MetricsSink metricsSink;
+    public MetricsSink getMetricsSink() {
+        return metricsSink;
+    }
+    // Receives the measurements of all repositories
+    public void setMetricsSink(MetricsSink metricsSink) {
+        this.metricsSink = metricsSink;
+    }
+
+    private final List<ElasticSearchRepository> created = new ArrayList<ElasticSearchRepository>();
+
     private String scanPath;
     public String getScanPath() {
         return scanPath;
@@ -61,13 +204,169 @@ public class ElasticSearchRepositoryBeanRegistry implements BeanFactoryPostProce
                 throw new FatalBeanException("Unable to located ElasticSearch client bean");
             }
         }
-        Map<String, Class<?>> managed = getRespositoryManagedObjects();
-        ElasticSearchRepository repo;
-        for (String beanName : managed.keySet()) {
-            LOGGER.debug("Creating ElasticSearchRepository singleton with spring bean name {}", beanName);
-            repo = new ElasticSearchRepository(managed.get(beanName), client, bulkSize);
-            registry.registerSingleton(beanName, repo);
+        long start = System.currentTimeMillis();
+        Map<String, Class<?>> managed = null;
+        if (useIndex) {
+            managed = getIndexedRepositoryManagedObjects();
+        }
+        String source = "build-time index";
+        if (managed == null) {
+            managed = getRespositoryManagedObjects();
+            source = "classpath scan";
+        }
+        LOGGER.info("Discovered {} repository managed classes from {} in {} ms",
+                new Object[] { managed.size(), source, System.currentTimeMillis() - start });
+
+        // the repositories resolve the metadata of their class when created, do that concurrently but register
+        // them with the bean factory from this thread
+        start = System.currentTimeMillis();
+        Map<String, ElasticSearchRepository> repos = createRepositories(managed);
+        for (Map.Entry<String, ElasticSearchRepository> entry : repos.entrySet()) {
+            LOGGER.debug("Creating ElasticSearchRepository singleton with spring bean name {}", entry.getKey());
+            registry.registerSingleton(entry.getKey(), entry.getValue());
+            entry.getValue().getMetrics().setSink(metricsSink);
+            entry.getValue().setSlowLog(slowLog);
+            entry.getValue().setHedgeOptions(hedgeOptions);
+            entry.getValue().setWriteBehindJournal(writeBehindJournal);
+            if (admissionOptions != null) {
+                entry.getValue().setAdmissionOptions(admissionOptions);
+            }
+            if (registerMBeans) {
+                entry.getValue().getMetrics().registerMBeans(
+                        mbeanServer != null ? mbeanServer : ManagementFactory.getPlatformMBeanServer());
+            }
+            created.add(entry.getValue());
+        }
+        LOGGER.info("Created {} ElasticSearchRepository singletons in {} ms",
+                repos.size(), System.currentTimeMillis() - start);
+
+        if (bootstrapSchema) {
+            List<ElasticSearchRepository<?>> repositories = new ArrayList<ElasticSearchRepository<?>>();
+            for (ElasticSearchRepository repo : repos.values()) {
+                repositories.add(repo);
+            }
+            SchemaBootstrapResult result = new SchemaBootstrapper(client).bootstrap(repositories);
+            if (!result.isSuccessful() && failOnSchemaError) {
+                Throwable cause = result.getFailed().values().iterator().next();
+                throw new FatalBeanException("Unable to bootstrap elastic search schema, " + result, cause);
+            }
+        }
+
+        if (warmupOptions != null) {
+            List<ElasticSearchRepository<?>> repositories = new ArrayList<ElasticSearchRepository<?>>();
+            for (ElasticSearchRepository repo : repos.values()) {
+                repositories.add(repo);
+            }
+            new WarmupRunner(warmupOptions).warmUp(repositories);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (ElasticSearchRepository repo : created) {
+            repo.getMetrics().unregisterMBeans();
+        }
+        created.clear();
+    }
+
+    private Map<String, ElasticSearchRepository> createRepositories(Map<String, Class<?>> managed) {
+        Map<String, ElasticSearchRepository> repos = new LinkedHashMap<String, ElasticSearchRepository>(managed.size());
+        if (managed.isEmpty()) {
+            return repos;
+        }
+        int threads = Math.min(managed.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Map<String, Future<ElasticSearchRepository>> futures =
+                    new LinkedHashMap<String, Future<ElasticSearchRepository>>(managed.size());
+            for (final Map.Entry<String, Class<?>> entry : managed.entrySet()) {
+                futures.put(entry.getKey(), executor.submit(new Callable<ElasticSearchRepository>() {
+                    public ElasticSearchRepository call() {
+                        return new ElasticSearchRepository(entry.getValue(), client, bulkSize);
+                    }
+                }));
+            }
+            for (Map.Entry<String, Future<ElasticSearchRepository>> entry : futures.entrySet()) {
+                repos.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FatalBeanException("Interrupted while creating ElasticSearchRepository singletons", ex);
+        } catch (ExecutionException ex) {
+            throw new FatalBeanException("Unable to create ElasticSearchRepository", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return repos;
+    }
+
+    /**
+     * Read the managed classes under the scanPath packages from the build-time index.
+     *
+     * @return the classes by bean name, or <code>null</code> if there is no index on the classpath
+     */
+    private Map<String, Class<?>> getIndexedRepositoryManagedObjects() {
+        List<String> packages = new ArrayList<String>();
+        for (String path : scanPath.split(";")) {
+            path = path.trim();
+            if (path.indexOf('*') >= 0 || path.indexOf('$') >= 0) {
+                // patterns and placeholders are only understood by the scanner
+                return null;
+            }
+            packages.add(path.replace('/', '.'));
+        }
+
+        Enumeration<URL> resources;
+        try {
+            resources = classLoader.getResources(INDEX_RESOURCE);
+        } catch (IOException ex) {
+            LOGGER.warn("Unable to read " + INDEX_RESOURCE + ", scanning the classpath instead", ex);
+            return null;
+        }
+        if (!resources.hasMoreElements()) {
+            return null;
+        }
+
+        Map<String, Class<?>> managed = new HashMap<String, Class<?>>();
+        while (resources.hasMoreElements()) {
+            URL resource = resources.nextElement();
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), "UTF-8"));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        int separator = line.indexOf('=');
+                        if (line.startsWith("#") || separator < 0) {
+                            continue;
+                        }
+                        String className = line.substring(separator + 1).trim();
+                        if (!isInPackages(className, packages)) {
+                            continue;
+                        }
+                        try {
+                            managed.put(line.substring(0, separator).trim(), ClassUtils.forName(className, classLoader));
+                        } catch (ClassNotFoundException ex) {
+                            LOGGER.error("Unable to get class", ex);
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException ex) {
+                LOGGER.warn("Unable to read " + resource + ", scanning the classpath instead", ex);
+                return null;
+            }
+        }
+        return managed;
+    }
+
+    private static boolean isInPackages(String className, List<String> packages) {
+        for (String path : packages) {
+            if (path.length() == 0 || className.startsWith(path + ".")) {
+                return true;
+            }
         }
+        return false;
     }
     
     private Map<String, Class<?>> getRespositoryManagedObjects() {
@@ -1,17 +1,29 @@
 package org.elasticsearch.omg.support.springframework;
 
 import org.elasticsearch.client.Client;
+import org.elasticsearch.omg.support.SourceEncoding;
+import org.elasticsearch.omg.support.admission.AdmissionOptions;
+import org.elasticsearch.omg.support.hedge.HedgeOptions;
+import org.elasticsearch.omg.support.journal.WriteBehindJournal;
+import org.elasticsearch.omg.support.metrics.MetricsSink;
 import org.elasticsearch.omg.support.repository.ElasticSearchRepository;
+import org.elasticsearch.omg.support.slowlog.SlowOperationLog;
+import org.elasticsearch.omg.support.warmup.WarmupOptions;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Required;
 
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+
 /**
+ * Creates an ElasticSearchRepository and registers its metrics as MBeans.
  *
  * @author pchapman
  */
-public class ElasticSearchRepositoryFactory implements FactoryBean<ElasticSearchRepository>, InitializingBean {
+public class ElasticSearchRepositoryFactory implements FactoryBean<ElasticSearchRepository>, InitializingBean, DisposableBean {
 
     private Integer bulkSize;
     public Integer getBulkSize() {
@@ -40,6 +52,94 @@ public class ElasticSearchRepositoryFactory implements FactoryBean<ElasticSearch
         this.storedClassName = storedClassName;
     }
     
+    private boolean registerMBeans = true;
+    public boolean isRegisterMBeans() {
+        return registerMBeans;
+    }
+    public void setRegisterMBeans(boolean registerMBeans) {
+        this.registerMBeans = registerMBeans;
+    }
+
+    // The platform MBean server unless set
+    private MBeanServer mbeanServer;
+    public MBeanServer getMbeanServer() {
+        return mbeanServer;
+    }
+    public void setMbeanServer(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+    }
+
+    // Limits the reads and writes in flight, nothing is limited unless set
+    private AdmissionOptions admissionOptions;
+    public AdmissionOptions getAdmissionOptions() {
+        return admissionOptions;
+    }
+    public void setAdmissionOptions(AdmissionOptions admissionOptions) {
+        this.admissionOptions = admissionOptions;
+    }
+
+    // Hedges slow reads, reads aren't hedged unless set
+    private HedgeOptions hedgeOptions;
+    public HedgeOptions getHedgeOptions() {
+        return hedgeOptions;
+    }
+    public void setHedgeOptions(HedgeOptions hedgeOptions) {
+        this.hedgeOptions = hedgeOptions;
+    }
+
+    // Journals writes to local disk and ships them in the background, writes go to the cluster unless set. Declare
+    // the journal with init-method "open" and destroy-method "close"
+    private WriteBehindJournal writeBehindJournal;
+    public WriteBehindJournal getWriteBehindJournal() {
+        return writeBehindJournal;
+    }
+    public void setWriteBehindJournal(WriteBehindJournal writeBehindJournal) {
+        this.writeBehindJournal = writeBehindJournal;
+    }
+
+    // The format sources are written in, the one of the document annotation unless set
+    private SourceEncoding sourceEncoding;
+    public SourceEncoding getSourceEncoding() {
+        return sourceEncoding;
+    }
+    public void setSourceEncoding(SourceEncoding sourceEncoding) {
+        this.sourceEncoding = sourceEncoding;
+    }
+
+    // Binds one raw source in this many to the stored class before writing it, raw sources aren't checked unless set
+    private int rawValidationInterval;
+    public int getRawValidationInterval() {
+        return rawValidationInterval;
+    }
+    public void setRawValidationInterval(int rawValidationInterval) {
+        this.rawValidationInterval = rawValidationInterval;
+    }
+
+    // Warms the repository up before it is handed out, it starts cold unless set
+    private WarmupOptions warmupOptions;
+    public WarmupOptions getWarmupOptions() {
+        return warmupOptions;
+    }
+    public void setWarmupOptions(WarmupOptions warmupOptions) {
+        this.warmupOptions = warmupOptions;
+    }
+
+    private SlowOperationLog slowLog;
+    public SlowOperationLog getSlowLog() {
+        return slowLog;
+    }
+    public void setSlowLog(SlowOperationLog slowLog) {
+        this.slowLog = slowLog;
+    }
+
+    private MetricsSink metricsSink;
+    public MetricsSink getMetricsSink() {
+        return metricsSink;
+    }
+    public void setMetricsSink(MetricsSink metricsSink) {
+        this.metricsSink = metricsSink;
+    }
+
     private ElasticSearchRepository object;
     @Override
     public ElasticSearchRepository getObject() {
@@ -60,5 +160,29 @@ public class ElasticSearchRepositoryFactory implements FactoryBean<ElasticSearch
     public void afterPropertiesSet() throws Exception {
         Class clazz = Class.forName(storedClassName);
         object = new ElasticSearchRepository(clazz, client, bulkSize);
+        object.getMetrics().setSink(metricsSink);
+        object.setSlowLog(slowLog);
+        object.setHedgeOptions(hedgeOptions);
+        object.setWriteBehindJournal(writeBehindJournal);
+        if (sourceEncoding != null) {
+            object.setSourceEncoding(sourceEncoding);
+        }
+        object.setRawValidationInterval(rawValidationInterval);
+        if (admissionOptions != null) {
+            object.setAdmissionOptions(admissionOptions);
+        }
+        if (registerMBeans) {
+            object.getMetrics().registerMBeans(mbeanServer != null ? mbeanServer : ManagementFactory.getPlatformMBeanServer());
+        }
+        if (warmupOptions != null) {
+            object.warmUp(warmupOptions);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (object != null) {
+            object.getMetrics().unregisterMBeans();
+        }
     }
 }
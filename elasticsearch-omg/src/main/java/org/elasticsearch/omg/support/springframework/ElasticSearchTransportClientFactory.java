@@ -4,23 +4,43 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.omg.support.client.LatencyAwareClient;
+import org.elasticsearch.omg.support.client.NodeStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Factory Bean for creating a singleton {@link org.elasticsearch.client.transport.TransportClient} used with elastic search queries.
+ *
+ * With latencyAware set a {@link LatencyAwareClient} is created instead, which sends each request to one of the
+ * fastest healthy nodes.
  */
 public class ElasticSearchTransportClientFactory implements FactoryBean<Client>, InitializingBean, DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(ElasticSearchTransportClientFactory.class);
 
-    private TransportClient client;
+    private Client               client;
     private Map<String, Integer> addresses;
     private boolean              sniffCluster;
+    private boolean              latencyAware;
+    private Integer              connectionsPerNodeLow;
+    private Integer              connectionsPerNodeMed;
+    private Integer              connectionsPerNodeHigh;
+    private String               pingInterval = "5s";
+    private String               sniffInterval;
+    private String               nodeTimeout = "5s";
+    private double               latencyAlpha = 0.3;
+    private int                  failureThreshold = 3;
+    private boolean              compress;
 
     /**
      * {@inheritDoc}
@@ -37,7 +57,7 @@ public class ElasticSearchTransportClientFactory implements FactoryBean<Client>,
      * {@inheritDoc}
      */
     @Override
-    public TransportClient getObject() throws Exception {
+    public Client getObject() throws Exception {
         return client;
     }
 
@@ -46,7 +66,7 @@ public class ElasticSearchTransportClientFactory implements FactoryBean<Client>,
      */
     @Override
     public Class<?> getObjectType() {
-        return TransportClient.class;
+        return latencyAware ? LatencyAwareClient.class : TransportClient.class;
     }
 
     /**
@@ -62,22 +82,67 @@ public class ElasticSearchTransportClientFactory implements FactoryBean<Client>,
      */
     @Override
     public void afterPropertiesSet() throws Exception {
-        final TransportClient client = sniffCluster
-                ? new TransportClient(ImmutableSettings.settingsBuilder().put("client.transport.sniff", true))
-                : new TransportClient();
+        ImmutableSettings.Builder settings = ImmutableSettings.settingsBuilder();
+        if (connectionsPerNodeLow != null) {
+            settings.put("transport.connections_per_node.low", connectionsPerNodeLow);
+        }
+        if (connectionsPerNodeMed != null) {
+            settings.put("transport.connections_per_node.med", connectionsPerNodeMed);
+        }
+        if (connectionsPerNodeHigh != null) {
+            settings.put("transport.connections_per_node.high", connectionsPerNodeHigh);
+        }
+        if (sniffInterval != null) {
+            settings.put("client.transport.nodes_sampler_interval", sniffInterval);
+        }
+        if (nodeTimeout != null) {
+            settings.put("client.transport.ping_timeout", nodeTimeout);
+        }
+        if (compress) {
+            settings.put("transport.tcp.compress", true);
+        }
 
+        List<TransportAddress> transportAddresses = new ArrayList<TransportAddress>();
         if (addresses != null && addresses.size() > 0) {
             for (Map.Entry<String, Integer> address : addresses.entrySet()) {
                 if (logger.isInfoEnabled()) {
                     logger.info("Adding InetSocketTransportAddress. address: " + address.getKey() + " port: " + address.getValue());
                 }
-                client.addTransportAddress(new InetSocketTransportAddress(address.getKey(), address.getValue()));
+                transportAddresses.add(new InetSocketTransportAddress(address.getKey(), address.getValue()));
+            }
+        }
+
+        if (latencyAware) {
+            if (logger.isInfoEnabled()) {
+                logger.info("Creating latency aware client, ping interval: " + pingInterval + " node timeout: " + nodeTimeout);
             }
+            this.client = new LatencyAwareClient(settings.build(), transportAddresses, sniffCluster,
+                    TimeValue.parseTimeValue(pingInterval, TimeValue.timeValueSeconds(5)),
+                    TimeValue.parseTimeValue(nodeTimeout, TimeValue.timeValueSeconds(5)),
+                    latencyAlpha, failureThreshold);
+            return;
+        }
+
+        final TransportClient client = new TransportClient(settings.put("client.transport.sniff", sniffCluster));
+        for (TransportAddress address : transportAddresses) {
+            client.addTransportAddress(address);
         }
 
         this.client = client;
     }
 
+    /**
+     * What the client knows about each node, in latency aware mode.
+     *
+     * @return a snapshot per node, empty in the default mode
+     */
+    public List<NodeStats> getNodeStats() {
+        if (client instanceof LatencyAwareClient) {
+            return ((LatencyAwareClient) client).getNodeStats();
+        }
+        return Collections.emptyList();
+    }
+
     public void setAddresses(final Map<String, Integer> addresses) {
         this.addresses = addresses;
     }
@@ -85,4 +150,76 @@ public class ElasticSearchTransportClientFactory implements FactoryBean<Client>,
     public void setSniffCluster(boolean sniffCluster) {
         this.sniffCluster = sniffCluster;
     }
+
+    /**
+     * Send each request to one of the fastest healthy nodes, see {@link LatencyAwareClient}.
+     */
+    public void setLatencyAware(boolean latencyAware) {
+        this.latencyAware = latencyAware;
+    }
+
+    /**
+     * The connections opened to each node for recovery and bulk requests.
+     */
+    public void setConnectionsPerNodeLow(Integer connectionsPerNodeLow) {
+        this.connectionsPerNodeLow = connectionsPerNodeLow;
+    }
+
+    /**
+     * The connections opened to each node for regular requests.
+     */
+    public void setConnectionsPerNodeMed(Integer connectionsPerNodeMed) {
+        this.connectionsPerNodeMed = connectionsPerNodeMed;
+    }
+
+    /**
+     * The connections opened to each node for urgent requests, like publishing the cluster state.
+     */
+    public void setConnectionsPerNodeHigh(Integer connectionsPerNodeHigh) {
+        this.connectionsPerNodeHigh = connectionsPerNodeHigh;
+    }
+
+    /**
+     * How often the latency aware client pings the nodes, and sniffs the cluster when sniffing, e.g. <code>5s</code>.
+     */
+    public void setPingInterval(String pingInterval) {
+        this.pingInterval = pingInterval;
+    }
+
+    /**
+     * How often the transport client samples the connected nodes, and sniffs the cluster when sniffing.
+     */
+    public void setSniffInterval(String sniffInterval) {
+        this.sniffInterval = sniffInterval;
+    }
+
+    /**
+     * How long a ping waits for a node to answer before counting as a failure.
+     */
+    public void setNodeTimeout(String nodeTimeout) {
+        this.nodeTimeout = nodeTimeout;
+    }
+
+    /**
+     * The weight of the newest round trip in the latency average of a node, between 0 and 1.
+     */
+    public void setLatencyAlpha(double latencyAlpha) {
+        this.latencyAlpha = latencyAlpha;
+    }
+
+    /**
+     * The connection failures in a row after which the latency aware client stops sending requests to a node.
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Compress the requests the client sends, bulks included, with LZF. Worth it when the link to the cluster is
+     * the bottleneck rather than the CPU of the client; the nodes answer compressed when compression is on in
+     * their settings too.
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
 }
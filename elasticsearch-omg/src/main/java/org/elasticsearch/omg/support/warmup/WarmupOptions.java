@@ -0,0 +1,96 @@
+package org.elasticsearch.omg.support.warmup;
+
+import org.elasticsearch.omg.support.model.query.ComplexQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of a warm-up. The defaults run every registered query and a hundred serialization round trips of each
+ * sample document ten times for each document class.
+ *
+ * @author jereanon
+ */
+public class WarmupOptions {
+
+    private int iterations = 10;
+
+    private int roundTrips = 100;
+
+    private Map<Class<?>, List<ComplexQuery>> queries = new HashMap<Class<?>, List<ComplexQuery>>();
+
+    /**
+     * The number of times the queries and round trips of a document class are run.
+     *
+     * @return the iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    public WarmupOptions setIterations(int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * The number of times each sample document is serialized and deserialized per iteration. The samples are the
+     * first hits of a search for all documents, or a new instance of the class if there are none.
+     *
+     * @return the round trips
+     */
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    public WarmupOptions setRoundTrips(int roundTrips) {
+        this.roundTrips = roundTrips;
+        return this;
+    }
+
+    /**
+     * The representative queries of each document class, they should use the filters and sorts of production
+     * traffic so the caches they fill are the ones that traffic reads.
+     *
+     * @return the queries by document class
+     */
+    public Map<Class<?>, List<ComplexQuery>> getQueries() {
+        return queries;
+    }
+
+    public WarmupOptions setQueries(Map<Class<?>, List<ComplexQuery>> queries) {
+        this.queries = queries;
+        return this;
+    }
+
+    /**
+     * Register a representative query of a document class.
+     *
+     * @param clazz the document class
+     * @param query the query
+     * @return these options
+     */
+    public WarmupOptions addQuery(Class<?> clazz, ComplexQuery query) {
+        List<ComplexQuery> list = queries.get(clazz);
+        if (list == null) {
+            list = new ArrayList<ComplexQuery>();
+            queries.put(clazz, list);
+        }
+        list.add(query);
+        return this;
+    }
+
+    /**
+     * The queries registered for a document class.
+     *
+     * @param clazz the document class
+     * @return the queries, empty if there are none
+     */
+    public List<ComplexQuery> getQueries(Class<?> clazz) {
+        List<ComplexQuery> list = queries.get(clazz);
+        return list != null ? list : Collections.<ComplexQuery>emptyList();
+    }
+}
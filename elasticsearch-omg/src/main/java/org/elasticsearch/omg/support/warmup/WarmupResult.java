@@ -0,0 +1,93 @@
+package org.elasticsearch.omg.support.warmup;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summary of a {@link WarmupRunner} run, repositories are named <code>index/type</code>.
+ *
+ * @author jereanon
+ */
+public class WarmupResult {
+
+    private final Map<String, Long> warmed = new LinkedHashMap<String, Long>();
+
+    private final Map<String, Throwable> failed = new LinkedHashMap<String, Throwable>();
+
+    private long searches;
+
+    private long roundTrips;
+
+    private long tookMillis;
+
+    synchronized void addWarmed(String name, long tookMillis, long searches, long roundTrips) {
+        warmed.put(name, tookMillis);
+        this.searches += searches;
+        this.roundTrips += roundTrips;
+    }
+
+    synchronized void addFailed(String name, Throwable cause) {
+        failed.put(name, cause);
+    }
+
+    void setTookMillis(long tookMillis) {
+        this.tookMillis = tookMillis;
+    }
+
+    /**
+     * The repositories that were warmed up, with how long each took.
+     *
+     * @return the time in milliseconds by repository
+     */
+    public synchronized Map<String, Long> getWarmed() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(warmed));
+    }
+
+    /**
+     * The repositories whose warm-up failed, they are usable but cold.
+     *
+     * @return the failures by repository
+     */
+    public synchronized Map<String, Throwable> getFailed() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Throwable>(failed));
+    }
+
+    public synchronized boolean isSuccessful() {
+        return failed.isEmpty();
+    }
+
+    /**
+     * The number of searches run.
+     *
+     * @return the searches
+     */
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    /**
+     * The number of serialization round trips run.
+     *
+     * @return the round trips
+     */
+    public synchronized long getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * How long the warm-up took.
+     *
+     * @return the time in milliseconds
+     */
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "warm-up took "+tookMillis+" ms: "+warmed.size()+" warmed with "+searches+" searches and "
+                +roundTrips+" serialization round trips, "
+                +failed.size()+" failed"+(failed.isEmpty() ? "" : " "+failed.keySet());
+    }
+}
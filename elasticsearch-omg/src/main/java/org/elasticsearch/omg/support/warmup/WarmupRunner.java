@@ -0,0 +1,104 @@
+package org.elasticsearch.omg.support.warmup;
+
+import org.elasticsearch.omg.support.SourceEncoding;
+import org.elasticsearch.omg.support.model.query.ComplexQuery;
+import org.elasticsearch.omg.support.model.result.ElasticSearchResult;
+import org.elasticsearch.omg.support.repository.ElasticSearchRepository;
+import org.elasticsearch.omg.util.JSONUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Warms up repositories before they take traffic. Running the representative queries of each document class fills
+ * the filter caches and field data of the cluster, running them and serialization round trips of sample documents
+ * compiles the search and Jackson paths of this JVM. A failed warm-up leaves a repository usable, only cold.
+ *
+ * @author jereanon
+ */
+public class WarmupRunner {
+    private static final Logger logger = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private final WarmupOptions options;
+
+    public WarmupRunner(WarmupOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Warm up the repositories, one after the other.
+     *
+     * @param repositories the repositories
+     * @return which repositories were warmed up and how long it took
+     */
+    public WarmupResult warmUp(Collection<? extends ElasticSearchRepository<?>> repositories) {
+        long start = System.currentTimeMillis();
+        WarmupResult result = new WarmupResult();
+        for (ElasticSearchRepository<?> repository : repositories) {
+            String name = repository.getIndexName()+"/"+repository.getMetadata().getObjectType();
+            try {
+                warmUp(repository, name, result);
+            } catch (Exception e) {
+                logger.warn("Error warming up: "+name, e);
+                result.addFailed(name, e);
+            }
+        }
+        result.setTookMillis(System.currentTimeMillis() - start);
+        if (result.isSuccessful()) {
+            logger.info("{}", result);
+        } else {
+            logger.warn("{}", result);
+        }
+        return result;
+    }
+
+    private <T> void warmUp(ElasticSearchRepository<T> repository, String name, WarmupResult result) throws Exception {
+        long start = System.currentTimeMillis();
+        Class<T> clazz = repository.getMetadata().getDocumentClass();
+        SourceEncoding encoding = repository.getSourceEncoding();
+        List<ComplexQuery> queries = options.getQueries(clazz);
+        List<T> samples = getSamples(repository, clazz);
+        long searches = 1;
+        long roundTrips = 0;
+        for (int i = 0; i < options.getIterations(); i++) {
+            for (ComplexQuery query : queries) {
+                repository.executeSearch(query);
+                searches++;
+            }
+            for (int j = 0; j < options.getRoundTrips(); j++) {
+                for (T sample : samples) {
+                    byte[] source = JSONUtil.serializeToBytes(sample, encoding);
+                    JSONUtil.deserializeToObject(source, 0, source.length, clazz);
+                    roundTrips++;
+                }
+            }
+        }
+        long took = System.currentTimeMillis() - start;
+        logger.debug("Warmed up: "+name+" in "+took+" ms");
+        result.addWarmed(name, took, searches, roundTrips);
+    }
+
+    /**
+     * The first hits of a search for all documents, which warms the search path once more, or a new instance of the
+     * class if there are none.
+     */
+    private <T> List<T> getSamples(ElasticSearchRepository<T> repository, Class<T> clazz) {
+        List<T> samples = new ArrayList<T>();
+        for (ElasticSearchResult<T> hit : repository.executeSearch(new ComplexQuery()).getResults()) {
+            if (hit.getResult() != null) {
+                samples.add(hit.getResult());
+            }
+        }
+        if (samples.isEmpty()) {
+            try {
+                samples.add(clazz.newInstance());
+            } catch (Exception e) {
+                logger.debug("No sample of: "+clazz.getName()+" to serialize", e);
+            }
+        }
+        return samples;
+    }
+}
@@ -2,24 +2,21 @@ package org.elasticsearch.omg.util;
 
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.ObjectNode;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.omg.ElasticSearchOMGException;
 import org.elasticsearch.omg.support.*;
-import org.elasticsearch.omg.support.index.IndexNameStrategy;
+import org.elasticsearch.omg.support.metadata.DocumentMetadataRegistry;
 import org.elasticsearch.omg.support.model.mapping.Mapping;
 import org.elasticsearch.omg.support.model.mapping.MappingProperty;
-import org.springframework.beans.BeanUtils;
-import org.springframework.core.annotation.AnnotationUtils;
 
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 
 /**
  * Utilities related to creating an elastic search mapping.
@@ -29,38 +26,24 @@ import java.util.WeakHashMap;
 public class ElasticSearchMappingUtil {
     
     /**
-     * Create a JSON string representation of a {@link Mapping} for a specific type.
+     * Create a JSON string representation of a {@link Mapping} for a specific type. The mapping is rendered once
+     * per class, or at build time if the class has generated metadata.
      * @param clazz the class
      * @return the json string
      * @throws Exception on error
      */
     public static String createJSONStringForType(Class clazz)
             throws Exception {
-        Mapping mapping = createMappingForType(clazz);
-        return getJSONStringFromMapping(mapping);
+        return DocumentMetadataRegistry.forClass(clazz).getMappingJSON();
     }
 
     /**
      * Create a {@link Mapping} from the given class.
      * @param clazz the class to create a mapping for
-     * @return the mapping
+     * @return the mapping, shared with the {@link DocumentMetadataRegistry} and not to be modified
      */
     public static Mapping createMappingForType(Class clazz) {
-        Mapping mapping = new Mapping();
-        // grab the ElasticSearchDocument annotation, if it exists, otherwise use the simple name
-        String objectType = getObjectType(clazz);
-        mapping.setMappingName(objectType);
-
-        // loop over each property and create the proper mapping
-        PropertyDescriptor[] descriptors = BeanUtils.getPropertyDescriptors(clazz);
-        for (PropertyDescriptor des : descriptors) {
-            MappingProperty prop = createMappingPropertyFromPropertyDescriptor(des);
-            if (prop!=null) {
-                mapping.getProperties().add(prop);
-            }
-        }
-
-        return mapping;
+        return DocumentMetadataRegistry.forClass(clazz).getMapping();
     }
 
     /**
@@ -128,6 +111,12 @@ public class ElasticSearchMappingUtil {
 
         // handle an explicit ElasticSearchProperty being set
         property.setType(esProp.type().getElasticSearchMappingPropertyType());
+        // handle a field kept in the source only
+        if (!esProp.indexed()) {
+            property.setIndex("no");
+            setFieldOptions(property, esProp, true);
+            return property;
+        }
         // handle a multi_field situation
         if (esProp.filterable() && esProp.freeTextSearchable()) {
             property.setType(ElasticSearchPropertyType.MULTI_FIELD.getElasticSearchMappingPropertyType());
@@ -135,10 +124,13 @@ public class ElasticSearchMappingUtil {
             notAnalyzedProperty.setType(esProp.type().getElasticSearchMappingPropertyType());
             notAnalyzedProperty.setIndex("not_analyzed"); // TODO: make better
             notAnalyzedProperty.setName(descriptor.getName());
+            setFieldOptions(notAnalyzedProperty, esProp, true);
             MappingProperty queryableProperty = new MappingProperty();
             queryableProperty.setType(esProp.type().getElasticSearchMappingPropertyType());
             queryableProperty.setIndex("analyzed"); // TODO: make better
             queryableProperty.setName("queryable");
+            // the value is stored once, under the field name
+            setFieldOptions(queryableProperty, esProp, false);
             List<MappingProperty> properties = new ArrayList<MappingProperty>(2);
             properties.add(notAnalyzedProperty);
             properties.add(queryableProperty);
@@ -147,18 +139,43 @@ public class ElasticSearchMappingUtil {
         } else if (esProp.filterable()) {
             property.setType(esProp.type().getElasticSearchMappingPropertyType());
             property.setIndex("not_analyzed"); // TODO: make better
+            setFieldOptions(property, esProp, true);
             return property;
         } else if (esProp.freeTextSearchable()) {
             property.setType(esProp.type().getElasticSearchMappingPropertyType());
             property.setIndex("analyzed"); // TODO: make better
+            setFieldOptions(property, esProp, true);
             return property;
         }
 
         // no ElasticSearchProperty present
         property.setIndex("not_analyzed"); // TODO: make better
+        setFieldOptions(property, esProp, true);
         return property;
     }
 
+    /**
+     * Set the options of an {@link ElasticSearchProperty} that differ from the elastic search defaults, the others
+     * are left out of the mapping.
+     */
+    private static void setFieldOptions(MappingProperty property, ElasticSearchProperty esProp, boolean store) {
+        if (store && esProp.store()) {
+            property.setStore(true);
+        }
+        if (!esProp.includeInAll()) {
+            property.setIncludeInAll(false);
+        }
+        if (esProp.omitNorms()) {
+            property.setOmitNorms(true);
+        }
+        if (esProp.omitTermFreqAndPositions()) {
+            property.setOmitTermFreqAndPositions(true);
+        }
+        if (esProp.termVector() != ElasticSearchTermVector.NO) {
+            property.setTermVector(esProp.termVector().getElasticSearchTermVector());
+        }
+    }
+
     /**
      * Return the JSON String representation of an elastic search mapping.
      * @param m the mapping to convert
@@ -170,6 +187,41 @@ public class ElasticSearchMappingUtil {
         ObjectNode retMapping = mapper.createObjectNode();
         ObjectNode mapping = retMapping.putObject(m.getMappingName());
 
+        // fields not in the mapping
+        if (!m.isDynamic()) {
+            mapping.put("dynamic", false);
+        }
+
+        // the _all field
+        if (!m.isAllEnabled()) {
+            mapping.putObject("_all").put("enabled", false);
+        }
+
+        // source compression and filtering
+        boolean filterSource = (m.getSourceIncludes() != null && !m.getSourceIncludes().isEmpty())
+                || (m.getSourceExcludes() != null && !m.getSourceExcludes().isEmpty());
+        if (m.isCompressSource() || filterSource) {
+            ObjectNode source = mapping.putObject("_source");
+            if (m.isCompressSource()) {
+                source.put("compress", true);
+                if (StringUtils.isNotEmpty(m.getCompressThreshold())) {
+                    source.put("compress_threshold", m.getCompressThreshold());
+                }
+            }
+            if (m.getSourceIncludes() != null && !m.getSourceIncludes().isEmpty()) {
+                ArrayNode includes = source.putArray("includes");
+                for (String include : m.getSourceIncludes()) {
+                    includes.add(include);
+                }
+            }
+            if (m.getSourceExcludes() != null && !m.getSourceExcludes().isEmpty()) {
+                ArrayNode excludes = source.putArray("excludes");
+                for (String exclude : m.getSourceExcludes()) {
+                    excludes.add(exclude);
+                }
+            }
+        }
+
         // exit early if there are no properties to work with
         if (m.getProperties()==null || m.getProperties().isEmpty()) {
             return retMapping.toString();
@@ -201,6 +253,23 @@ public class ElasticSearchMappingUtil {
             node.put("type", prop.getType());
         }
 
+        // handle the field options, only set when they differ from the defaults
+        if (prop.getStore() != null) {
+            node.put("store", prop.getStore());
+        }
+        if (prop.getIncludeInAll() != null) {
+            node.put("include_in_all", prop.getIncludeInAll());
+        }
+        if (prop.getOmitNorms() != null) {
+            node.put("omit_norms", prop.getOmitNorms());
+        }
+        if (prop.getOmitTermFreqAndPositions() != null) {
+            node.put("omit_term_freq_and_positions", prop.getOmitTermFreqAndPositions());
+        }
+        if (StringUtils.isNotEmpty(prop.getTermVector())) {
+            node.put("term_vector", prop.getTermVector());
+        }
+
         // handle multi-field properties properly
         if (StringUtils.isNotEmpty(prop.getType()) && prop.getType().equalsIgnoreCase("multi_field")) {
             if (prop.getFields()!=null && !prop.getFields().isEmpty()) {
@@ -229,31 +298,19 @@ public class ElasticSearchMappingUtil {
      * @return the object type
      */
     public static String getObjectType(Class clazz) {
-        ElasticSearchDocument doc = AnnotationUtils.findAnnotation(clazz, ElasticSearchDocument.class);
-        return doc!=null
-                ? doc.typeName()
-                : clazz.getSimpleName();
+        return DocumentMetadataRegistry.forClass(clazz).getObjectType();
     }
 
     /**
-     * Return the id of a given object.
+     * Return the id of a given object, read through the accessor annotated with {@link ElasticSearchDocumentId}.
      *
      * @param object the object
-     * @return the id for the object
+     * @return the id for the object, or <code>null</code> if elastic search should generate it
+     * @throws ElasticSearchOMGException on error invoking the accessor
      */
     @Nullable
-    public static String getId(Object object) {
-        for (Method method : object.getClass().getMethods()) {
-            ElasticSearchDocumentId docId = AnnotationUtils.findAnnotation(method, ElasticSearchDocumentId.class);
-            if (docId!=null) {
-                if (docId.autoGenerate()) {
-                    return null;
-                }
-
-                // TODO: return the invocation of the get method for the assocated property descriptor?
-            }
-        }
-        return null;
+    public static String getId(Object object) throws ElasticSearchOMGException {
+        return DocumentMetadataRegistry.forObject(object).getId(object);
     }
     
     /**
@@ -270,40 +327,100 @@ public class ElasticSearchMappingUtil {
      * Returns the name of the index as provided in the document annotation.
      * 
      * @return The name of the index to store the object into.
+     * @throws ElasticSearchOMGException if the class isn't annotated with {@link ElasticSearchIndex}
      */
-    public static String getIndexName(Class<?> clazz) {
-        ElasticSearchIndex index = AnnotationUtils.findAnnotation(clazz, ElasticSearchIndex.class);
-        IndexNameStrategy strategy = getIndexNameStrategy(index.strategy());
-        return strategy.indexFor(clazz);
+    public static String getIndexName(Class<?> clazz) throws ElasticSearchOMGException {
+        String indexName = DocumentMetadataRegistry.forClass(clazz).getIndexName();
+        if (indexName == null) {
+            throw new ElasticSearchOMGException("No ElasticSearchIndex annotation found on class " + clazz.getName());
+        }
+        return indexName;
     }
-    
+
     /**
-     * Returns an IndexNameStrategy instance based on fully qualified class name.
-     * The instance is lazily instantiated and then held in cache.
-     * 
-     * @throws ElasticSearchOMGException Indicates an error instantiating the
-     *                                   strategy.
+     * Check whether a mapping already in elastic search holds everything a mapping would put, so putting it again
+     * would change nothing. Elastic search adds defaults of its own to the mappings it keeps, so only the settings
+     * of the mapping to put are compared.
+     *
+     * @param mappingJSON the mapping that would be put, as from {@link #createJSONStringForType(Class)}
+     * @param objectType  the object type of the mapping
+     * @param currentJSON the mapping in elastic search, <code>null</code> if there is none
+     * @return true if putting the mapping would change nothing
+     * @throws ElasticSearchOMGException if a mapping can't be parsed
      */
-    private static IndexNameStrategy getIndexNameStrategy(String strategyClassName)
-            throws ElasticSearchOMGException
-    {
-        IndexNameStrategy strategy = indexNameStrategies.get(strategyClassName);
-        if (strategy == null) {
-            try {
-                Class<IndexNameStrategy> clazz = (Class<IndexNameStrategy>)ElasticSearchMappingUtil.class.getClassLoader().loadClass(strategyClassName);
-                strategy = clazz.newInstance();
-            } catch (Exception e) {
-                throw new ElasticSearchOMGException("Unable to load index name strategy instance for " + strategyClassName, e);
+    public static boolean isMappingApplied(String mappingJSON, String objectType, @Nullable String currentJSON)
+            throws ElasticSearchOMGException {
+        if (currentJSON == null) {
+            return false;
+        }
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            Map<String, Object> mapping = unwrapType(mapper.readValue(mappingJSON, Map.class), objectType);
+            Map<String, Object> current = unwrapType(mapper.readValue(currentJSON, Map.class), objectType);
+            return containsMapping(current, mapping);
+        } catch (ElasticSearchOMGException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ElasticSearchOMGException("Error comparing mappings of type: " + objectType, e);
+        }
+    }
+
+    private static Map<String, Object> unwrapType(Map<String, Object> mapping, String objectType) {
+        if (mapping.size() == 1 && mapping.get(objectType) instanceof Map) {
+            return (Map<String, Object>) mapping.get(objectType);
+        }
+        return mapping;
+    }
+
+    private static boolean containsMapping(Map<String, Object> current, Map<String, Object> mapping) {
+        for (Map.Entry<String, Object> entry : mapping.entrySet()) {
+            Object value = current.get(entry.getKey());
+            if (entry.getValue() instanceof Map) {
+                if (!(value instanceof Map) || !containsMapping((Map<String, Object>) value, (Map<String, Object>) entry.getValue())) {
+                    return false;
+                }
+            } else if (value == null) {
+                if (!isMappingDefault(entry.getKey(), normalizeMappingValue(entry.getValue()), mapping.get("type"))) {
+                    return false;
+                }
+            } else if (!normalizeMappingValue(value).equals(normalizeMappingValue(entry.getValue()))) {
+                return false;
             }
-            indexNameStrategies.put(strategyClassName, strategy);
         }
-        return strategy;
+        return true;
     }
-    
+
     /**
-     * A weakly held map of instances of IndexNameStrategy by fully qualified
-     * class name.
+     * Elastic search leaves settings at their default out of the mappings it keeps.
      */
-    private static final Map<String, IndexNameStrategy> indexNameStrategies
-            = new WeakHashMap<String, IndexNameStrategy>();
+    private static boolean isMappingDefault(String key, String value, Object type) {
+        if ("index".equals(key)) {
+            // strings are analyzed by default, the other core types aren't analyzed
+            boolean string = type == null || "string".equals(type);
+            return value.equals(string ? "analyzed" : "not_analyzed");
+        } else if ("store".equals(key)) {
+            return value.equals("false");
+        } else if ("include_in_all".equals(key)) {
+            return value.equals("true");
+        } else if ("omit_norms".equals(key) || "omit_term_freq_and_positions".equals(key)) {
+            return value.equals("false");
+        } else if ("term_vector".equals(key)) {
+            // normalized from no
+            return value.equals("false");
+        } else if ("dynamic".equals(key)) {
+            return value.equals("true");
+        }
+        return false;
+    }
+
+    private static String normalizeMappingValue(Object value) {
+        // elastic search accepts yes/no for booleans and echoes them back either way
+        String normalized = String.valueOf(value);
+        if ("yes".equals(normalized)) {
+            return "true";
+        } else if ("no".equals(normalized)) {
+            return "false";
+        }
+        return normalized;
+    }
 }
@@ -1,34 +1,55 @@
 package org.elasticsearch.omg.util;
 
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.smile.SmileFactory;
 import org.elasticsearch.omg.ElasticSearchOMGException;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.elasticsearch.omg.support.SourceEncoding;
+import org.elasticsearch.omg.support.metadata.DocumentMetadataRegistry;
+import org.elasticsearch.omg.support.metadata.GeneratedDocumentCodec;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 /**
  * Various utilities for JSON stuffs.
  */
 public final class JSONUtil {
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     private static ObjectMapper mapper = new ObjectMapper();
 
+    private static ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+    static {
+        // generated codecs read nested values through the codec of the parser
+        smileMapper.getJsonFactory().setCodec(smileMapper);
+    }
+
     /**
-     * Serialize an object to string.
+     * Serialize an object to string. The codec generated at build time is used if the object's class has one.
      * 
      * @param object the object
      * @return the String representation
      * @throws ElasticSearchOMGException on error
      */
     public static String serializeToString(Object object) throws ElasticSearchOMGException {
+        SerializationBuffer buffer = SerializationBuffer.acquire();
         try {
-            return mapper.writeValueAsString(object);
-        } catch (IOException e) {
-            throw new ElasticSearchOMGException("Error serializing object: " + object, e);
+            int offset = serialize(object, SourceEncoding.JSON, buffer);
+            return new String(buffer.bytes(), offset, buffer.size() - offset, UTF8);
+        } finally {
+            buffer.release();
         }
     }
 
     /**
-     * Deserializes a JSON string to the specified object type
+     * Deserializes a JSON string to the specified object type. The codec generated at build time is used if the
+     * class has one.
      *
      * @param json the string to deserialize
      * @param klass the object type to use
@@ -37,9 +58,180 @@ public final class JSONUtil {
      */
     public static <T> T deserializeToObject(String json, Class<T> klass) throws ElasticSearchOMGException {
         try {
-            return mapper.readValue(json, klass);
+            GeneratedDocumentCodec<T> codec = DocumentMetadataRegistry.forClass(klass).getCodec();
+            if (codec == null) {
+                return mapper.readValue(json, klass);
+            }
+            JsonParser parser = mapper.getJsonFactory().createJsonParser(json);
+            try {
+                return codec.deserialize(parser);
+            } finally {
+                parser.close();
+            }
         } catch (IOException e) {
             throw new ElasticSearchOMGException("Error deserializing JSON string to object of type: " + klass, e);
         }
     }
+
+    /**
+     * Serialize an object to the bytes of a document source, in JSON or SMILE. The codec generated at build time is
+     * used if the object's class has one.
+     *
+     * @param object   the object
+     * @param encoding the format
+     * @return the source bytes
+     * @throws ElasticSearchOMGException on error
+     */
+    public static byte[] serializeToBytes(Object object, SourceEncoding encoding) throws ElasticSearchOMGException {
+        SerializationBuffer buffer = SerializationBuffer.acquire();
+        try {
+            return buffer.copyOf(serialize(object, encoding, buffer));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Serialize an object as a document source, in JSON or SMILE, to a stream. The codec generated at build time is
+     * used if the object's class has one.
+     *
+     * @param object   the object
+     * @param encoding the format
+     * @param out      where the source is written, left open
+     * @throws ElasticSearchOMGException on error
+     */
+    public static void serialize(Object object, SourceEncoding encoding, OutputStream out)
+            throws ElasticSearchOMGException {
+        ObjectMapper objectMapper = encoding == SourceEncoding.SMILE ? smileMapper : mapper;
+        try {
+            JsonGenerator generator = objectMapper.getJsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try {
+                write(object, objectMapper, generator);
+            } finally {
+                generator.close();
+            }
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Error serializing object: " + object, e);
+        }
+    }
+
+    /**
+     * Append an object as a document source, in JSON or SMILE, to a {@link SerializationBuffer}, without allocating
+     * a buffer of its own. JSON sources are written by a generator kept with the buffer; a SMILE generator writes
+     * its header once, so each SMILE source gets its own, whose buffers Jackson recycles per thread.
+     *
+     * @param object   the object
+     * @param encoding the format
+     * @param buffer   the buffer the source is appended to
+     * @return the offset of the source in the buffer, it runs to the end
+     * @throws ElasticSearchOMGException on error
+     */
+    public static int serialize(Object object, SourceEncoding encoding, SerializationBuffer buffer)
+            throws ElasticSearchOMGException {
+        int offset = buffer.size();
+        if (encoding == SourceEncoding.SMILE) {
+            serialize(object, encoding, (OutputStream) buffer);
+            return offset;
+        }
+        JsonGenerator generator = buffer.jsonGenerator;
+        buffer.jsonGenerator = null;
+        try {
+            if (generator == null) {
+                generator = mapper.getJsonFactory().createJsonGenerator(buffer, JsonEncoding.UTF8);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            }
+            write(object, mapper, generator);
+            generator.flush();
+        } catch (IOException e) {
+            // the generator is left mid document, it isn't kept
+            throw new ElasticSearchOMGException("Error serializing object: " + object, e);
+        }
+        buffer.jsonGenerator = generator;
+        // the generator separates the values it writes with a space
+        if (offset < buffer.size() && buffer.bytes()[offset] == ' ') {
+            offset++;
+        }
+        return offset;
+    }
+
+    private static void write(Object object, ObjectMapper objectMapper, JsonGenerator generator) throws IOException {
+        GeneratedDocumentCodec<Object> codec = object != null
+                ? DocumentMetadataRegistry.forObject(object).getCodec()
+                : null;
+        if (codec == null) {
+            objectMapper.writeValue(generator, object);
+        } else {
+            codec.serialize(object, generator);
+        }
+    }
+
+    /**
+     * Deserializes the bytes of a document source, as returned by gets and searches, to the specified object type.
+     * SMILE sources are told apart from JSON by their header. The codec generated at build time is used if the
+     * class has one.
+     *
+     * @param source the bytes holding the source
+     * @param offset the offset of the source in the bytes
+     * @param length the length of the source
+     * @param klass  the object type to use
+     * @return the object
+     * @throws ElasticSearchOMGException on error
+     */
+    public static <T> T deserializeToObject(byte[] source, int offset, int length, Class<T> klass)
+            throws ElasticSearchOMGException {
+        ObjectMapper objectMapper = isSmile(source, offset, length) ? smileMapper : mapper;
+        try {
+            GeneratedDocumentCodec<T> codec = DocumentMetadataRegistry.forClass(klass).getCodec();
+            JsonParser parser = objectMapper.getJsonFactory().createJsonParser(source, offset, length);
+            try {
+                if (codec == null) {
+                    return objectMapper.readValue(parser, klass);
+                }
+                return codec.deserialize(parser);
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Error deserializing source to object of type: " + klass, e);
+        }
+    }
+
+    /**
+     * Write the bytes of a document source as JSON, transcoding a SMILE source without binding it to an object.
+     *
+     * @param source the bytes holding the source
+     * @param offset the offset of the source in the bytes
+     * @param length the length of the source
+     * @param out    where the JSON is written, left open
+     * @throws ElasticSearchOMGException on error
+     */
+    public static void writeSourceAsJSON(byte[] source, int offset, int length, OutputStream out)
+            throws ElasticSearchOMGException {
+        try {
+            if (!isSmile(source, offset, length)) {
+                out.write(source, offset, length);
+                return;
+            }
+            JsonParser parser = smileMapper.getJsonFactory().createJsonParser(source, offset, length);
+            JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
+            try {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            } finally {
+                generator.close();
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new ElasticSearchOMGException("Error transcoding source to JSON", e);
+        }
+    }
+
+    /**
+     * Whether source bytes are SMILE, which starts with the <code>:)\n</code> header.
+     */
+    public static boolean isSmile(byte[] source, int offset, int length) {
+        return length >= 3 && source[offset] == ':' && source[offset + 1] == ')' && source[offset + 2] == '\n';
+    }
 }
@@ -0,0 +1,75 @@
+package org.elasticsearch.omg.util;
+
+import org.elasticsearch.omg.ElasticSearchOMGException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces callers to a maximum rate of permits (documents, bytes, ...) per second. Permits are handed out in the order
+ * they are asked for, a caller taking a large batch makes the next caller wait for it.
+ *
+ * @author jereanon
+ */
+public final class RateLimiter {
+
+    private volatile double permitsPerSecond;
+
+    private long nextFreeNanos = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond the maximum rate, zero or less for no limit
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    /**
+     * Blocks until the permits can be taken without going over the rate.
+     *
+     * @param permits the number of permits to take
+     * @throws ElasticSearchOMGException if interrupted while waiting
+     */
+    public void acquire(long permits) throws ElasticSearchOMGException {
+        long waitNanos = reserve(permits);
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchOMGException("Interrupted while waiting for "+permits+" permits", e);
+        }
+    }
+
+    private synchronized long reserve(long permits) {
+        double rate = permitsPerSecond;
+        long now = System.nanoTime();
+        if (rate <= 0) {
+            nextFreeNanos = now;
+            return 0;
+        }
+        // don't let an idle period build up a burst
+        long start = Math.max(nextFreeNanos, now);
+        nextFreeNanos = start + (long) (permits * TimeUnit.SECONDS.toNanos(1) / rate);
+        return start - now;
+    }
+
+    /**
+     * The maximum rate, zero or less for no limit.
+     *
+     * @return the rate
+     */
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Change the maximum rate, taking effect for the next caller.
+     *
+     * @param permitsPerSecond the rate, zero or less for no limit
+     */
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+}
@@ -0,0 +1,117 @@
+package org.elasticsearch.omg.util;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer documents are serialized into, kept per thread and reused from one serialization to the
+ * next. Sources are appended one after the other, a bulk of them can share the buffer. Once released a buffer grown
+ * beyond the retention limit is dropped, so a huge document doesn't keep its memory pinned to the thread. The JSON
+ * generator writing to the buffer is kept along with it.
+ *
+ * @author jereanon
+ */
+public final class SerializationBuffer extends OutputStream {
+
+    /**
+     * The largest buffer kept by a thread by default.
+     */
+    public static final int DEFAULT_MAX_RETAINED_BYTES = 1024 * 1024;
+
+    private static final int INITIAL_SIZE = 4096;
+
+    private static final ThreadLocal<SerializationBuffer> BUFFERS = new ThreadLocal<SerializationBuffer>();
+
+    private byte[] bytes = new byte[INITIAL_SIZE];
+
+    private int size;
+
+    private boolean acquired;
+
+    /**
+     * The JSON generator writing to this buffer, reused from one source to the next by {@link JSONUtil}.
+     */
+    JsonGenerator jsonGenerator;
+
+    private SerializationBuffer() {
+    }
+
+    /**
+     * The buffer of the calling thread, empty. While it is acquired, serializing from within a serialization gets a
+     * buffer of its own instead.
+     *
+     * @return the buffer, to release once its bytes are no longer read
+     */
+    public static SerializationBuffer acquire() {
+        SerializationBuffer buffer = BUFFERS.get();
+        if (buffer == null) {
+            buffer = new SerializationBuffer();
+            BUFFERS.set(buffer);
+        } else if (buffer.acquired) {
+            buffer = new SerializationBuffer();
+        }
+        buffer.acquired = true;
+        buffer.size = 0;
+        return buffer;
+    }
+
+    /**
+     * Hand the buffer back to its thread, dropping it if it grew beyond the retention limit.
+     *
+     * @param maxRetainedBytes the largest buffer the thread keeps
+     */
+    public void release(int maxRetainedBytes) {
+        acquired = false;
+        size = 0;
+        if (bytes.length > maxRetainedBytes) {
+            bytes = new byte[INITIAL_SIZE];
+        }
+    }
+
+    /**
+     * Hand the buffer back to its thread, keeping up to {@link #DEFAULT_MAX_RETAINED_BYTES}.
+     */
+    public void release() {
+        release(DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    /**
+     * The array holding the bytes written. Growing replaces it, an array handed out before holds the bytes written
+     * until then and is never written again.
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A copy of the bytes written from an offset.
+     */
+    public byte[] copyOf(int offset) {
+        return Arrays.copyOfRange(bytes, offset, size);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, bytes, size, len);
+        size += len;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (size + needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + needed));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.elasticsearch.omg.support.index;
+
+import org.elasticsearch.omg.support.ElasticSearchIndex;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The partitions documents are written to, in ISO weeks across year boundaries, and the existing indices picked as
+ * partitions of a period.
+ *
+ * @author jereanon
+ */
+public class RollingIndexNameStrategyTest {
+
+    @Test
+    public void testWeekStartsOnMondayOfPreviousYear() throws Exception {
+        WeeklyIndexNameStrategy strategy = new WeeklyIndexNameStrategy();
+        // a Tuesday, ISO week 1 of 2013
+        assertEquals("events-2012.12.31", strategy.indexFor(new Event("2013-01-01 00:00:00")));
+        // a Friday, ISO week 53 of 2015
+        assertEquals("events-2015.12.28", strategy.indexFor(new Event("2016-01-01 12:00:00")));
+        // a Sunday, the last day of ISO week 52 of 2011
+        assertEquals("events-2011.12.26", strategy.indexFor(new Event("2012-01-01 23:59:59")));
+        // a Monday, the first day of ISO week 1 of 2013
+        assertEquals("events-2012.12.31", strategy.indexFor(new Event("2012-12-31 00:00:00")));
+        // the Sunday before it is still in the last week of 2012
+        assertEquals("events-2012.12.24", strategy.indexFor(new Event("2012-12-30 23:59:59")));
+    }
+
+    @Test
+    public void testWeeksOverlappingRangeAcrossYears() throws Exception {
+        WeeklyIndexNameStrategy strategy = new WeeklyIndexNameStrategy();
+        String[] indices = strategy.indicesFor(Event.class, utc("2013-01-06 00:00:00"), utc("2013-01-07 00:00:00"),
+                Arrays.asList("events-2012.12.24", "events-2012.12.31", "events-2013.01.07", "events-2013.01.14"));
+        assertArrayEquals(new String[] {"events-2012.12.31", "events-2013.01.07"}, indices);
+    }
+
+    @Test
+    public void testWeeksOnlyStartOnMonday() throws Exception {
+        WeeklyIndexNameStrategy strategy = new WeeklyIndexNameStrategy();
+        String[] indices = strategy.indicesFor(Event.class, null, null,
+                Arrays.asList("events-2012.12.31", "events-2013.01.01", "events-2013.01.06"));
+        assertArrayEquals(new String[] {"events-2012.12.31"}, indices);
+    }
+
+    @Test
+    public void testOnlyExactPeriodNamesArePartitions() throws Exception {
+        DailyIndexNameStrategy strategy = new DailyIndexNameStrategy();
+        String[] indices = strategy.indicesFor(Event.class, null, null, Arrays.asList(
+                "events-2012.05.01",
+                "events-2012.5.01",
+                "events-2012.05.1",
+                "events-2012.13.01",
+                "events-2012.02.30",
+                "events-2012.05.01-old",
+                "events-archive",
+                "events",
+                "eventsx-2012.05.01",
+                "other-2012.05.01"));
+        assertArrayEquals(new String[] {"events-2012.05.01"}, indices);
+    }
+
+    @Test
+    public void testDaysOverlappingRange() throws Exception {
+        DailyIndexNameStrategy strategy = new DailyIndexNameStrategy();
+        String[] indices = strategy.indicesFor(Event.class, utc("2012-12-31 23:00:00"), utc("2013-01-01 00:00:00"),
+                Arrays.asList("events-2012.12.30", "events-2012.12.31", "events-2013.01.01", "events-2013.01.02"));
+        assertArrayEquals(new String[] {"events-2012.12.31", "events-2013.01.01"}, indices);
+    }
+
+    @Test
+    public void testMonthsAcrossYear() throws Exception {
+        MonthlyIndexNameStrategy strategy = new MonthlyIndexNameStrategy();
+        assertEquals("events-2012.12", strategy.indexFor(new Event("2012-12-31 23:59:59")));
+        assertEquals("events-2013.01", strategy.indexFor(new Event("2013-01-01 00:00:00")));
+        String[] indices = strategy.indicesFor(Event.class, utc("2012-12-15 00:00:00"), utc("2013-01-15 00:00:00"),
+                Arrays.asList("events-2012.11", "events-2012.12", "events-2013.01", "events-2013.02", "events-2013.1"));
+        assertArrayEquals(new String[] {"events-2012.12", "events-2013.01"}, indices);
+    }
+
+    private static Date utc(String timestamp) throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.parse(timestamp);
+    }
+
+    @ElasticSearchIndex(name = "events", timestampProperty = "posted")
+    public static class Event {
+
+        private final Date posted;
+
+        Event(String posted) throws ParseException {
+            this.posted = utc(posted);
+        }
+
+        public Date getPosted() {
+            return posted;
+        }
+    }
+}
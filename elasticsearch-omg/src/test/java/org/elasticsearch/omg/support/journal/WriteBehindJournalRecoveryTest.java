@@ -0,0 +1,154 @@
+package org.elasticsearch.omg.support.journal;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reopening a journal whose last records were lost in a crash, with a checkpoint that is past them.
+ *
+ * @author jereanon
+ */
+public class WriteBehindJournalRecoveryTest {
+
+    private static final String INDEX = "journal-recovery-test";
+
+    private File directory;
+
+    private File dataDirectory;
+
+    private Node node;
+
+    private Client client;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryDirectory("journal");
+        dataDirectory = temporaryDirectory("data");
+        node = NodeBuilder.nodeBuilder().local(true).settings(ImmutableSettings.settingsBuilder()
+                .put("path.data", dataDirectory.getPath())
+                .put("gateway.type", "none")).node();
+        client = node.client();
+        client.admin().cluster().prepareHealth().setWaitForYellowStatus().execute().actionGet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        node.close();
+        delete(directory);
+        delete(dataDirectory);
+    }
+
+    @Test
+    public void testShipsAfterCheckpointPastTornRecord() throws Exception {
+        int end = writeSegment(0, 3);
+        tearLastRecord(segmentFile(0), end);
+        writeCheckpoint(0, end);
+
+        WriteBehindJournal journal = new WriteBehindJournal(client, directory);
+        journal.setSegmentSize(64 * 1024);
+        journal.setFlushIntervalMillis(10);
+        journal.open();
+        try {
+            assertEquals(0, journal.getPending());
+            journal.index(INDEX, "note", "after-restart", "{\"text\":\"after restart\"}");
+            assertTrue("journal wasn't shipped: " + journal, journal.flush(30000));
+            assertEquals(1, journal.getShipped());
+            assertTrue(client.prepareGet(INDEX, "note", "after-restart").execute().actionGet().exists());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testShipsAfterCheckpointOfMissingSegment() throws Exception {
+        writeCheckpoint(4, 1024);
+
+        WriteBehindJournal journal = new WriteBehindJournal(client, directory);
+        journal.setSegmentSize(64 * 1024);
+        journal.setFlushIntervalMillis(10);
+        journal.open();
+        try {
+            journal.index(INDEX, "note", "fresh-segment", "{\"text\":\"fresh segment\"}");
+            assertTrue("journal wasn't shipped: " + journal, journal.flush(30000));
+            assertTrue(client.prepareGet(INDEX, "note", "fresh-segment").execute().actionGet().exists());
+        } finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * Write a segment of records the way the journal does.
+     *
+     * @return the end of the records
+     */
+    private int writeSegment(long sequence, int records) throws IOException {
+        JournalSegment segment = JournalSegment.open(sequence, segmentFile(sequence), 64 * 1024);
+        try {
+            for (int i = 0; i < records; i++) {
+                segment.append(new JournalRecord(JournalRecord.INDEX, INDEX, "note", "before-crash-" + i,
+                        ("{\"text\":\"before crash " + i + "\"}").getBytes("UTF-8")).encode());
+            }
+            segment.force();
+            return segment.getWritePosition();
+        } finally {
+            segment.close();
+        }
+    }
+
+    /**
+     * Zero the tail of the last record, as if the machine crashed before the page holding it was written.
+     */
+    private static void tearLastRecord(File file, int end) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(end - 4);
+            raf.write(new byte[4]);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void writeCheckpoint(long sequence, int position) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(directory, "checkpoint"));
+        try {
+            out.write((sequence + " " + position + "\n").getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, String.format("journal-%019d.log", sequence));
+    }
+
+    private static File temporaryDirectory(String prefix) throws IOException {
+        File file = File.createTempFile(prefix, "");
+        if (!file.delete() || !file.mkdirs()) {
+            throw new IOException("Unable to create directory: " + file);
+        }
+        return file;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,101 @@
+package org.elasticsearch.omg.support.query;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.textQuery;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The queries planned against a mapping with a <code>not_analyzed</code> string, an analyzed string, a date and a
+ * <code>multi_field</code> with an analyzed subfield.
+ *
+ * @author jereanon
+ */
+public class QueryPlannerTest {
+
+    private static final String MAPPING = "{\"note\":{\"properties\":{"
+            + "\"user\":{\"type\":\"string\",\"index\":\"not_analyzed\"},"
+            + "\"text\":{\"type\":\"string\"},"
+            + "\"postDate\":{\"type\":\"date\"},"
+            + "\"message\":{\"type\":\"multi_field\",\"fields\":{"
+            + "\"message\":{\"type\":\"string\",\"index\":\"not_analyzed\"},"
+            + "\"queryable\":{\"type\":\"string\",\"index\":\"analyzed\"}}}}}}";
+
+    private QueryPlanner planner;
+
+    @Before
+    public void setUp() throws Exception {
+        planner = new QueryPlanner(MAPPING, "note");
+    }
+
+    @Test
+    public void testKeepsExactMustWithShould() throws Exception {
+        QueryBuilder planned = planner.plan(boolQuery()
+                .must(termQuery("user", "kimchy"))
+                .must(rangeQuery("postDate").from(1).to(2))
+                .should(termQuery("user", "other")), null);
+
+        assertPlanned("{\"bool\":{"
+                + "\"must\":[{\"term\":{\"user\":\"kimchy\"}},"
+                + "{\"range\":{\"postDate\":{\"from\":1,\"to\":2,\"include_lower\":true,\"include_upper\":true}}}],"
+                + "\"should\":{\"term\":{\"user\":\"other\"}}}}", planned);
+    }
+
+    @Test
+    public void testMustNotOnlyBecomesConstantScoreFilter() throws Exception {
+        QueryBuilder planned = planner.plan(boolQuery().mustNot(termQuery("user", "kimchy")), null);
+
+        assertPlanned("{\"constant_score\":{\"filter\":{\"bool\":{"
+                + "\"must_not\":[{\"term\":{\"user\":\"kimchy\"}}]}}}}", planned);
+    }
+
+    @Test
+    public void testKeepsBoostedClausesInQuery() throws Exception {
+        QueryBuilder planned = planner.plan(boolQuery()
+                .must(termQuery("user", "kimchy").boost(2))
+                .must(rangeQuery("postDate").from(1).boost(3))
+                .must(termQuery("user", "other")), null);
+
+        assertPlanned("{\"filtered\":{"
+                + "\"query\":{\"bool\":{\"must\":["
+                + "{\"term\":{\"user\":{\"value\":\"kimchy\",\"boost\":2.0}}},"
+                + "{\"range\":{\"postDate\":{\"from\":1,\"to\":null,\"include_lower\":true,\"include_upper\":true,\"boost\":3.0}}}]}},"
+                + "\"filter\":{\"bool\":{\"must\":[{\"term\":{\"user\":\"other\"}}]}}}}", planned);
+    }
+
+    @Test
+    public void testKeepsTextFieldsInQuery() throws Exception {
+        assertEquals("message.queryable", planner.getTextField("message"));
+        assertEquals("message", planner.getExactField("message"));
+        assertEquals("text", planner.getTextField("text"));
+        assertNull(planner.getExactField("text"));
+
+        QueryBuilder planned = planner.plan(boolQuery()
+                .must(termQuery("text", "hello"))
+                .must(textQuery(planner.getTextField("message"), "hi"))
+                .must(termQuery("message", "exact")), null);
+
+        assertPlanned("{\"filtered\":{"
+                + "\"query\":{\"bool\":{\"must\":["
+                + "{\"term\":{\"text\":\"hello\"}},"
+                + "{\"text\":{\"message.queryable\":{\"query\":\"hi\",\"type\":\"boolean\"}}}]}},"
+                + "\"filter\":{\"bool\":{\"must\":[{\"term\":{\"message\":\"exact\"}}]}}}}", planned);
+    }
+
+    /**
+     * Compare the planned query to the JSON expected, regardless of the order of the fields and the formatting.
+     */
+    private static void assertPlanned(String expected, QueryBuilder planned) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.readValue(expected, Map.class), mapper.readValue(planned.toString(), Map.class));
+    }
+}